@@ -1,4 +1,5 @@
 import lombok.extern.slf4j.Slf4j;
+import utils.Metrics;
 
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -8,6 +9,8 @@ import java.util.concurrent.TimeUnit;
 public class StartAll {
 
     public static void main(String[] args) {
+        // 子进程只导出指标文件，由这里的接口统一输出
+        Metrics.start();
         // Create a ScheduledExecutorService for Boss
         ScheduledExecutorService bossScheduler = Executors.newSingleThreadScheduledExecutor();
 
@@ -70,7 +73,8 @@ public class StartAll {
      */
     private static void executeTask(String className) throws Exception {
         ProcessBuilder processBuilder =
-                new ProcessBuilder("java", "-cp", System.getProperty("java.class.path"), className);
+                new ProcessBuilder("java", "-D" + Metrics.CHILD_PROPERTY + "=true", "-cp",
+                        System.getProperty("java.class.path"), className);
         processBuilder.inheritIO(); // 将子进程的输入/输出重定向到当前进程
         Process process = processBuilder.start();
         int exitCode = process.waitFor();
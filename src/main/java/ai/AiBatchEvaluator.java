@@ -0,0 +1,224 @@
+package ai;
+
+import lombok.extern.slf4j.Slf4j;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import utils.Platform;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 批量AI检测：一次请求只发送一遍自我介绍，附带多个岗位的JD，要求AI返回 JSON 数组形式的逐个岗位结果
+ * <p>
+ * 单个岗位检测时提示词主要由每次重复的自我介绍构成，批量后提示词用量和往返次数都按批次数下降。
+ * 批次大小按上下文上限装箱，并根据响应耗时和解析结果自适应：超时或解析失败减半，正常则逐步加一。
+ *
+ * @author loks666 项目链接:
+ *         <a href="https://github.com/loks666/get_jobs">https://github.com/loks666/get_jobs</a>
+ */
+@Slf4j
+public class AiBatchEvaluator {
+
+    /**
+     * 每个岗位预留的输出token数（打招呼语加JSON结构）
+     */
+    private static final int OUTPUT_TOKENS_PER_JOB = 250;
+
+    private static final String PROMPT = """
+            我目前在找工作,%s,我期望的的岗位方向是【%s】。下面是%d个需要投递的岗位，每个岗位有编号、名称和要求。
+            请逐个判断岗位和我的期望与经历是否基本符合，注意是基本符合；符合的岗位请帮我写一个给HR打招呼的文本，\
+            重点要突出我和岗位的匹配度以及我的优势，不要有其他的语气助词，我自己写的招呼语是：【%s】，你可以参照我自己写的根据岗位情况进行适当调整。
+            只返回一个JSON数组，不要有其他内容，每个岗位一项，格式为：\
+            [{"id":编号,"match":true或false,"greeting":"打招呼的文本，不符合时为空字符串"}]
+            %s""";
+
+    /**
+     * 每个平台各自的检测器，批次大小按各自的响应情况自适应，互不影响
+     */
+    private static final Map<Platform, AiBatchEvaluator> instances = new ConcurrentHashMap<>();
+
+    private final int maxBatchSize;
+    private final int contextTokens;
+    private final long targetMillis;
+    private int batchSize;
+
+    /**
+     * 待检测的岗位
+     */
+    public record Item(String jobName, String jd) {
+    }
+
+    AiBatchEvaluator(AiConfig config) {
+        this.maxBatchSize = config.getBatchSize();
+        this.contextTokens = config.getContextTokens();
+        this.targetMillis = config.getBatchTargetSeconds() * 1000L;
+        this.batchSize = Math.max(1, maxBatchSize / 2);
+    }
+
+    public static AiBatchEvaluator get(Platform platform) {
+        return instances.computeIfAbsent(platform, p -> new AiBatchEvaluator(AiConfig.init()));
+    }
+
+    /**
+     * 是否开启批量检测，batchSize 小于2时按单个岗位检测
+     */
+    public boolean isEnabled() {
+        return maxBatchSize > 1;
+    }
+
+    /**
+     * 批量检测岗位
+     *
+     * @param keyword 期望的岗位方向
+     * @param sayHi 自己写的招呼语
+     * @param items 待检测岗位
+     * @return 与 items 一一对应的检测结果，未得到结果的位置为 null，由调用方按单个岗位重新检测
+     */
+    public List<AiFilter> evaluate(String keyword, String sayHi, List<Item> items) {
+        AiConfig config = AiConfig.init();
+        List<AiFilter> results = new ArrayList<>(Collections.nCopies(items.size(), null));
+        int from = 0;
+        while (from < items.size()) {
+            String header = String.format(PROMPT, config.getIntroduce(), keyword, 0, sayHi, "");
+            int to = packBatch(items, from, AiGovernor.estimatePromptTokens(header));
+            List<Item> batch = items.subList(from, to);
+            String prompt = String.format(PROMPT, config.getIntroduce(), keyword, batch.size(), sayHi, jobsText(batch));
+            long start = System.currentTimeMillis();
+            String response = AiService.sendRequest(prompt);
+            long millis = System.currentTimeMillis() - start;
+            Map<Integer, AiFilter> parsed = parse(response);
+            for (int i = 0; i < batch.size(); i++) {
+                results.set(from + i, parsed.get(i + 1));
+            }
+            boolean complete = parsed.size() == batch.size();
+            log.info("批量AI检测{}个岗位，得到{}个结果，用时{}毫秒", batch.size(), parsed.size(), millis);
+            adapt(millis, complete);
+            from = to;
+        }
+        return results;
+    }
+
+    /**
+     * 从 from 开始装入尽量多的岗位，不超过当前批次大小和上下文上限，至少装入一个
+     */
+    int packBatch(List<Item> items, int from, int headerTokens) {
+        int limit = Math.min(items.size(), from + currentBatchSize());
+        int used = headerTokens;
+        int to = from;
+        while (to < limit) {
+            Item item = items.get(to);
+            used += AiGovernor.estimatePromptTokens(item.jobName() + item.jd()) + OUTPUT_TOKENS_PER_JOB;
+            if (used > contextTokens && to > from) {
+                break;
+            }
+            to++;
+        }
+        return to;
+    }
+
+    /**
+     * 自适应批次大小：耗时超过目标或结果不完整时减半，否则加一
+     */
+    synchronized void adapt(long millis, boolean complete) {
+        if (!complete || millis > targetMillis) {
+            batchSize = Math.max(1, batchSize / 2);
+        } else if (batchSize < maxBatchSize) {
+            batchSize++;
+        }
+    }
+
+    synchronized int currentBatchSize() {
+        return batchSize;
+    }
+
+    private static String jobsText(List<Item> batch) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < batch.size(); i++) {
+            Item item = batch.get(i);
+            sb.append("编号").append(i + 1).append("：岗位名称【").append(item.jobName()).append("】，岗位要求【")
+                    .append(item.jd()).append("】\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 解析AI返回的JSON数组，容忍代码块标记和数组前后的多余文字
+     *
+     * @return 编号到检测结果的映射
+     */
+    static Map<Integer, AiFilter> parse(String response) {
+        Map<Integer, AiFilter> results = new HashMap<>();
+        int start = response.indexOf('[');
+        int end = response.lastIndexOf(']');
+        if (start < 0 || end <= start) {
+            return results;
+        }
+        try {
+            JSONArray array = new JSONArray(response.substring(start, end + 1));
+            for (int i = 0; i < array.length(); i++) {
+                JSONObject verdict = array.optJSONObject(i);
+                if (verdict == null || !verdict.has("id") || !verdict.has("match")) {
+                    continue;
+                }
+                String greeting = verdict.optString("greeting", "");
+                boolean match = verdict.optBoolean("match") && !greeting.isBlank() && !greeting.contains("false");
+                results.put(verdict.optInt("id"), match ? new AiFilter(true, greeting) : new AiFilter(false));
+            }
+        } catch (JSONException e) {
+            log.error("批量AI检测结果解析失败：{}", e.getMessage());
+        }
+        return results;
+    }
+
+    /**
+     * 先离线检查解析和装箱，再用 .env 中配置的AI接口对同一批岗位分别做批量检测和逐个检测，比较两种方式的结论
+     */
+    public static void main(String[] args) {
+        String response = """
+                ```json
+                [{"id":1,"match":true,"greeting":"您好，我有三年Java经验"},{"id":2,"match":false,"greeting":""}]
+                ```""";
+        Map<Integer, AiFilter> parsed = parse(response);
+        if (parsed.size() != 2 || !parsed.get(1).getResult() || parsed.get(2).getResult()) {
+            log.error("解析结果与预期不符：{}", parsed);
+        }
+        AiConfig offline = new AiConfig();
+        offline.setBatchSize(8);
+        offline.setContextTokens(1000);
+        offline.setBatchTargetSeconds(20);
+        List<Item> longJobs = List.of(new Item("Java开发", "负责后端开发".repeat(30)),
+                new Item("Go开发", "负责后端开发".repeat(30)), new Item("前端开发", "负责前端开发".repeat(30)));
+        int packed = new AiBatchEvaluator(offline).packBatch(longJobs, 0, 100);
+        if (packed < 1 || packed >= longJobs.size()) {
+            log.error("上下文上限1000时首批装入{}个岗位，应少于{}个", packed, longJobs.size());
+        }
+
+        AiConfig config = AiConfig.init();
+        String keyword = "Java";
+        String sayHi = "您好，期待与您沟通";
+        List<Item> items = List.of(
+                new Item("Java开发工程师", "负责后端业务系统开发，熟悉Spring Boot、MySQL、Redis"),
+                new Item("大模型应用工程师", "负责大模型应用开发，熟悉Python，有RAG经验"),
+                new Item("门店店员", "负责门店日常运营，做好顾客接待和商品陈列，能接受轮班"));
+        List<AiFilter> batch = new AiBatchEvaluator(config).evaluate(keyword, sayHi, items);
+        int mismatched = 0;
+        for (int i = 0; i < items.size(); i++) {
+            Item item = items.get(i);
+            String single = AiService.sendRequest(String.format(config.getPrompt(), config.getIntroduce(), keyword,
+                    item.jobName(), item.jd(), sayHi));
+            boolean singleMatch = !single.contains("false");
+            Boolean batchMatch = batch.get(i) == null ? null : batch.get(i).getResult();
+            if (!Objects.equals(batchMatch, singleMatch)) {
+                mismatched++;
+            }
+            log.info("【{}】批量检测：{}，逐个检测：{}", item.jobName(), batchMatch, singleMatch);
+        }
+        if (mismatched > 0) {
+            log.warn("{}个岗位的批量检测结论与逐个检测不一致", mismatched);
+        } else {
+            log.info("全部{}个岗位的批量检测结论与逐个检测一致", items.size());
+        }
+    }
+}
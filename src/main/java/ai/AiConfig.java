@@ -20,6 +20,66 @@ public class AiConfig {
      */
     private String prompt;
 
+    /**
+     * 是否使用流式请求：开头判断为不匹配时提前结束，匹配时打招呼语边生成边写入聊天框
+     */
+    private Boolean stream;
+
+    /**
+     * 批量检测时每批最多的岗位数，小于2时逐个岗位检测
+     */
+    private Integer batchSize;
+
+    /**
+     * 模型上下文token上限，批量检测按此装箱
+     */
+    private Integer contextTokens;
+
+    /**
+     * 批量检测单次请求的目标耗时（秒），超过后缩小批次
+     */
+    private Integer batchTargetSeconds;
+
+    /**
+     * 本地相关度低于该值的岗位不再请求AI，直接判为不匹配，0表示不预筛
+     */
+    private Double rejectScore;
+
+    /**
+     * 本地相关度高于该值的岗位不再请求AI，直接判为匹配并使用默认招呼语，1表示不跳过
+     */
+    private Double acceptScore;
+
+    /**
+     * 配置了多个AI接口时，主接口样本不足时等待多少秒未返回就向备用接口发送对冲请求，样本充足后改用其p95耗时，0表示不对冲
+     */
+    private Integer hedgeAfterSeconds;
+
+    /**
+     * 每分钟最多请求数
+     */
+    private Integer rpm;
+
+    /**
+     * 每分钟最多消耗的token数
+     */
+    private Integer tpm;
+
+    /**
+     * 同时进行的AI请求数上限
+     */
+    private Integer concurrency;
+
+    /**
+     * 每日token预算，用完后当天不再请求AI，0表示不限制
+     */
+    private Long dailyTokenBudget;
+
+    /**
+     * 每日token用量的持久化文件，重启后继续累计
+     */
+    private String budgetPath;
+
     public AiConfig() {}
 
     public AiConfig(String introduce, String prompt) {
@@ -29,7 +89,43 @@ public class AiConfig {
 
     public static AiConfig init() {
         AiConfig config = JobUtils.getConfig(AiConfig.class);
-        return new AiConfig(config.introduce, config.prompt);
+        if (config.stream == null) {
+            config.stream = false;
+        }
+        if (config.batchSize == null || config.batchSize < 0) {
+            config.batchSize = 0;
+        }
+        if (config.contextTokens == null || config.contextTokens <= 0) {
+            config.contextTokens = 16000;
+        }
+        if (config.batchTargetSeconds == null || config.batchTargetSeconds <= 0) {
+            config.batchTargetSeconds = 30;
+        }
+        if (config.rejectScore == null || config.rejectScore < 0) {
+            config.rejectScore = 0.0;
+        }
+        if (config.acceptScore == null || config.acceptScore <= 0) {
+            config.acceptScore = 1.0;
+        }
+        if (config.hedgeAfterSeconds == null || config.hedgeAfterSeconds < 0) {
+            config.hedgeAfterSeconds = 15;
+        }
+        if (config.rpm == null || config.rpm <= 0) {
+            config.rpm = 20;
+        }
+        if (config.tpm == null || config.tpm <= 0) {
+            config.tpm = 40000;
+        }
+        if (config.concurrency == null || config.concurrency <= 0) {
+            config.concurrency = 2;
+        }
+        if (config.dailyTokenBudget == null || config.dailyTokenBudget < 0) {
+            config.dailyTokenBudget = 0L;
+        }
+        if (config.budgetPath == null || config.budgetPath.isBlank()) {
+            config.budgetPath = "./src/main/java/ai/budget.json";
+        }
+        return config;
     }
 
 }
@@ -19,6 +19,11 @@ public class AiFilter {
      */
     private String message;
 
+    /**
+     * 本地预筛判为不相关，直接跳过该岗位，不打招呼也不投递
+     */
+    private boolean skip;
+
     public AiFilter(Boolean result) {
         this.result = result;
     }
@@ -28,4 +33,13 @@ public class AiFilter {
         this.message = message;
     }
 
+    /**
+     * 本地预筛判为不相关的结果
+     */
+    public static AiFilter skip() {
+        AiFilter filter = new AiFilter(false);
+        filter.skip = true;
+        return filter;
+    }
+
 }
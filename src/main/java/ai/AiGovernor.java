@@ -0,0 +1,400 @@
+package ai;
+
+import lombok.extern.slf4j.Slf4j;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AI调用限流：每分钟请求数与token数两个令牌桶、全局并发上限，以及跨重启累计的每日token预算
+ * <p>
+ * 令牌桶采用预约方式：发请求前按估算的token数预扣，返回后按 usage 中的实际用量多退少补，多个会话并发调用时不会超额。
+ * 每日用量写入 budgetPath 并加文件锁，StartAll 启动的多个平台进程共用同一份预算。预算同样在申请时按估算预扣，
+ * 检查和预扣在同一把锁内完成，并发请求不会一起越过预算；返回后按实际用量修正，拿不到 usage 的请求按估算记账。
+ * 用量文件是定长记录，原地覆盖写入，不会因中途崩溃被截断为空；dailyTokenBudget 为0（不限）时不读写文件。
+ * 服务端返回 429 并带 Retry-After 时，所有调用方一起暂停到指定时间。
+ *
+ * @author loks666 项目链接:
+ *         <a href="https://github.com/loks666/get_jobs">https://github.com/loks666/get_jobs</a>
+ */
+@Slf4j
+public class AiGovernor {
+
+    /**
+     * 预估的补全token数，实际用量在返回后修正
+     */
+    private static final int EXPECTED_COMPLETION_TOKENS = 300;
+    private static final long MAX_RETRY_DELAY_MILLIS = TimeUnit.MINUTES.toMillis(2);
+    /**
+     * 文件锁只在进程之间互斥，同一进程内的线程重复加锁会抛 OverlappingFileLockException，需要再加一把进程内的锁
+     */
+    private static final Object BUDGET_LOCK = new Object();
+    /**
+     * 用量文件的定长记录字节数，覆盖写入时无需先截断
+     */
+    private static final int BUDGET_RECORD_BYTES = 64;
+
+    private static AiGovernor instance;
+
+    private final TokenBucket requests;
+    private final TokenBucket tokens;
+    private final Semaphore concurrency;
+    private final long dailyTokenBudget;
+    private final Path budgetPath;
+    private volatile long pausedUntil;
+
+    AiGovernor(AiConfig config) {
+        this.requests = new TokenBucket(config.getRpm());
+        this.tokens = new TokenBucket(config.getTpm());
+        this.concurrency = new Semaphore(config.getConcurrency(), true);
+        this.dailyTokenBudget = config.getDailyTokenBudget();
+        this.budgetPath = Paths.get(config.getBudgetPath());
+    }
+
+    public static synchronized AiGovernor get() {
+        if (instance == null) {
+            instance = new AiGovernor(AiConfig.init());
+        }
+        return instance;
+    }
+
+    /**
+     * 替换全局限流器，供压测等工具使用独立的限额和用量文件
+     */
+    static synchronized void override(AiGovernor governor) {
+        instance = governor;
+    }
+
+    /**
+     * 每分钟容量的令牌桶，按时间连续补充；预约后余额可以为负，调用方等待到余额回正
+     */
+    static class TokenBucket {
+        private final double capacity;
+        private final double refillPerNanos;
+        private double available;
+        private long lastRefill = System.nanoTime();
+
+        TokenBucket(int perMinute) {
+            this.capacity = perMinute;
+            this.refillPerNanos = perMinute / (double) TimeUnit.MINUTES.toNanos(1);
+            this.available = perMinute;
+        }
+
+        /**
+         * 预扣令牌
+         *
+         * @return 需要等待的纳秒数
+         */
+        synchronized long reserve(double amount) {
+            refill();
+            // 单次超过桶容量时按容量计算，避免永远等不到
+            available -= Math.min(amount, capacity);
+            return available >= 0 ? 0 : (long) (-available / refillPerNanos);
+        }
+
+        /**
+         * 余额足够时预扣令牌，不足时不扣
+         *
+         * @return 是否预扣成功
+         */
+        synchronized boolean tryReserve(double amount) {
+            refill();
+            if (available < Math.min(amount, capacity)) {
+                return false;
+            }
+            available -= Math.min(amount, capacity);
+            return true;
+        }
+
+        /**
+         * 按实际用量修正预扣数
+         */
+        synchronized void adjust(double delta) {
+            refill();
+            available = Math.min(capacity, available - delta);
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            available = Math.min(capacity, available + (now - lastRefill) * refillPerNanos);
+            lastRefill = now;
+        }
+    }
+
+    /**
+     * 一次AI请求的许可，用完后关闭以释放并发名额
+     * <p>
+     * 申请时已按估算预扣每日预算，没有调用 {@link #settle} 或 {@link #refund} 的许可按估算记账。
+     */
+    public class Permit implements AutoCloseable {
+        private final int estimatedTokens;
+        private boolean closed;
+        private boolean settled;
+
+        private Permit(int estimatedTokens) {
+            this.estimatedTokens = estimatedTokens;
+        }
+
+        /**
+         * 按响应中的 usage 记账
+         */
+        public synchronized void settle(int promptTokens, int completionTokens) {
+            if (settled) {
+                return;
+            }
+            settled = true;
+            int actual = promptTokens + completionTokens;
+            tokens.adjust(actual - estimatedTokens);
+            addDailyUsage(actual - estimatedTokens);
+        }
+
+        /**
+         * 拿不到 usage 时（例如请求被取消）按估算的token数记账，预扣数即为最终用量
+         */
+        public synchronized void settleEstimate() {
+            settled = true;
+        }
+
+        /**
+         * 请求失败、服务端没有计费时退回预扣的每日预算
+         */
+        public synchronized void refund() {
+            if (settled) {
+                return;
+            }
+            settled = true;
+            addDailyUsage(-estimatedTokens);
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                concurrency.release();
+            }
+        }
+    }
+
+    /**
+     * 申请发起一次AI请求，按需等待限流
+     *
+     * @param content 请求内容，用于估算token数
+     * @return 许可；当日预算已用完时返回 null
+     */
+    public Permit acquire(String content) throws InterruptedException {
+        int estimated = estimateTokens(content);
+        if (!reserveDailyUsage(estimated)) {
+            log.warn("今日AI token预算{}已用完，跳过AI请求", dailyTokenBudget);
+            return null;
+        }
+        boolean acquired = false;
+        boolean reserved = false;
+        Permit permit = null;
+        try {
+            concurrency.acquire();
+            acquired = true;
+            sleepNanos(TimeUnit.MILLISECONDS.toNanos(pausedUntil - System.currentTimeMillis()));
+            long wait = Math.max(requests.reserve(1), tokens.reserve(estimated));
+            reserved = true;
+            if (wait > 0) {
+                log.info("AI请求限流，等待{}毫秒", TimeUnit.NANOSECONDS.toMillis(wait));
+                sleepNanos(wait);
+            }
+            permit = new Permit(estimated);
+            return permit;
+        } finally {
+            if (permit == null) {
+                // 等待中被中断：退回预扣的令牌、并发名额和每日预算
+                if (reserved) {
+                    requests.adjust(-1);
+                    tokens.adjust(-estimated);
+                }
+                if (acquired) {
+                    concurrency.release();
+                }
+                addDailyUsage(-estimated);
+            }
+        }
+    }
+
+    /**
+     * 不等待地申请一次AI请求，用于对冲等可有可无的请求
+     *
+     * @param content 请求内容，用于估算token数
+     * @return 许可；并发名额已满、需要限流等待或当日预算已用完时返回 null
+     */
+    public Permit tryAcquire(String content) {
+        int estimated = estimateTokens(content);
+        if (!concurrency.tryAcquire()) {
+            return null;
+        }
+        if (pausedUntil <= System.currentTimeMillis() && requests.tryReserve(1)) {
+            if (tokens.tryReserve(estimated)) {
+                if (reserveDailyUsage(estimated)) {
+                    return new Permit(estimated);
+                }
+                tokens.adjust(-estimated);
+            }
+            requests.adjust(-1);
+        }
+        concurrency.release();
+        return null;
+    }
+
+    /**
+     * 计算重试前的等待时间：429 和 5xx 优先使用 Retry-After，否则指数退避并加随机抖动。
+     * 429 带 Retry-After 时所有调用方一起暂停。
+     *
+     * @param response 失败的响应，超时或网络异常时为 null
+     * @param attempt 第几次重试，从1开始
+     */
+    public long retryDelayMillis(HttpResponse<?> response, int attempt) {
+        long backoff = 1000L * (1L << attempt);
+        long delay = backoff + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+        if (response != null && (response.statusCode() == 429 || response.statusCode() >= 500)) {
+            Optional<Long> retryAfter = response.headers().firstValue("Retry-After").map(AiGovernor::parseRetryAfter);
+            if (retryAfter.isPresent() && retryAfter.get() >= 0) {
+                delay = Math.min(retryAfter.get(), MAX_RETRY_DELAY_MILLIS);
+                if (response.statusCode() == 429) {
+                    pausedUntil = Math.max(pausedUntil, System.currentTimeMillis() + delay);
+                }
+            }
+        }
+        return delay;
+    }
+
+    /**
+     * 今日已消耗的token数
+     */
+    public long readDailyUsage() {
+        synchronized (BUDGET_LOCK) {
+            try (FileChannel channel = openBudget()) {
+                // 关闭通道时自动释放文件锁
+                channel.lock(0, Long.MAX_VALUE, true);
+                return todayUsage(readBudget(channel));
+            } catch (IOException e) {
+                log.error("读取AI用量文件失败！路径:{}，{}", budgetPath, e.getMessage());
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * 预扣每日预算：检查和写入在同一把锁内完成
+     *
+     * @return 预扣后是否仍在预算内，超出时不预扣
+     */
+    private boolean reserveDailyUsage(long amount) {
+        return updateDailyUsage(amount, dailyTokenBudget > 0);
+    }
+
+    /**
+     * 修正每日用量，amount 可以为负
+     */
+    private void addDailyUsage(long amount) {
+        updateDailyUsage(amount, false);
+    }
+
+    private boolean updateDailyUsage(long amount, boolean checkBudget) {
+        if (dailyTokenBudget <= 0) {
+            return true;
+        }
+        synchronized (BUDGET_LOCK) {
+            try (FileChannel channel = openBudget()) {
+                channel.lock();
+                long total = todayUsage(readBudget(channel)) + amount;
+                if (checkBudget && total > dailyTokenBudget) {
+                    return false;
+                }
+                JSONObject budget = new JSONObject();
+                budget.put("date", LocalDate.now().toString());
+                // 跨天后退回前一天的预扣数时不低于0
+                budget.put("tokens", Math.max(0, total));
+                // 补齐到定长后一次覆盖写入，进程崩溃时文件中要么是旧记录要么是新记录
+                String record = String.format("%-" + (BUDGET_RECORD_BYTES - 1) + "s\n", budget);
+                channel.write(ByteBuffer.wrap(record.getBytes(StandardCharsets.UTF_8)), 0);
+            } catch (IOException e) {
+                log.error("写入AI用量文件失败！路径:{}，{}", budgetPath, e.getMessage());
+            }
+            return true;
+        }
+    }
+
+    private FileChannel openBudget() throws IOException {
+        if (budgetPath.getParent() != null) {
+            Files.createDirectories(budgetPath.getParent());
+        }
+        return FileChannel.open(budgetPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+    }
+
+    private static JSONObject readBudget(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+        channel.read(buffer, 0);
+        String text = new String(buffer.array(), StandardCharsets.UTF_8).trim();
+        return text.isEmpty() ? new JSONObject() : new JSONObject(text);
+    }
+
+    private static long todayUsage(JSONObject budget) {
+        return LocalDate.now().toString().equals(budget.optString("date")) ? budget.optLong("tokens") : 0;
+    }
+
+    /**
+     * 估算一次请求的token数：提示词加上预估的补全长度
+     */
+    static int estimateTokens(String content) {
+        return estimatePromptTokens(content) + EXPECTED_COMPLETION_TOKENS;
+    }
+
+    /**
+     * 估算提示词token数：中文约每字一个token，其余约每4个字符一个token
+     */
+    static int estimatePromptTokens(String content) {
+        int cjk = 0;
+        for (int i = 0; i < content.length(); i++) {
+            if (Character.UnicodeScript.of(content.charAt(i)) == Character.UnicodeScript.HAN) {
+                cjk++;
+            }
+        }
+        return cjk + (content.length() - cjk) / 4;
+    }
+
+    /**
+     * Retry-After 可以是秒数，也可以是 HTTP 日期
+     */
+    static Long parseRetryAfter(String value) {
+        try {
+            return (long) (Double.parseDouble(value.trim()) * 1000);
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime time = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Duration.between(ZonedDateTime.now(), time).toMillis();
+            } catch (Exception ignored) {
+                return null;
+            }
+        }
+    }
+
+    private static void sleepNanos(long nanos) throws InterruptedException {
+        if (nanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        }
+    }
+
+}
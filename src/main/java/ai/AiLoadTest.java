@@ -0,0 +1,103 @@
+package ai;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AI调用链路压测：启动本地 {@link FakeAiServer}，按指定并发用 Boss 岗位检测同样格式的提示词调用 {@link AiService}，
+ * 输出 p50/p95/p99 耗时、吞吐量和重试放大倍数（替身接口收到的请求数 / 发起的请求数）
+ * <p>
+ * 参数为 key=value 形式，除替身接口的参数外还支持：requests 请求数，concurrency 并发数，mode=send|stream，
+ * governor=on|off（off 时不按 config.yaml 中的 rpm/tpm 限流，只测接口本身），例如：
+ * requests=200 concurrency=8 mode=send median=800 errorRate=0.05 rpm=300
+ *
+ * @author loks666 项目链接:
+ *         <a href="https://github.com/loks666/get_jobs">https://github.com/loks666/get_jobs</a>
+ */
+@Slf4j
+public class AiLoadTest {
+
+    private static final String[] JOB_NAMES = {"Java开发工程师", "后端开发工程师", "大模型应用开发", "Golang开发", "运维开发工程师"};
+    private static final String[] JDS = {
+            "负责公司核心业务系统的设计与开发，熟悉Java、Spring Boot、Spring Cloud，熟悉MySQL、Redis，有高并发经验优先",
+            "负责大模型应用开发，熟悉Python，有LangChain、RAG经验，了解向量数据库，有模型微调经验优先",
+            "负责微服务架构设计，熟悉Docker、Kubernetes，熟悉消息队列Kafka、RocketMQ，有即时通讯系统开发经验优先",
+            "负责公司内部平台的开发与维护，熟悉Golang或Java，熟悉Linux，有良好的沟通能力和团队合作精神"};
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> params = new HashMap<>();
+        for (String arg : args) {
+            String[] pair = arg.split("=", 2);
+            if (pair.length == 2) {
+                params.put(pair[0], pair[1]);
+            }
+        }
+        int requests = Integer.parseInt(params.getOrDefault("requests", "100"));
+        int concurrency = Integer.parseInt(params.getOrDefault("concurrency", "4"));
+        boolean stream = "stream".equals(params.getOrDefault("mode", "send"));
+        if (!params.containsKey("port")) {
+            params.put("port", "0");
+        }
+        FakeAiServer server = FakeAiServer.start(FakeAiServer.Options.parse(params.entrySet().stream()
+                .map(entry -> entry.getKey() + "=" + entry.getValue()).toArray(String[]::new)));
+
+        // 所有请求发往替身接口
+        AiConfig config = AiConfig.init();
+        AiRouter.override(new AiRouter(List.of(new AiRouter.Endpoint("fake", "http://127.0.0.1:" + server.getPort(),
+                "sk-fake", "fake-model")), 0));
+        if ("off".equals(params.get("governor"))) {
+            config.setRpm(Integer.MAX_VALUE / 2);
+            config.setTpm(Integer.MAX_VALUE / 2);
+            config.setConcurrency(concurrency);
+            config.setDailyTokenBudget(0L);
+        }
+        config.setBudgetPath(System.getProperty("java.io.tmpdir") + "/get_jobs_load_test_budget.json");
+        AiGovernor.override(new AiGovernor(config));
+
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        List<Future<Long>> futures = new ArrayList<>();
+        AtomicInteger falseResults = new AtomicInteger();
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            String prompt = String.format(config.getPrompt(), config.getIntroduce(), "Java",
+                    JOB_NAMES[i % JOB_NAMES.length], JDS[i % JDS.length], "您好，期待与您沟通");
+            futures.add(executor.submit(() -> {
+                long begin = System.nanoTime();
+                if (stream) {
+                    // 流式模式统计的是得出判断的耗时
+                    if (!AiService.streamRequest(prompt).awaitDecision(120, TimeUnit.SECONDS)) {
+                        falseResults.incrementAndGet();
+                    }
+                } else if (AiService.sendRequest(prompt).contains("false")) {
+                    falseResults.incrementAndGet();
+                }
+                return System.nanoTime() - begin;
+            }));
+        }
+        long[] latencies = new long[requests];
+        for (int i = 0; i < requests; i++) {
+            latencies[i] = futures.get(i).get();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        executor.shutdown();
+        server.stop();
+
+        Arrays.sort(latencies);
+        log.info("压测完成：模式{}，请求{}个，并发{}，用时{}秒", stream ? "stream" : "send", requests, concurrency,
+                String.format("%.1f", seconds));
+        log.info("{}耗时 p50={}ms p95={}ms p99={}ms max={}ms", stream ? "判断" : "请求", percentile(latencies, 0.5),
+                percentile(latencies, 0.95), percentile(latencies, 0.99), latencies[requests - 1] / 1_000_000);
+        log.info("吞吐量{}个/秒，返回false{}个（不匹配或失败回退）", String.format("%.2f", requests / seconds),
+                falseResults.get());
+        log.info("替身接口收到{}个请求，其中500错误{}个、429限流{}个，重试放大倍数{}", server.getRequests(),
+                server.getErrors(), server.getThrottled(), String.format("%.2f", server.getRequests() / (double) requests));
+        System.exit(0);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)] / 1_000_000;
+    }
+}
@@ -0,0 +1,362 @@
+package ai;
+
+import io.github.cdimascio.dotenv.Dotenv;
+import lombok.extern.slf4j.Slf4j;
+import org.json.JSONObject;
+import utils.DriverMetrics;
+import utils.Metrics;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 多接口路由：.env 中可以配置多个兼容 OpenAI 的接口（BASE_URL/API_KEY/MODEL，以及 BASE_URL_2/API_KEY_2/MODEL_2 ……），
+ * 按各接口最近的耗时和错误率排序，请求发往最优的接口
+ * <p>
+ * 主接口超过其 p95 耗时仍未返回时，向次优接口补发一份相同的请求（对冲请求），先成功的结果生效，另一个请求立即取消；
+ * 主接口直接失败时也立即改发次优接口。只配置一个接口时与原来的行为相同。
+ * 对冲请求不等待限流，没有空闲的并发名额或令牌时放弃对冲；被取消的请求服务端可能已经计费，同样记账。
+ *
+ * @author loks666 项目链接:
+ *         <a href="https://github.com/loks666/get_jobs">https://github.com/loks666/get_jobs</a>
+ */
+@Slf4j
+public class AiRouter {
+
+    /**
+     * 每个接口保留的最近耗时样本数
+     */
+    private static final int WINDOW = 64;
+    /**
+     * 样本数达到该值后才用 p95 作为对冲等待时间
+     */
+    private static final int MIN_SAMPLES = 10;
+    /**
+     * 没有样本的接口按该耗时参与排序
+     */
+    private static final long DEFAULT_LATENCY_MILLIS = 5000;
+
+    private static AiRouter instance;
+
+    private final List<Endpoint> endpoints;
+    private final long hedgeAfterMillis;
+    private final HttpClient client;
+
+    /**
+     * 一个AI接口及其最近的耗时、错误率
+     */
+    public static class Endpoint {
+        private final String name;
+        private final String url;
+        private final String apiKey;
+        private final String model;
+        private final long[] latencies = new long[WINDOW];
+        private int samples;
+        private double errorRate;
+
+        Endpoint(String name, String baseUrl, String apiKey, String model) {
+            this.name = name;
+            this.url = baseUrl + "/v1/chat/completions";
+            this.apiKey = apiKey;
+            this.model = model;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public String getApiKey() {
+            return apiKey;
+        }
+
+        public String getModel() {
+            return model;
+        }
+
+        /**
+         * 记录一次请求结果，错误率为指数加权平均
+         */
+        public synchronized void record(long millis, boolean success) {
+            if (success) {
+                latencies[samples++ % WINDOW] = millis;
+            }
+            errorRate = errorRate * 0.8 + (success ? 0 : 0.2);
+        }
+
+        synchronized long percentile(double p) {
+            int n = Math.min(samples, WINDOW);
+            if (n == 0) {
+                return DEFAULT_LATENCY_MILLIS;
+            }
+            long[] sorted = Arrays.copyOf(latencies, n);
+            Arrays.sort(sorted);
+            return sorted[Math.min(n - 1, (int) Math.ceil(p * n) - 1)];
+        }
+
+        synchronized int sampleCount() {
+            return samples;
+        }
+
+        /**
+         * 排序分数，越小越好：中位耗时按错误率加权
+         */
+        synchronized double score() {
+            return percentile(0.5) * (1 + 4 * errorRate);
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format("%s(p50=%dms,p95=%dms,错误率%.0f%%)", name, percentile(0.5), percentile(0.95),
+                    errorRate * 100);
+        }
+    }
+
+    /**
+     * 路由结果
+     *
+     * @param endpoint 返回结果的接口
+     * @param response 响应，全部失败时为最后一个失败的响应
+     * @param permit 该请求的限流许可，用于按 usage 记账
+     */
+    public record Reply(Endpoint endpoint, HttpResponse<String> response, AiGovernor.Permit permit) {
+    }
+
+    AiRouter(List<Endpoint> endpoints, long hedgeAfterMillis) {
+        this.endpoints = endpoints;
+        this.hedgeAfterMillis = hedgeAfterMillis;
+        this.client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+    }
+
+    /**
+     * 所有接口共用的 HttpClient，流式请求也用它复用连接
+     */
+    HttpClient client() {
+        return client;
+    }
+
+    public static synchronized AiRouter get() {
+        if (instance == null) {
+            Dotenv dotenv = Dotenv.load();
+            List<Endpoint> endpoints = new ArrayList<>();
+            endpoints.add(new Endpoint("default", dotenv.get("BASE_URL"), dotenv.get("API_KEY"), dotenv.get("MODEL")));
+            for (int i = 2; i <= 9; i++) {
+                String baseUrl = dotenv.get("BASE_URL_" + i, "");
+                if (!baseUrl.isBlank()) {
+                    endpoints.add(new Endpoint("endpoint" + i, baseUrl, dotenv.get("API_KEY_" + i, ""),
+                            dotenv.get("MODEL_" + i, dotenv.get("MODEL"))));
+                }
+            }
+            instance = new AiRouter(endpoints, AiConfig.init().getHedgeAfterSeconds() * 1000L);
+            log.info("AI接口共{}个：{}", endpoints.size(), endpoints.stream().map(Endpoint::getName).toList());
+        }
+        return instance;
+    }
+
+    /**
+     * 替换全局路由，供压测等工具把请求指向本地接口
+     */
+    static synchronized void override(AiRouter router) {
+        instance = router;
+    }
+
+    /**
+     * 当前最优的接口，流式请求不做对冲，直接使用它
+     */
+    public Endpoint best() {
+        return ranked().get(0);
+    }
+
+    /**
+     * 发送请求，主接口超过 p95 未返回或直接失败时向次优接口对冲
+     *
+     * @param requestData 请求体，model 按接口填入
+     * @param content 请求内容，用于限流估算
+     * @param timeoutSeconds 整体超时
+     */
+    public Reply send(JSONObject requestData, String content, int timeoutSeconds)
+            throws InterruptedException, TimeoutException, ExecutionException {
+        List<Endpoint> ranked = ranked();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        BlockingQueue<Attempt> done = new LinkedBlockingQueue<>();
+        List<Attempt> inFlight = new ArrayList<>();
+        Reply lastFailure = null;
+        Exception lastException = null;
+        Attempt primary = null;
+        int next = 0;
+        boolean hedgeSkipped = false;
+        try {
+            while (true) {
+                if (inFlight.isEmpty()) {
+                    if (next >= ranked.size()) {
+                        break;
+                    }
+                    Attempt attempt = start(ranked.get(next++), requestData, content, done, false);
+                    if (attempt == null) {
+                        break;
+                    }
+                    primary = primary == null ? attempt : primary;
+                    inFlight.add(attempt);
+                }
+                // 只有一个请求在途且还有备选接口时，最多等到主接口的 p95 再对冲
+                long remaining = deadline - System.nanoTime();
+                boolean canHedge = !hedgeSkipped && inFlight.size() == 1 && next < ranked.size()
+                        && hedgeAfterMillis > 0;
+                long wait = canHedge ? Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(hedgeDelay(inFlight.get(0))))
+                        : remaining;
+                Attempt finished = done.poll(Math.max(0, wait), TimeUnit.NANOSECONDS);
+                if (finished == null) {
+                    if (System.nanoTime() >= deadline) {
+                        throw new TimeoutException("AI请求超时");
+                    }
+                    Endpoint hedge = ranked.get(next);
+                    // 对冲请求与主请求共用并发名额，拿不到时放弃对冲继续等主接口，不能阻塞在自己占用的名额上
+                    Attempt attempt = start(hedge, requestData, content, done, true);
+                    if (attempt == null) {
+                        log.info("AI请求限流中，放弃向【{}】对冲", hedge.getName());
+                        hedgeSkipped = true;
+                        continue;
+                    }
+                    next++;
+                    log.info("AI接口【{}】超过{}毫秒未返回，向【{}】发送对冲请求", inFlight.get(0).endpoint.getName(),
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inFlight.get(0).startNanos),
+                            hedge.getName());
+                    inFlight.add(attempt);
+                    continue;
+                }
+                inFlight.remove(finished);
+                try {
+                    HttpResponse<String> response = finished.future.join();
+                    Reply reply = new Reply(finished.endpoint, response, finished.permit);
+                    if (response.statusCode() == 200) {
+                        if (finished != primary) {
+                            Metrics.AI_HEDGES.inc(DriverMetrics.currentPlatform().name(), "hedge_won");
+                        } else if (!inFlight.isEmpty()) {
+                            Metrics.AI_HEDGES.inc(DriverMetrics.currentPlatform().name(), "primary_won");
+                        }
+                        return reply;
+                    }
+                    lastFailure = reply;
+                } catch (CompletionException | CancellationException e) {
+                    lastException = e;
+                }
+            }
+        } finally {
+            // 先成功的结果生效，取消其余在途请求
+            inFlight.forEach(Attempt::cancel);
+        }
+        if (lastFailure != null) {
+            return lastFailure;
+        }
+        if (lastException != null) {
+            throw new ExecutionException(lastException.getCause() != null ? lastException.getCause() : lastException);
+        }
+        return null;
+    }
+
+    /**
+     * 按分数排序的接口列表，分数相同时保持配置顺序
+     */
+    List<Endpoint> ranked() {
+        List<Endpoint> ranked = new ArrayList<>(endpoints);
+        ranked.sort(Comparator.comparingDouble(Endpoint::score));
+        return ranked;
+    }
+
+    private long hedgeDelay(Attempt attempt) {
+        Endpoint endpoint = attempt.endpoint;
+        long p95 = endpoint.sampleCount() >= MIN_SAMPLES ? endpoint.percentile(0.95) : hedgeAfterMillis;
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - attempt.startNanos);
+        return Math.max(0, p95 - elapsed);
+    }
+
+    private record Attempt(Endpoint endpoint, CompletableFuture<HttpResponse<String>> future,
+            AiGovernor.Permit permit, long startNanos, AtomicBoolean cancelled, AtomicBoolean charged) {
+
+        void cancel() {
+            cancelled.set(true);
+            future.cancel(true);
+            // 取消前已经返回的请求同样记账
+            if (future.isDone() && !future.isCancelled() && !future.isCompletedExceptionally()) {
+                charge(future.join());
+            }
+        }
+
+        /**
+         * 被取消的请求记账：有响应时按 usage，没有响应时服务端可能已经计费，按估算
+         */
+        void charge(HttpResponse<String> response) {
+            if (!charged.compareAndSet(false, true)) {
+                return;
+            }
+            if (response == null) {
+                permit.settleEstimate();
+                return;
+            }
+            if (response.statusCode() != 200) {
+                return;
+            }
+            try {
+                JSONObject usage = new JSONObject(response.body()).getJSONObject("usage");
+                permit.settle(usage.optInt("prompt_tokens"), usage.optInt("completion_tokens"));
+            } catch (Exception e) {
+                permit.settleEstimate();
+            }
+        }
+    }
+
+    /**
+     * 发起请求
+     *
+     * @param hedge 是否为对冲请求，对冲请求不等待限流
+     * @return 请求；当日预算已用完，或对冲请求拿不到许可时返回 null
+     */
+    private Attempt start(Endpoint endpoint, JSONObject requestData, String content, BlockingQueue<Attempt> done,
+            boolean hedge) throws InterruptedException {
+        AiGovernor.Permit permit = hedge ? AiGovernor.get().tryAcquire(content) : AiGovernor.get().acquire(content);
+        if (permit == null) {
+            return null;
+        }
+        JSONObject body = new JSONObject(requestData.toString());
+        body.put("model", endpoint.getModel());
+        HttpRequest request = HttpRequest.newBuilder().uri(URI.create(endpoint.getUrl()))
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + endpoint.getApiKey())
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString())).build();
+        long start = System.nanoTime();
+        CompletableFuture<HttpResponse<String>> future =
+                client.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+        Attempt attempt = new Attempt(endpoint, future, permit, start, new AtomicBoolean(), new AtomicBoolean());
+        future.whenComplete((response, e) -> {
+            permit.close();
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            // 被取消的对冲请求不计入统计，但要记账
+            if (attempt.cancelled.get()) {
+                attempt.charge(response);
+            } else {
+                boolean success = e == null && response.statusCode() == 200;
+                endpoint.record(millis, success);
+                if (!success) {
+                    // 失败的请求服务端不计费，成功的请求由调用方按 usage 记账
+                    permit.refund();
+                }
+            }
+            done.add(attempt);
+        });
+        return attempt;
+    }
+
+    @Override
+    public String toString() {
+        return "AI接口状态：" + ranked();
+    }
+}
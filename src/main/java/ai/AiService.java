@@ -1,12 +1,13 @@
 package ai;
 
-import io.github.cdimascio.dotenv.Dotenv;
 import lombok.extern.slf4j.Slf4j;
 import org.json.JSONArray;
 import org.json.JSONObject;
+import utils.DriverMetrics;
+import utils.Metrics;
+import utils.Tracer;
 
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
@@ -14,7 +15,10 @@ import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
 import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * @author loks666 项目链接:
@@ -23,10 +27,14 @@ import java.util.concurrent.*;
 @Slf4j
 public class AiService {
 
-    private static final Dotenv dotenv = Dotenv.load();
-    private static final String BASE_URL = dotenv.get("BASE_URL") + "/v1/chat/completions";
-    private static final String API_KEY = dotenv.get("API_KEY");
-    private static final String MODEL = dotenv.get("MODEL");
+    /**
+     * 流式请求的后台线程，守护线程不阻止程序退出
+     */
+    private static final ExecutorService STREAM_EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "ai-stream");
+        thread.setDaemon(true);
+        return thread;
+    });
 
 
     /**
@@ -36,20 +44,34 @@ public class AiService {
      * @return AI响应内容，如果请求失败则返回备用消息
      */
     public static String sendRequest(String content) {
+        long start = System.nanoTime();
+        String result = "error";
+        Tracer.Span aiSpan = Tracer.span("ai", Tracer.Category.AI);
+        try {
+            String response = doSendRequest(content);
+            result = "ok";
+            return response;
+        } finally {
+            aiSpan.close();
+            Metrics.AI_LATENCY.observe((System.nanoTime() - start) / 1e9,
+                    DriverMetrics.currentPlatform().name(), result);
+        }
+    }
+
+    private static String doSendRequest(String content) {
         // 设置超时和重试参数
         int timeoutInSeconds = 60;
         int maxRetries = 3;
         int retryCount = 0;
         Exception lastException = null;
+        AiGovernor governor = AiGovernor.get();
+        AiRouter router = AiRouter.get();
 
         while (retryCount < maxRetries) {
-            // 创建 HttpClient 实例并设置超时
-            HttpClient client = HttpClient.newBuilder()
-                    .connectTimeout(Duration.ofSeconds(timeoutInSeconds)).build();
-
-            // 构建 JSON 请求体
+            // 失败的响应，用于读取 Retry-After
+            HttpResponse<String> failedResponse = null;
+            // 构建 JSON 请求体，model 由路由按接口填入
             JSONObject requestData = new JSONObject();
-            requestData.put("model", MODEL);
             requestData.put("temperature", 0.5);
 
             // 添加消息内容
@@ -61,22 +83,15 @@ public class AiService {
 
             requestData.put("messages", messages);
 
-            // 构建 HTTP 请求
-            HttpRequest request = HttpRequest.newBuilder().uri(URI.create(BASE_URL))
-                    .header("Content-Type", "application/json")
-                    .header("Authorization", "Bearer " + API_KEY)
-                    .POST(HttpRequest.BodyPublishers.ofString(requestData.toString())).build();
-
-            // 创建线程池用于执行请求
-            ExecutorService executor = Executors.newSingleThreadExecutor();
-            Callable<HttpResponse<String>> task =
-                    () -> client.send(request, HttpResponse.BodyHandlers.ofString());
-
-            // 提交请求并控制超时
-            Future<HttpResponse<String>> future = executor.submit(task);
+            AiRouter.Reply reply = null;
             try {
-                // 使用 future.get 设置超时
-                HttpResponse<String> response = future.get(timeoutInSeconds, TimeUnit.SECONDS);
+                // 发往最优接口，超过其p95未返回时向备用接口对冲；当日预算用完时返回 null，直接按检测失败处理
+                reply = router.send(requestData, content, timeoutInSeconds);
+                if (reply == null) {
+                    break;
+                }
+                HttpResponse<String> response = reply.response();
+                AiGovernor.Permit permit = reply.permit();
 
                 if (response.statusCode() == 200) {
                     // 解析响应体
@@ -96,6 +111,10 @@ public class AiService {
                     int promptTokens = usageObject.getInt("prompt_tokens");
                     int completionTokens = usageObject.getInt("completion_tokens");
                     int totalTokens = usageObject.getInt("total_tokens");
+                    permit.settle(promptTokens, completionTokens);
+                    String platform = DriverMetrics.currentPlatform().name();
+                    Metrics.AI_TOKENS.add(promptTokens, platform, "prompt");
+                    Metrics.AI_TOKENS.add(completionTokens, platform, "completion");
 
                     // 格式化时间
                     LocalDateTime createdTime = Instant.ofEpochSecond(created)
@@ -104,57 +123,46 @@ public class AiService {
                             DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
                     String formattedTime = createdTime.format(formatter);
 
-                    log.info("请求ID: {}, 创建时间: {}, 模型名: {}, 提示词: {}, 补全: {}, 总用量: {}", requestId,
-                            formattedTime, model, promptTokens, completionTokens, totalTokens);
+                    log.info("请求ID: {}, 接口: {}, 创建时间: {}, 模型名: {}, 提示词: {}, 补全: {}, 总用量: {}", requestId,
+                            reply.endpoint().getName(), formattedTime, model, promptTokens, completionTokens,
+                            totalTokens);
                     return responseContent;
                 } else {
                     // 处理非200状态码
                     log.error("AI请求失败！状态码: {}, 响应内容: {}", response.statusCode(), response.body());
-                    if (retryCount < maxRetries - 1) {
-                        retryCount++;
-                        log.info("正在进行第{}次重试...", retryCount);
-                        // 指数退避策略，每次重试等待时间增加
-                        Thread.sleep(1000 * (1 << retryCount));
-                        continue;
-                    }
+                    failedResponse = response;
                 }
             } catch (TimeoutException e) {
                 lastException = e;
                 log.error("请求超时！超时设置为 {} 秒", timeoutInSeconds);
-                if (retryCount < maxRetries - 1) {
-                    retryCount++;
-                    log.info("正在进行第{}次重试...", retryCount);
-                    // 指数退避策略
-                    try {
-                        Thread.sleep(1000 * (1 << retryCount));
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        log.error("重试等待被中断", ie);
-                    }
-                    continue;
-                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.error("AI请求被中断");
+                break;
             } catch (Exception e) {
                 lastException = e;
                 log.error("AI请求异常！", e);
-                if (retryCount < maxRetries - 1) {
-                    retryCount++;
-                    log.info("正在进行第{}次重试...", retryCount);
-                    try {
-                        Thread.sleep(1000 * (1 << retryCount));
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        log.error("重试等待被中断", ie);
-                    }
-                    continue;
-                }
             } finally {
-                executor.shutdownNow(); // 关闭线程池
+                settleOrRefund(reply);
+            }
+            if (retryCount >= maxRetries - 1) {
+                break; // 已经重试了最大次数
+            }
+            retryCount++;
+            // 429和5xx优先按 Retry-After 等待，否则指数退避
+            long delay = governor.retryDelayMillis(failedResponse, retryCount);
+            log.info("{}毫秒后进行第{}次重试...", delay, retryCount);
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                log.error("重试等待被中断", ie);
+                break;
             }
-            break; // 如果到达这里，说明要么成功了，要么已经重试了最大次数
         }
 
         // 所有重试都失败，返回备用消息
-        log.warn("AI请求在{}次尝试后失败，使用默认回复", maxRetries);
+        log.warn("AI请求在{}次尝试后失败，使用默认回复", retryCount + 1);
         if (lastException != null) {
             log.error("最后一次异常: {}", lastException.getMessage());
         }
@@ -162,6 +170,174 @@ public class AiService {
     }
 
 
+    /**
+     * 流式发送AI请求（stream: true），边生成边读取：开头判断为不匹配时立即断开，匹配时打招呼语陆续写入返回的 {@link AiStream}
+     *
+     * @param content 请求内容
+     * @return 流式结果，请求在后台线程中进行
+     */
+    public static AiStream streamRequest(String content) {
+        AiStream stream = new AiStream();
+        String platform = DriverMetrics.currentPlatform().name();
+        STREAM_EXECUTOR.execute(() -> {
+            boolean success = false;
+            Tracer.Span aiStreamSpan = Tracer.span("aiStream", Tracer.Category.AI);
+            try {
+                success = doStreamRequest(content, stream, platform);
+            } finally {
+                aiStreamSpan.close();
+                stream.onComplete(success || stream.isCancelled());
+                Metrics.AI_LATENCY.observe(stream.elapsedNanos() / 1e9, platform, success ? "ok" : "error");
+            }
+        });
+        return stream;
+    }
+
+    private static boolean doStreamRequest(String content, AiStream stream, String platform) {
+        int timeoutInSeconds = 60;
+        int maxRetries = 3;
+        AiGovernor governor = AiGovernor.get();
+
+        JSONObject requestData = new JSONObject();
+        requestData.put("temperature", 0.5);
+        requestData.put("stream", true);
+        // 要求在最后一个分片中返回 usage，用于记账
+        requestData.put("stream_options", new JSONObject().put("include_usage", true));
+        JSONArray messages = new JSONArray();
+        messages.put(new JSONObject().put("role", "user").put("content", content));
+        requestData.put("messages", messages);
+
+        for (int attempt = 1; attempt <= maxRetries && !stream.isCancelled(); attempt++) {
+            // 流式请求不做对冲，每次尝试使用当前最优的接口
+            AiRouter router = AiRouter.get();
+            AiRouter.Endpoint endpoint = router.best();
+            requestData.put("model", endpoint.getModel());
+            HttpRequest request = HttpRequest.newBuilder().uri(URI.create(endpoint.getUrl()))
+                    .header("Content-Type", "application/json")
+                    .header("Accept", "text/event-stream")
+                    .header("Authorization", "Bearer " + endpoint.getApiKey())
+                    .timeout(Duration.ofSeconds(timeoutInSeconds))
+                    .POST(HttpRequest.BodyPublishers.ofString(requestData.toString())).build();
+            HttpResponse<Stream<String>> response = null;
+            long start = System.nanoTime();
+            try (AiGovernor.Permit permit = governor.acquire(content)) {
+                if (permit == null) {
+                    return false;
+                }
+                response = router.client().send(request, HttpResponse.BodyHandlers.ofLines());
+                if (response.statusCode() == 200) {
+                    boolean complete = readEvents(response.body(), content, stream, permit, platform);
+                    // 提前断开的请求耗时偏短，只统计完整生成的请求
+                    if (complete && stream.isMatched()) {
+                        endpoint.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), true);
+                    }
+                    return complete;
+                }
+                endpoint.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), false);
+                permit.refund();
+                try (Stream<String> body = response.body()) {
+                    log.error("AI流式请求失败！状态码: {}, 响应内容: {}", response.statusCode(),
+                            body.collect(Collectors.joining("\n")));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (Exception e) {
+                endpoint.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), false);
+                log.error("AI流式请求异常！{}", e.getMessage());
+                // 已经开始输出时不能重试，否则内容会重复
+                if (!stream.received().isEmpty()) {
+                    return false;
+                }
+            }
+            if (attempt < maxRetries) {
+                long delay = governor.retryDelayMillis(response, attempt);
+                log.info("{}毫秒后进行第{}次重试...", delay, attempt);
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 读取 SSE 事件，每个 data 行是一个 chat.completion.chunk
+     *
+     * @return 是否完整读完或按判断主动断开
+     */
+    private static boolean readEvents(Stream<String> lines, String content, AiStream stream,
+            AiGovernor.Permit permit, String platform) {
+        // 关闭行流会取消订阅并断开连接
+        try (lines) {
+            Iterator<String> iterator = lines.iterator();
+            while (iterator.hasNext()) {
+                String line = iterator.next();
+                if (!line.startsWith("data:")) {
+                    continue;
+                }
+                String data = line.substring(5).trim();
+                if ("[DONE]".equals(data)) {
+                    // 接口不支持 include_usage 时没有 usage 分片，许可按申请时的估算记账
+                    break;
+                }
+                JSONObject chunk = new JSONObject(data);
+                JSONObject usage = chunk.optJSONObject("usage");
+                if (usage != null) {
+                    settle(permit, usage, platform);
+                }
+                JSONArray choices = chunk.optJSONArray("choices");
+                if (choices == null || choices.isEmpty()) {
+                    continue;
+                }
+                String delta = choices.getJSONObject(0).optJSONObject("delta", new JSONObject())
+                        .optString("content", "");
+                if (delta.isEmpty()) {
+                    continue;
+                }
+                boolean decided = stream.isDecided();
+                boolean keepReading = stream.onChunk(delta);
+                if (!decided && stream.isDecided()) {
+                    Metrics.AI_DECISION.observe(stream.elapsedNanos() / 1e9, platform,
+                            keepReading ? "match" : "mismatch");
+                }
+                if (!keepReading) {
+                    log.info("AI判断岗位不匹配，提前结束生成，用时{}毫秒", stream.elapsedNanos() / 1_000_000);
+                    // 提前断开时没有 usage，按估算记账
+                    permit.settle(AiGovernor.estimatePromptTokens(content), stream.received().length());
+                    return true;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 已按 usage 记账的许可不受影响；成功但没能解析 usage 的按估算记账，失败的退回预算
+     */
+    private static void settleOrRefund(AiRouter.Reply reply) {
+        if (reply == null) {
+            return;
+        }
+        if (reply.response().statusCode() == 200) {
+            reply.permit().settleEstimate();
+        } else {
+            reply.permit().refund();
+        }
+    }
+
+    private static void settle(AiGovernor.Permit permit, JSONObject usage, String platform) {
+        int promptTokens = usage.optInt("prompt_tokens");
+        int completionTokens = usage.optInt("completion_tokens");
+        permit.settle(promptTokens, completionTokens);
+        Metrics.AI_TOKENS.add(promptTokens, platform, "prompt");
+        Metrics.AI_TOKENS.add(completionTokens, platform, "completion");
+        log.info("AI流式请求用量, 提示词: {}, 补全: {}", promptTokens, completionTokens);
+    }
+
     public static void main(String[] args) {
         try {
             // 示例：发送请求
@@ -0,0 +1,174 @@
+package ai;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 流式AI请求的结果：先给出是否匹配的判断，匹配时再陆续给出打招呼语
+ * <p>
+ * 提示词约定不匹配时只返回 false，因此读到开头几个字符就能判断；判断为不匹配时立即断开请求，不再等待生成。
+ *
+ * @author loks666 项目链接:
+ *         <a href="https://github.com/loks666/get_jobs">https://github.com/loks666/get_jobs</a>
+ */
+public class AiStream {
+
+    /**
+     * 片段队列的结束标记
+     */
+    private static final String END = new String("");
+
+    private final CompletableFuture<Boolean> decision = new CompletableFuture<>();
+    private final CompletableFuture<String> text = new CompletableFuture<>();
+    private final BlockingQueue<String> chunks = new LinkedBlockingQueue<>();
+    private final StringBuilder received = new StringBuilder();
+    private final long startNanos = System.nanoTime();
+    private volatile boolean cancelled;
+
+    /**
+     * 根据已收到的开头判断是否匹配
+     *
+     * @param prefix 已收到的内容
+     * @param complete 是否已收到全部内容
+     * @return true 匹配，false 不匹配，null 还不能判断
+     */
+    static Boolean decide(String prefix, boolean complete) {
+        String head = prefix.replaceAll("^[\\s\"'`“”‘’「」【】*]+", "").toLowerCase();
+        if (head.startsWith("false")) {
+            return false;
+        }
+        if (!complete && "false".startsWith(head)) {
+            return null;
+        }
+        return !head.isEmpty();
+    }
+
+    /**
+     * 收到一段内容
+     *
+     * @return 是否继续读取
+     */
+    boolean onChunk(String chunk) {
+        if (cancelled) {
+            return false;
+        }
+        received.append(chunk);
+        if (!decision.isDone()) {
+            Boolean verdict = decide(received.toString(), false);
+            if (verdict == null) {
+                return true;
+            }
+            decision.complete(verdict);
+            if (!verdict) {
+                text.complete("false");
+                chunks.add(END);
+                return false;
+            }
+            // 判断之前缓冲的开头一并输出
+            chunks.add(received.toString());
+            return true;
+        }
+        chunks.add(chunk);
+        return true;
+    }
+
+    /**
+     * 请求结束
+     *
+     * @param success 是否完整收到响应；失败时按检测失败处理，返回 false
+     */
+    void onComplete(boolean success) {
+        String content = success ? received.toString() : "false";
+        if (!decision.isDone()) {
+            Boolean verdict = decide(content, true);
+            decision.complete(verdict);
+            if (verdict) {
+                chunks.add(content);
+            }
+        }
+        text.complete(content);
+        chunks.add(END);
+    }
+
+    /**
+     * 等待是否匹配的判断，超时按不匹配处理
+     */
+    public boolean awaitDecision(long timeout, TimeUnit unit) {
+        try {
+            return decision.get(timeout, unit);
+        } catch (Exception e) {
+            cancel();
+            return false;
+        }
+    }
+
+    /**
+     * 把打招呼语逐段交给 consumer，直到生成结束；每次把已到达的片段合并后一起交出，减少输入次数
+     *
+     * @return 完整内容，超时或失败时返回 false
+     */
+    public String drainTo(Consumer<String> consumer, long timeout, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        try {
+            while (true) {
+                String chunk = chunks.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (chunk == null) {
+                    cancel();
+                    return "false";
+                }
+                StringBuilder batch = new StringBuilder();
+                boolean end = false;
+                do {
+                    if (chunk == END) {
+                        end = true;
+                        break;
+                    }
+                    batch.append(chunk);
+                } while ((chunk = chunks.poll()) != null);
+                if (!batch.isEmpty()) {
+                    consumer.accept(batch.toString());
+                }
+                if (end) {
+                    return text.getNow("false");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel();
+            return "false";
+        }
+    }
+
+    /**
+     * 放弃本次请求，后台线程会在读到下一段时断开连接
+     */
+    public void cancel() {
+        cancelled = true;
+        decision.complete(false);
+        text.complete("false");
+        chunks.add(END);
+    }
+
+    boolean isDecided() {
+        return decision.isDone();
+    }
+
+    boolean isMatched() {
+        return decision.getNow(false) && !cancelled;
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    long elapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    String received() {
+        return received.toString();
+    }
+}
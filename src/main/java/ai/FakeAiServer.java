@@ -0,0 +1,205 @@
+package ai;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 本地的 OpenAI 兼容接口替身，用于在不消耗真实额度的情况下测试AI调用链路的吞吐和耗时
+ * <p>
+ * 支持对数正态分布的响应耗时、随机 5xx 错误、按每分钟请求数返回 429（带 Retry-After）、流式 SSE 输出和 usage 统计。
+ * 启动参数为 key=value 形式，例如：port=18080 median=800 sigma=0.5 errorRate=0.05 rpm=120 matchRate=0.7
+ * 然后在 .env 中把 BASE_URL 指向 http://127.0.0.1:18080 即可。
+ *
+ * @author loks666 项目链接:
+ *         <a href="https://github.com/loks666/get_jobs">https://github.com/loks666/get_jobs</a>
+ */
+@Slf4j
+public class FakeAiServer {
+
+    private static final String GREETING = "您好，我熟悉Java、Spring Boot和Spring Cloud，有多年后端开发经验，和贵司岗位要求比较匹配，期待与您沟通！";
+
+    private final Options options;
+    private final HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger errors = new AtomicInteger();
+    private final AtomicInteger throttled = new AtomicInteger();
+    private final AtomicLong windowStart = new AtomicLong(System.currentTimeMillis());
+    private final AtomicInteger windowCount = new AtomicInteger();
+
+    /**
+     * 替身接口的行为参数
+     *
+     * @param port 端口
+     * @param medianMillis 响应耗时中位数
+     * @param sigma 对数正态分布的 sigma，越大长尾越明显
+     * @param errorRate 返回 500 的比例
+     * @param rpm 每分钟最多处理的请求数，超过返回 429，0表示不限制
+     * @param matchRate 判断为匹配的比例，其余返回 false
+     * @param tokenDelayMillis 流式输出时每个分片的间隔
+     */
+    public record Options(int port, long medianMillis, double sigma, double errorRate, int rpm, double matchRate,
+            long tokenDelayMillis) {
+
+        public static Options parse(String[] args) {
+            Map<String, String> values = new HashMap<>();
+            for (String arg : args) {
+                String[] pair = arg.split("=", 2);
+                if (pair.length == 2) {
+                    values.put(pair[0], pair[1]);
+                }
+            }
+            return new Options(Integer.parseInt(values.getOrDefault("port", "18080")),
+                    Long.parseLong(values.getOrDefault("median", "800")),
+                    Double.parseDouble(values.getOrDefault("sigma", "0.5")),
+                    Double.parseDouble(values.getOrDefault("errorRate", "0")),
+                    Integer.parseInt(values.getOrDefault("rpm", "0")),
+                    Double.parseDouble(values.getOrDefault("matchRate", "1")),
+                    Long.parseLong(values.getOrDefault("tokenDelay", "30")));
+        }
+    }
+
+    private FakeAiServer(Options options) throws IOException {
+        this.options = options;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", options.port()), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/v1/chat/completions", this::handle);
+    }
+
+    public static FakeAiServer start(Options options) throws IOException {
+        FakeAiServer fake = new FakeAiServer(options);
+        fake.server.start();
+        log.info("AI替身接口已启动：http://127.0.0.1:{} {}", fake.getPort(), options);
+        return fake;
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * 收到的请求总数（包括重试和对冲）
+     */
+    public int getRequests() {
+        return requests.get();
+    }
+
+    public int getErrors() {
+        return errors.get();
+    }
+
+    public int getThrottled() {
+        return throttled.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.incrementAndGet();
+            JSONObject request = new JSONObject(new String(exchange.getRequestBody().readAllBytes(),
+                    StandardCharsets.UTF_8));
+            if (isThrottled()) {
+                throttled.incrementAndGet();
+                exchange.getResponseHeaders().add("Retry-After", "1");
+                send(exchange, 429, new JSONObject().put("error", "rate limit exceeded").toString());
+                return;
+            }
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            sleep((long) (options.medianMillis() * Math.exp(options.sigma() * random.nextGaussian())));
+            if (random.nextDouble() < options.errorRate()) {
+                errors.incrementAndGet();
+                send(exchange, 500, new JSONObject().put("error", "internal error").toString());
+                return;
+            }
+            String prompt = request.getJSONArray("messages").getJSONObject(0).getString("content");
+            String content = random.nextDouble() < options.matchRate() ? GREETING : "false";
+            int promptTokens = AiGovernor.estimatePromptTokens(prompt);
+            int completionTokens = AiGovernor.estimatePromptTokens(content);
+            if (request.optBoolean("stream")) {
+                stream(exchange, request.optString("model"), content, promptTokens, completionTokens);
+            } else {
+                JSONObject response = new JSONObject();
+                response.put("id", "fake-" + requests.get());
+                response.put("created", System.currentTimeMillis() / 1000);
+                response.put("model", request.optString("model"));
+                response.put("choices", new JSONArray().put(new JSONObject()
+                        .put("message", new JSONObject().put("role", "assistant").put("content", content))));
+                response.put("usage", usage(promptTokens, completionTokens));
+                send(exchange, 200, response.toString());
+            }
+        } catch (Exception e) {
+            log.debug("替身接口处理请求中断：{}", e.getMessage());
+        }
+    }
+
+    private void stream(HttpExchange exchange, String model, String content, int promptTokens, int completionTokens)
+            throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        for (int i = 0; i < content.length(); i += 4) {
+            JSONObject chunk = new JSONObject().put("model", model).put("choices", new JSONArray().put(
+                    new JSONObject().put("delta", new JSONObject().put("content",
+                            content.substring(i, Math.min(content.length(), i + 4))))));
+            out.write(("data: " + chunk + "\n\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            sleep(options.tokenDelayMillis());
+        }
+        JSONObject last = new JSONObject().put("choices", new JSONArray())
+                .put("usage", usage(promptTokens, completionTokens));
+        out.write(("data: " + last + "\n\ndata: [DONE]\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private boolean isThrottled() {
+        if (options.rpm() <= 0) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        long start = windowStart.get();
+        if (now - start >= 60_000 && windowStart.compareAndSet(start, now)) {
+            windowCount.set(0);
+        }
+        return windowCount.incrementAndGet() > options.rpm();
+    }
+
+    private static JSONObject usage(int promptTokens, int completionTokens) {
+        return new JSONObject().put("prompt_tokens", promptTokens).put("completion_tokens", completionTokens)
+                .put("total_tokens", promptTokens + completionTokens);
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        start(Options.parse(args));
+    }
+}
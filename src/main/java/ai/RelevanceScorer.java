@@ -0,0 +1,206 @@
+package ai;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+
+/**
+ * 本地相关度预筛：在调用AI之前，用 TF-IDF 余弦相似度计算JD与自我介绍、搜索关键词的相关度
+ * <p>
+ * 中文按相邻两字切分（bigram），英文、数字按单词切分（java、c++、k8s），不依赖分词词典。
+ * 自我介绍和关键词在构造时建立一次向量；IDF 随观察到的JD在线更新（每个岗位只计入一次，评分本身不改变统计），“负责”“经验”这类每个JD都有的词权重会逐渐降低。
+ * 低于 rejectScore 的岗位直接判为不匹配，高于 acceptScore 的岗位直接判为匹配，只有中间段才需要AI判断。
+ *
+ * @author loks666 项目链接:
+ *         <a href="https://github.com/loks666/get_jobs">https://github.com/loks666/get_jobs</a>
+ */
+@Slf4j
+public class RelevanceScorer {
+
+    /**
+     * 关键词在画像中的权重倍数，关键词比自我介绍中的普通描述更能代表求职方向
+     */
+    private static final int KEYWORD_BOOST = 3;
+
+    private final Map<String, Integer> profile;
+    private final Map<String, Integer> documentFrequency = new HashMap<>();
+    /**
+     * 已计入 IDF 统计的岗位，同一岗位只计入一次
+     */
+    private final Set<String> observed = new HashSet<>();
+    private final double rejectScore;
+    private final double acceptScore;
+    private int documents;
+
+    public enum Band {
+        /**
+         * 相关度过低，本地判为不匹配
+         */
+        REJECT,
+        /**
+         * 相关度足够高，本地判为匹配
+         */
+        ACCEPT,
+        /**
+         * 需要AI判断
+         */
+        AMBIGUOUS
+    }
+
+    public RelevanceScorer(String introduce, List<String> keywords, double rejectScore, double acceptScore) {
+        this.rejectScore = rejectScore;
+        this.acceptScore = acceptScore;
+        this.profile = termFrequency(tokenize(introduce == null ? "" : introduce));
+        for (String keyword : keywords) {
+            for (String term : tokenize(keyword)) {
+                profile.merge(term, KEYWORD_BOOST, Integer::sum);
+            }
+        }
+    }
+
+    /**
+     * 把岗位的JD计入 IDF 统计，同一岗位重复调用只计入一次
+     *
+     * @param id 岗位唯一标识，如岗位链接
+     */
+    public synchronized void observe(String id, String jd) {
+        if (id == null || jd == null || jd.isBlank() || !observed.add(id)) {
+            return;
+        }
+        documents++;
+        termFrequency(tokenize(jd)).keySet().forEach(term -> documentFrequency.merge(term, 1, Integer::sum));
+    }
+
+    /**
+     * 计算JD与画像的相关度，不改变 IDF 统计，同一段文字在 IDF 不变时得分相同
+     *
+     * @return 0~1 之间的相似度
+     */
+    public synchronized double score(String jd) {
+        Map<String, Integer> tf = termFrequency(tokenize(jd));
+        double dot = 0;
+        double jdNorm = 0;
+        for (Map.Entry<String, Integer> entry : tf.entrySet()) {
+            double weight = weight(entry.getKey(), entry.getValue());
+            jdNorm += weight * weight;
+            Integer profileCount = profile.get(entry.getKey());
+            if (profileCount != null) {
+                dot += weight * weight(entry.getKey(), profileCount);
+            }
+        }
+        double profileNorm = 0;
+        for (Map.Entry<String, Integer> entry : profile.entrySet()) {
+            double weight = weight(entry.getKey(), entry.getValue());
+            profileNorm += weight * weight;
+        }
+        return dot == 0 ? 0 : dot / Math.sqrt(jdNorm * profileNorm);
+    }
+
+    /**
+     * 计算岗位名加JD与画像的相关度，预筛和投递排序都按这段文字评分，两处结果一致
+     */
+    public double score(String jobName, String jd) {
+        return score(Objects.toString(jobName, "") + "\n" + Objects.toString(jd, ""));
+    }
+
+    /**
+     * 按相关度分段
+     */
+    public Band classify(String jd) {
+        return classify(score(jd));
+    }
+
+    public Band classify(String jobName, String jd) {
+        return classify(score(jobName, jd));
+    }
+
+    public Band classify(double score) {
+        if (score < rejectScore) {
+            return Band.REJECT;
+        }
+        return score >= acceptScore ? Band.ACCEPT : Band.AMBIGUOUS;
+    }
+
+    /**
+     * 对数词频乘以平滑后的 IDF
+     */
+    private double weight(String term, int count) {
+        int df = documentFrequency.getOrDefault(term, 0);
+        return (1 + Math.log(count)) * Math.log(1 + (documents + 1.0) / (df + 1.0));
+    }
+
+    /**
+     * 切分为中文 bigram 和英文数字单词
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        String lower = text.toLowerCase();
+        StringBuilder word = new StringBuilder();
+        StringBuilder han = new StringBuilder();
+        for (int i = 0; i <= lower.length(); i++) {
+            char c = i < lower.length() ? lower.charAt(i) : ' ';
+            boolean isHan = Character.UnicodeScript.of(c) == Character.UnicodeScript.HAN;
+            boolean isWord = c < 128 && (Character.isLetterOrDigit(c) || c == '+' || c == '#');
+            if (!isWord && word.length() > 0) {
+                tokens.add(word.toString());
+                word.setLength(0);
+            }
+            if (!isHan && han.length() > 0) {
+                addBigrams(han, tokens);
+                han.setLength(0);
+            }
+            if (isWord) {
+                word.append(c);
+            } else if (isHan) {
+                han.append(c);
+            }
+        }
+        return tokens;
+    }
+
+    private static void addBigrams(CharSequence run, List<String> tokens) {
+        if (run.length() == 1) {
+            tokens.add(run.toString());
+            return;
+        }
+        for (int i = 0; i + 1 < run.length(); i++) {
+            tokens.add(run.subSequence(i, i + 2).toString());
+        }
+    }
+
+    private static Map<String, Integer> termFrequency(List<String> tokens) {
+        Map<String, Integer> tf = new HashMap<>();
+        tokens.forEach(token -> tf.merge(token, 1, Integer::sum));
+        return tf;
+    }
+
+    public static void main(String[] args) {
+        // 固定的画像和阈值，结果不受 config.yaml 影响
+        RelevanceScorer scorer = new RelevanceScorer(
+                "熟练使用Spring Boot、Spring Cloud，擅长MySQL、Redis，熟悉Docker、Kubernetes，具备大语言模型的开发与部署经验",
+                List.of("Java", "大模型"), 0.03, 0.3);
+        Map<String, Band> expected = new LinkedHashMap<>();
+        expected.put("Java开发工程师\n负责公司核心业务系统的后端开发，熟悉Java、Spring Boot、Spring Cloud，熟悉MySQL、Redis，有Docker、Kubernetes经验优先",
+                Band.ACCEPT);
+        expected.put("大模型应用工程师\n负责大模型应用开发，熟悉Python，有LangChain、RAG经验，了解向量数据库", Band.AMBIGUOUS);
+        expected.put("门店店员\n负责门店日常运营，做好顾客接待和商品陈列，有零售行业经验优先，能接受轮班", Band.REJECT);
+        expected.put("新媒体运营\n负责公司新媒体账号运营，撰写推文，策划线上活动，有较强的文字功底", Band.REJECT);
+        expected.keySet().forEach(text -> scorer.observe(text, text));
+        int mismatched = 0;
+        for (Map.Entry<String, Band> entry : expected.entrySet()) {
+            String text = entry.getKey();
+            double score = scorer.score(text);
+            Band band = scorer.classify(score);
+            if (band != entry.getValue()) {
+                mismatched++;
+            }
+            log.info("{} 相关度{} 预期{} 实际{}", text.substring(0, text.indexOf('\n')),
+                    String.format("%.3f", score), entry.getValue(), band);
+        }
+        if (mismatched > 0) {
+            log.error("{}个岗位的分段与预期不符，检查 tokenize 或权重计算", mismatched);
+        } else {
+            log.info("全部{}个岗位的分段与预期一致", expected.size());
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package boss;
 
+import ai.AiBatchEvaluator;
 import ai.AiConfig;
 import ai.AiFilter;
 import ai.AiService;
+import ai.AiStream;
+import ai.RelevanceScorer;
 import lombok.SneakyThrows;
 import org.json.JSONObject;
 import org.openqa.selenium.By;
@@ -13,9 +16,19 @@ import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.WebDriverWait;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import utils.Checkpoint;
+import utils.CircuitBreaker;
+import utils.DriverMetrics;
 import utils.Job;
+import utils.JobDeduplicator;
+import utils.JobStore;
 import utils.JobUtils;
+import utils.Metrics;
+import utils.Pacer;
+import utils.Platform;
+import utils.Selectors;
 import utils.SeleniumUtil;
+import utils.Tracer;
 
 import java.io.File;
 import java.io.IOException;
@@ -23,8 +36,10 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.net.URL;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static utils.Bot.sendMessageByTime;
@@ -52,43 +67,120 @@ public class Boss {
     static int noJobPages;
     static int lastSize;
     static Date startDate;
+    private static RelevanceScorer relevanceScorer;
     static BossConfig config = BossConfig.init();
     static int maxPages = 10;
+    static Checkpoint<Job> checkpoint;
+    private static final CircuitBreaker breaker = CircuitBreaker.of(Platform.BOSS);
+    /**
+     * 当前页最后处理的岗位，随断点一起保存
+     */
+    static String lastJobId;
+
+    /**
+     * 点击【立即沟通】后可能出现的页面状态：投递上限提示、安全提示弹窗、聊天输入框
+     */
+    private static final Map<String, String> CHAT_STATE = Map.of(
+            "limit", ".dialog-con",
+            "dialogTitle", "//div[@class='dialog-title']",
+            "chatInput", "#chat-input");
+    private static final long CHAT_STATE_TIMEOUT_MILLIS = 3000;
+    /**
+     * 岗位详情页上HR的活跃状态和公司、职位信息
+     */
+    private static final Map<String, String> HR_STATE = Map.of(
+            "activeTime", "//span[@class='boss-active-time']",
+            "bossInfo", "//div[@class='boss-info-attr']");
+    /**
+     * 异常访问提示
+     */
+    private static final Map<String, String> ACCESS_STATE = Map.of("error", "//div[@class='error-content']");
+    /**
+     * 首页的登录入口，以及403访问异常页的标题和登录链接
+     */
+    private static final Map<String, String> LOGIN_STATE = Map.of(
+            "btns", ".btns",
+            "title", "//h1",
+            "login403", "//a[@ka='403_login']");
 
     public static void main(String[] args) {
         loadData(dataPath);
         SeleniumUtil.initDriver();
         startDate = new Date();
-        login();
-        config.getCityCode().forEach(Boss::postJobByCity);
+        if (config.getPlan()) {
+            login();
+            planAndDeliver();
+        } else {
+            checkpoint = Checkpoint.resume(Platform.BOSS, Job.class, config.getCityCode(), config.getKeywords());
+            resultList.addAll(checkpoint.getResults());
+            login();
+            boolean completed = true;
+            for (String cityCode : config.getCityCode()) {
+                if (!postJobByCity(cityCode)) {
+                    completed = false;
+                    break;
+                }
+            }
+            if (completed) {
+                checkpoint.clear();
+            }
+        }
         log.info(resultList.isEmpty() ? "未发起新的聊天..." : "新发起聊天公司如下:\n{}",
                 resultList.stream().map(Object::toString).collect(Collectors.joining("\n")));
         printResult();
     }
 
-    private static void printResult() {
+    static void printResult() {
+        printResult(true);
+    }
+
+    /**
+     * @param quitDriver 是否关闭浏览器，流水线、队列模式下由调用方统一关闭
+     */
+    static void printResult(boolean quitDriver) {
         String message = String.format("\nBoss投递完成，共发起%d个聊天，用时%s", resultList.size(),
                 formatDuration(startDate, new Date()));
         log.info(message);
         sendMessageByTime(message);
-        saveData(dataPath);
+        updateListData();
+        log.info(JobStore.report(Platform.BOSS, startDate));
+        log.info(DriverMetrics.report(Platform.BOSS, 10));
+        log.info(Selectors.report(Platform.BOSS));
+        Selectors.save();
+        DriverMetrics.reset(Platform.BOSS);
+        log.info(Tracer.report(Platform.BOSS));
+        Tracer.export(Platform.BOSS);
+        Metrics.runFinished(Platform.BOSS, startDate);
         resultList.clear();
-        CHROME_DRIVER.close();
-        CHROME_DRIVER.quit();
+        SeleniumUtil.closeWorkerTabs();
+        if (quitDriver) {
+            CHROME_DRIVER.close();
+            CHROME_DRIVER.quit();
+        }
     }
 
-    private static void postJobByCity(String cityCode) {
+    /**
+     * 投递一个城市的所有关键词
+     *
+     * @return 是否可以继续投递下一个城市，达到上限或出现异常访问时返回false，保留断点供下次运行继续
+     */
+    private static boolean postJobByCity(String cityCode) {
         String searchUrl = getSearchUrl(cityCode);
         WebDriverWait wait = new WebDriverWait(CHROME_DRIVER, 40);
         for (String keyword : config.getKeywords()) {
-            int page = 1;
+            if (checkpoint.isDone(cityCode, keyword)) {
+                log.info("城市【{}】关键词【{}】上次已投递完，跳过", cityCode, keyword);
+                continue;
+            }
+            int page = checkpoint.startPage(cityCode, keyword);
             int noJobPages = 0;
             String url = searchUrl + "&page=" + page + "&query=" + keyword;
-            log.info("开始投递第一页，页面url：{}", url);
+            log.info("开始投递第{}页，页面url：{}", page, url);
             CHROME_DRIVER.get(url);
 
             while (true) {
                 log.info("投递【{}】关键词第【{}】页", keyword, page);
+                lastJobId = null;
                 // 检查是否找到岗位元素
                 if (isJobsPresent(wait)) {
                     log.info("当前页面已找到岗位，开始进行投递...");
@@ -96,18 +188,25 @@ public class Boss {
                     Integer resultSize = resumeSubmission(keyword);
                     if (resultSize == -1) {
                         log.info("今日沟通人数已达上限，请明天再试");
-                        return;
+                        return false;
                     }
                     if (resultSize == -2) {
-                        log.info("出现异常访问，请手动过验证后再继续投递...");
-                        return;
+                        log.info("连续出现异常访问，停止投递，下次运行从断点继续...");
+                        return false;
                     }
                     if (resultSize == -3) {
                         log.info("没有岗位了，换个关键词再试试...");
-                        return;
+                        return true;
                     }
 
                     noJobPages = 0;
+                } else if (isAccessBlocked()) {
+                    if (!breaker.trip("搜索页出现异常访问")) {
+                        return false;
+                    }
+                    // 恢复后重新加载被打断的页面
+                    CHROME_DRIVER.get(url);
+                    continue;
                 } else {
                     noJobPages++;
                     if (noJobPages >= noJobMaxPages) {
@@ -117,6 +216,7 @@ public class Boss {
                         log.info("【{}】第【{}】页无岗位,目前已连续【{}】页无新岗位...", keyword, page, noJobPages);
                     }
                 }
+                checkpoint.pageDone(cityCode, keyword, page, lastJobId, resultList);
 
                 if (page >= maxPages) {
                     log.info("关键词【{}】已投递{}页，结束该关键词投递", keyword, maxPages);
@@ -139,10 +239,96 @@ public class Boss {
                 wait.until(ExpectedConditions
                         .visibilityOfElementLocated(By.xpath("//div[@class='search-job-result']")));
             }
+            checkpoint.keywordDone(cityCode, keyword, page, resultList);
         }
+        return true;
     }
 
-    private static boolean isJobsPresent(WebDriverWait wait) {
+    /**
+     * 规划投递：先汇总全部城市、关键词的岗位并评分，只按得分从高到低投递今日剩余额度内的岗位
+     * <p>
+     * 汇总阶段只翻页提取岗位，不打开标签页；规划投递不记录断点，下次运行重新汇总。
+     */
+    private static void planAndDeliver() {
+        int quota = config.getDailyLimit() - JobStore.deliveredToday(Platform.BOSS);
+        if (quota <= 0) {
+            log.info("今日已投递数已达到每日上限{}，请明天再试", config.getDailyLimit());
+            return;
+        }
+        // 多保留一部分岗位，投递时被跳过的岗位由后面的岗位补上
+        BossPlanner planner = new BossPlanner(quota + Math.max(5, quota / 5), config.getExpectedSalary(),
+                relevanceScorer());
+        for (String cityCode : config.getCityCode()) {
+            for (String keyword : config.getKeywords()) {
+                if (!collectJobs(cityCode, keyword, planner)) {
+                    log.info("连续出现异常访问，停止投递...");
+                    return;
+                }
+            }
+        }
+        List<BossPlanner.Candidate> candidates = planner.plan();
+        Map<String, AiFilter> verdicts = new HashMap<>();
+        if (config.getEnableAI()) {
+            candidates.stream()
+                    .collect(Collectors.groupingBy(BossPlanner.Candidate::keyword, LinkedHashMap::new,
+                            Collectors.mapping(BossPlanner.Candidate::job, Collectors.toList())))
+                    .forEach((keyword, jobs) -> verdicts.putAll(evaluateJobs(keyword, jobs)));
+        }
+        log.info("今日剩余额度{}个，开始按得分投递", quota);
+        int delivered = 0;
+        for (BossPlanner.Candidate candidate : candidates) {
+            if (delivered >= quota) {
+                break;
+            }
+            int status = deliverJob(candidate.keyword(), candidate.job(), verdicts.get(candidate.job().getHref()));
+            if (status == -1) {
+                log.info("今日沟通人数已达上限，请明天再试");
+                return;
+            }
+            if (status == -2) {
+                log.info("连续出现异常访问，停止投递...");
+                return;
+            }
+            if (status == 1) {
+                delivered++;
+            }
+        }
+    }
+
+    /**
+     * 汇总一个城市、关键词各页的岗位交给规划器评分，遇到无岗位的页面即结束
+     *
+     * @return 是否可以继续汇总，连续出现异常访问、熔断后不再恢复时返回false
+     */
+    private static boolean collectJobs(String cityCode, String keyword, BossPlanner planner) {
+        String searchUrl = getSearchUrl(cityCode);
+        WebDriverWait wait = new WebDriverWait(CHROME_DRIVER, 40);
+        for (int page = 1; page <= maxPages; page++) {
+            CHROME_DRIVER.get(searchUrl + "&page=" + page + "&query=" + keyword);
+            if (!isJobsPresent(wait)) {
+                if (isAccessBlocked()) {
+                    if (!breaker.trip("搜索页出现异常访问")) {
+                        return false;
+                    }
+                    // 恢复后重新汇总被打断的页面
+                    page--;
+                    continue;
+                }
+                log.info("【{}】关键词第【{}】页无岗位，结束该关键词的汇总", keyword, page);
+                return true;
+            }
+            int kept = 0;
+            for (Job job : extractJobs(keyword)) {
+                if (planner.offer(keyword, job)) {
+                    kept++;
+                }
+            }
+            log.info("城市【{}】关键词【{}】第【{}】页汇总完成，{}个岗位进入候选", cityCode, keyword, page, kept);
+        }
+        return true;
+    }
+
+    static boolean isJobsPresent(WebDriverWait wait) {
         try {
             // 判断页面是否存在岗位的元素
             WebElement jobList = wait.until(ExpectedConditions.presenceOfElementLocated(
@@ -182,7 +368,7 @@ public class Boss {
         }
     }
 
-    private static String getSearchUrl(String cityCode) {
+    static String getSearchUrl(String cityCode) {
         return baseUrl + JobUtils.appendParam("city", cityCode)
                 + JobUtils.appendParam("jobType", config.getJobType())
                 + JobUtils.appendParam("salary", config.getSalary())
@@ -193,20 +379,6 @@ public class Boss {
                 + JobUtils.appendListParam("stage", config.getStage());
     }
 
-    private static void saveData(String path) {
-        try {
-            updateListData();
-            Map<String, Set<String>> data = new HashMap<>();
-            data.put("blackCompanies", blackCompanies);
-            data.put("blackRecruiters", blackRecruiters);
-            data.put("blackJobs", blackJobs);
-            String json = customJsonFormat(data);
-            Files.write(Paths.get(path), json.getBytes());
-        } catch (IOException e) {
-            log.error("保存【{}】数据失败！", path);
-        }
-    }
-
     private static void updateListData() {
         CHROME_DRIVER.get("https://www.zhipin.com/web/geek/chat");
         SeleniumUtil.getWait(3);
@@ -240,7 +412,9 @@ public class Boss {
                             continue;
                         }
                         companyName = companyName.replaceAll("\\.{3}", "");
-                        if (companyName.matches(".*(\\p{IsHan}{2,}|[a-zA-Z]{4,}).*")) {
+                        // 黑名单发现后立即写入日志，中途退出也不会丢失
+                        if (companyName.matches(".*(\\p{IsHan}{2,}|[a-zA-Z]{4,}).*")
+                                && JobStore.addBlacklist(Platform.BOSS, "company", companyName)) {
                             blackCompanies.add(companyName);
                         }
                     }
@@ -276,183 +450,294 @@ public class Boss {
     }
 
 
-    private static String customJsonFormat(Map<String, Set<String>> data) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("{\n");
-        for (Map.Entry<String, Set<String>> entry : data.entrySet()) {
-            sb.append("    \"").append(entry.getKey()).append("\": [\n");
-            sb.append(entry.getValue().stream().map(s -> "        \"" + s + "\"")
-                    .collect(Collectors.joining(",\n")));
-
-            sb.append("\n    ],\n");
-        }
-        sb.delete(sb.length() - 2, sb.length());
-        sb.append("\n}");
-        return sb.toString();
-    }
-
-    private static void loadData(String path) {
+    static void loadData(String path) {
         try {
-            String json = new String(Files.readAllBytes(Paths.get(path)));
-            parseJson(json);
+            // data.json 中手工添加的黑名单合并到岗位历史库，每个版本只导入一次，修改文件后再次导入
+            Path file = Paths.get(path);
+            String source = file.toAbsolutePath().normalize() + "@" + Files.getLastModifiedTime(file).toMillis();
+            if (!JobStore.isImported(Platform.BOSS, source)) {
+                parseJson(new String(Files.readAllBytes(file)));
+                JobStore.markImported(Platform.BOSS, source);
+            }
         } catch (IOException e) {
             log.error("读取【{}】数据失败！", path);
         }
+        blackCompanies = JobStore.getBlacklist(Platform.BOSS, "company");
+        blackRecruiters = JobStore.getBlacklist(Platform.BOSS, "recruiter");
+        blackJobs = JobStore.getBlacklist(Platform.BOSS, "job");
     }
 
     private static void parseJson(String json) {
         JSONObject jsonObject = new JSONObject(json);
-        blackCompanies = jsonObject.getJSONArray("blackCompanies").toList().stream()
-                .map(Object::toString).collect(Collectors.toSet());
-        blackRecruiters = jsonObject.getJSONArray("blackRecruiters").toList().stream()
-                .map(Object::toString).collect(Collectors.toSet());
-        blackJobs = jsonObject.getJSONArray("blackJobs").toList().stream().map(Object::toString)
-                .collect(Collectors.toSet());
+        Map<String, String> types = Map.of("blackCompanies", "company", "blackRecruiters", "recruiter",
+                "blackJobs", "job");
+        types.forEach((key, type) -> {
+            if (jsonObject.has(key)) {
+                jsonObject.getJSONArray(key).toList()
+                        .forEach(value -> JobStore.addBlacklist(Platform.BOSS, type, value.toString()));
+            }
+        });
     }
 
-    @SneakyThrows
     private static Integer resumeSubmission(String keyword) {
+        List<Job> jobs = extractJobs(keyword);
+        Map<String, AiFilter> verdicts = config.getEnableAI() ? evaluateJobs(keyword, jobs) : Map.of();
+        for (Job job : jobs) {
+            int status = deliverJob(keyword, job, verdicts.get(job.getHref()));
+            if (status < 0) {
+                return status;
+            }
+            lastJobId = job.getHref();
+        }
+        return resultList.size();
+    }
+
+    /**
+     * 解析当前搜索页的岗位卡片，过滤黑名单与薪资不符的岗位，并预取岗位详情
+     *
+     * @param keyword 搜索关键词
+     * @return 待投递岗位
+     */
+    static List<Job> extractJobs(String keyword) {
+        Metrics.pageCrawled(Platform.BOSS);
         List<WebElement> jobCards =
-                CHROME_DRIVER.findElements(By.cssSelector("li.job-card-wrapper"));
+                Selectors.findAll(Platform.BOSS, "jobCard");
         List<Job> jobs = new ArrayList<>();
         for (WebElement jobCard : jobCards) {
-            WebElement infoPublic = jobCard.findElement(By.cssSelector("div.info-public"));
+            WebElement infoPublic = Selectors.require(jobCard, Platform.BOSS, "cardRecruiter");
             String recruiterText = infoPublic.getText();
-            String recruiterName = infoPublic.findElement(By.cssSelector("em")).getText();
-            String salary = jobCard.findElement(By.cssSelector("span.salary")).getText();
+            String recruiterName = Selectors.require(infoPublic, Platform.BOSS, "cardRecruiterName").getText();
+            String salary = Selectors.require(jobCard, Platform.BOSS, "cardSalary").getText();
             if (blackRecruiters.stream().anyMatch(recruiterName::contains)) {
                 // 排除黑名单招聘人员
+                Metrics.reject(Platform.BOSS, "blacklist_recruiter");
                 continue;
             }
             String jobName =
-                    jobCard.findElement(By.cssSelector("div.job-title span.job-name")).getText();
+                    Selectors.require(jobCard, Platform.BOSS, "cardJobName").getText();
             if (blackJobs.stream().anyMatch(jobName::contains) || !isTargetJob(keyword, jobName)) {
                 // 排除黑名单岗位
+                Metrics.reject(Platform.BOSS,
+                        blackJobs.stream().anyMatch(jobName::contains) ? "blacklist_job" : "keyword_mismatch");
                 continue;
             }
-            String companyName = jobCard
-                    .findElement(By.cssSelector("div.company-info h3.company-name")).getText();
+            String companyName = Selectors.require(jobCard, Platform.BOSS, "cardCompany").getText();
             if (blackCompanies.stream().anyMatch(companyName::contains)) {
                 // 排除黑名单公司
+                Metrics.reject(Platform.BOSS, "blacklist_company");
                 continue;
             }
             if (isSalaryNotExpected(salary)) {
                 // 过滤薪资
                 log.info("已过滤:【{}】公司【{}】岗位薪资【{}】不符合投递要求", companyName, jobName, salary);
+                Metrics.reject(Platform.BOSS, "salary");
                 noJobPages = 0;
                 continue;
             }
             Job job = new Job();
             job.setRecruiter(recruiterText.replace(recruiterName, "") + ":" + recruiterName);
-            job.setHref(jobCard.findElement(By.cssSelector("a")).getAttribute("href"));
+            job.setHref(Selectors.require(jobCard, Platform.BOSS, "cardLink").getAttribute("href"));
             job.setJobName(jobName);
             job.setJobArea(
-                    jobCard.findElement(By.cssSelector("div.job-title span.job-area")).getText());
+                    Selectors.require(jobCard, Platform.BOSS, "cardArea").getText());
             job.setSalary(
-                    jobCard.findElement(By.cssSelector("div.job-info span.salary")).getText());
+                    Selectors.require(jobCard, Platform.BOSS, "cardInfoSalary").getText());
             List<WebElement> tagElements =
-                    jobCard.findElements(By.cssSelector("div.job-info ul.tag-list li"));
+                    Selectors.findAll(jobCard, Platform.BOSS, "cardTags");
             StringBuilder tag = new StringBuilder();
             for (WebElement tagElement : tagElements) {
                 tag.append(tagElement.getText()).append("·");
             }
+            job.setCompanyName(companyName);
             job.setCompanyTag(tag.substring(0, tag.length() - 1));
+            job.setCompanyInfo(Selectors.findAll(jobCard, Platform.BOSS, "cardCompanyTags").stream()
+                    .map(WebElement::getText).collect(Collectors.joining("·")));
             jobs.add(job);
         }
+        jobs.forEach(job -> JobStore.recordListing(Platform.BOSS, job));
+        // 批量预取岗位详情，打开标签页前过滤不活跃HR和黑名单岗位
+        return BossDetailPrefetcher.prefetch(jobs, config);
+    }
 
-        for (Job job : jobs) {
-            // 打开新的标签页
-            JavascriptExecutor jse = CHROME_DRIVER;
-            jse.executeScript("window.open(arguments[0], '_blank')", job.getHref());
-            // 切换到新的标签页
-            ArrayList<String> tabs = new ArrayList<>(CHROME_DRIVER.getWindowHandles());
-            CHROME_DRIVER.switchTo().window(tabs.getLast());
+    /**
+     * 投递单个岗位：在工作标签页中打开岗位并发起聊天
+     *
+     * @param keyword 搜索关键词
+     * @param job 岗位
+     * @param filterResult 预先计算好的AI检测结果，为空时按配置现场检测
+     * @return 1 投递成功，0 跳过，-1 今日沟通已达上限，-2 连续出现异常访问、熔断后不再恢复
+     */
+    static int deliverJob(String keyword, Job job, AiFilter filterResult) {
+        return deliverJob(keyword, job, filterResult, true);
+    }
+
+    /**
+     * @param pace 是否在发起聊天前等待投递间隔；流水线在获取浏览器锁之前已调用 {@link #pacer()} 时传 false，
+     *         避免等待期间占用浏览器
+     */
+    static int deliverJob(String keyword, Job job, AiFilter filterResult, boolean pace) {
+        while (true) {
+            int status;
+            Tracer.Span jobSpan = Tracer.span(Platform.BOSS, "job " + job.getJobName(), Tracer.Category.WORK);
             try {
-                // 等待聊天按钮出现
-                WAIT.until(ExpectedConditions
-                        .presenceOfElementLocated(By.cssSelector("[class*='btn btn-startchat']")));
-            } catch (Exception e) {
-                Optional<WebElement> element =
-                        SeleniumUtil.findElement("//div[@class='error-content']", "");
-                if (element.isPresent() && element.get().getText().contains("异常访问")) {
-                    return -2;
-                }
+                status = doDeliverJob(keyword, job, filterResult, pace);
+            } finally {
+                jobSpan.close();
             }
-            // 过滤不活跃HR
-            if (isDeadHR()) {
-                closeWindow(tabs);
-                log.info("该HR已过滤");
-                SeleniumUtil.sleep(1);
+            if (status == -2 && breaker.trip("出现异常访问")) {
+                // 冷却结束或手动验证后重新投递被打断的岗位
+                log.info("重新投递【{}】{}", job.getCompanyName(), job.getJobName());
                 continue;
             }
-            simulateWait();
-            WebElement btn =
-                    CHROME_DRIVER.findElement(By.cssSelector("[class*='btn btn-startchat']"));
-            if ("立即沟通".equals(btn.getText())) {
-                String waitTime = config.getWaitTime();
-                int sleepTime = 10; // 默认等待10秒
+            if (status == -1) {
+                breaker.limit("今日沟通人数已达上限");
+            } else if (status == 1) {
+                breaker.success();
+            }
+            return status;
+        }
+    }
 
-                if (waitTime != null) {
-                    try {
-                        sleepTime = Integer.parseInt(waitTime);
-                    } catch (NumberFormatException e) {
-                        log.error("等待时间转换异常！！");
+    private static int doDeliverJob(String keyword, Job job, AiFilter filterResult, boolean pace) {
+        // 跳过已投递过的岗位，以及已在其他平台投递过的相同岗位
+        if (JobStore.isDelivered(Platform.BOSS, job)) {
+            Metrics.reject(Platform.BOSS, "delivered");
+            return 0;
+        }
+        if (JobDeduplicator.isDuplicate(job, Platform.BOSS)) {
+            return 0;
+        }
+        // 在复用的工作标签页中打开岗位，无论正常返回还是抛出异常都归还标签页
+        try {
+            Tracer.Span openTabSpan = Tracer.span("openTab", Tracer.Category.WORK);
+            try {
+                SeleniumUtil.openInWorkerTab(job.getHref());
+            } finally {
+                openTabSpan.close();
+            }
+            return chatInWorkerTab(keyword, job, filterResult, pace);
+        } finally {
+            SeleniumUtil.releaseWorkerTab();
+        }
+    }
+
+    /**
+     * 在已打开岗位详情的工作标签页中发起聊天，标签页由调用方归还
+     */
+    @SneakyThrows
+    private static int chatInWorkerTab(String keyword, Job job, AiFilter filterResult, boolean pace) {
+        Tracer.Span waitButton = Tracer.span("waitButton", Tracer.Category.DOM);
+        try {
+            // 等待聊天按钮出现
+            Selectors.await(Platform.BOSS, "chatButton");
+        } catch (Exception e) {
+            if (isAccessBlocked()) {
+                return -2;
+            }
+        } finally {
+            waitButton.close();
+        }
+        // 过滤不活跃HR，已预取到活跃状态的岗位无需再检测
+        boolean deadHR;
+        Tracer.Span deadHrCheckSpan = Tracer.span("deadHrCheck", Tracer.Category.DOM);
+        try {
+            deadHR = job.getHrActiveTime() == null && isDeadHR();
+        } finally {
+            deadHrCheckSpan.close();
+        }
+        if (deadHR) {
+            Metrics.reject(Platform.BOSS, "dead_hr");
+            log.info("该HR已过滤");
+            return 0;
+        }
+        WebElement btn = Selectors.require(Platform.BOSS, "chatButton");
+        AiStream aiStream = null;
+        if ("立即沟通".equals(btn.getText())) {
+            String jd = null;
+            if (filterResult == null && config.getEnableAI()) {
+                filterResult = JobStore.findVerdict(Platform.BOSS, job);
+                if (filterResult == null) {
+                    jd = jobDescription(job);
+                    filterResult = prefilter(job, jd);
+                    if (filterResult == null && Boolean.TRUE.equals(AiConfig.init().getStream())) {
+                        // 流式AI检测与下面的投递间隔等待同时进行
+                        aiStream = AiService.streamRequest(aiPrompt(keyword, job.getJobName(), jd));
                     }
                 }
+            }
+            // 本地预筛判为不相关的岗位直接跳过，不占用投递间隔
+            if (filterResult != null && filterResult.isSkip()) {
+                Metrics.reject(Platform.BOSS, "irrelevant");
+                return 0;
+            }
+            // 距上次发起聊天不足投递间隔时等待，期间的提取、预取和AI检测已计入间隔
+            if (pace) {
+                pacer().acquire();
+            }
 
-                SeleniumUtil.sleep(sleepTime);
-
-                AiFilter filterResult = null;
-                if (config.getEnableAI()) {
-                    // AI检测岗位是否匹配
-                    String jd = CHROME_DRIVER.findElement(By.xpath("//div[@class='job-sec-text']"))
-                            .getText();
-                    filterResult = checkJob(keyword, job.getJobName(), jd);
+            if (aiStream != null) {
+                // 不匹配时AI只返回false，读到开头即可判断，无需等待生成结束
+                Tracer.Span aiDecisionSpan = Tracer.span("aiDecision", Tracer.Category.AI);
+                try {
+                    if (!aiStream.awaitDecision(60, TimeUnit.SECONDS)) {
+                        filterResult = new AiFilter(false);
+                        JobStore.recordVerdict(Platform.BOSS, job, filterResult);
+                        aiStream = null;
+                    }
+                } finally {
+                    aiDecisionSpan.close();
                 }
+            } else if (filterResult == null && config.getEnableAI()) {
+                // AI检测岗位是否匹配，上面已查过历史库和本地预筛
+                filterResult = checkJob(keyword, job.getJobName(), jd);
+                JobStore.recordVerdict(Platform.BOSS, job, filterResult);
+            }
+            // 发送成功后提前结束 span；提前返回或异常时在 finally 中结束，重复关闭无影响
+            Tracer.Span sendSpan = Tracer.span("send", Tracer.Category.WORK);
+            try {
                 btn.click();
-                if (isLimit()) {
-                    SeleniumUtil.sleep(1);
+                // 一次探测上限提示、安全提示弹窗和聊天输入框，任意一个出现即返回
+                Map<String, String> chatState = SeleniumUtil.awaitProbe(CHAT_STATE, CHAT_STATE_TIMEOUT_MILLIS);
+                if (isLimit(chatState)) {
+                    cancel(aiStream);
                     return -1;
                 }
                 try {
-                    try {
-                        CHROME_DRIVER.findElement(By.xpath("//div[@class='dialog-title']"));
-                        WebElement close =
-                                CHROME_DRIVER.findElement(By.xpath("//i[@class='icon-close']"));
-                        close.click();
-                        btn.click();
-                    } catch (Exception ignore) {
+                    if (chatState.containsKey("dialogTitle")) {
+                        try {
+                            CHROME_DRIVER.findElement(By.xpath("//i[@class='icon-close']")).click();
+                            btn.click();
+                        } catch (Exception ignore) {
+                        }
                     }
-                    WebElement input = WAIT.until(ExpectedConditions
-                            .presenceOfElementLocated(By.xpath("//div[@id='chat-input']")));
+                    WebElement input = Selectors.await(Platform.BOSS, "chatInput");
                     input.click();
-                    WebElement element =
-                            CHROME_DRIVER.findElement(By.xpath("//div[@class='dialog-container']"));
+                    WebElement element = Selectors.require(Platform.BOSS, "dialogContainer");
                     if ("不匹配".equals(element.getText())) {
-                        CHROME_DRIVER.close();
-                        CHROME_DRIVER.switchTo().window(tabs.getFirst());
-                        continue;
+                        Metrics.reject(Platform.BOSS, "mismatch");
+                        cancel(aiStream);
+                        return 0;
+                    }
+                    if (aiStream != null) {
+                        filterResult = streamGreeting(aiStream, input);
+                        JobStore.recordVerdict(Platform.BOSS, job, filterResult);
+                    } else {
+                        input.sendKeys(filterResult != null && filterResult.getResult()
+                                && isValidString(filterResult.getMessage()) ? filterResult.getMessage()
+                                        : config.getSayHi());
                     }
-                    input.sendKeys(filterResult != null && filterResult.getResult()
-                            && isValidString(filterResult.getMessage()) ? filterResult.getMessage()
-                                    : config.getSayHi());
-                    WebElement send = WAIT.until(ExpectedConditions
-                            .presenceOfElementLocated(By.xpath("//button[@type='send']")));
+                    WebElement send = Selectors.await(Platform.BOSS, "sendButton");
                     send.click();
-                    SeleniumUtil.sleep(3);
-                    WebElement recruiterNameElement = CHROME_DRIVER.findElement(
-                            By.xpath("//p[@class='base-info fl']/span[@class='name']"));
-                    WebElement recruiterTitleElement = CHROME_DRIVER.findElement(
-                            By.xpath("//p[@class='base-info fl']/span[@class='base-title']"));
+                    sendSpan.close();
+                    // 等待聊天页加载出招聘者信息
+                    WebElement recruiterNameElement = Selectors.await(Platform.BOSS, "recruiterName");
+                    WebElement recruiterTitleElement = Selectors.require(Platform.BOSS, "recruiterTitle");
                     String recruiter =
                             recruiterNameElement.getText() + " " + recruiterTitleElement.getText();
 
-                    WebElement companyElement = null;
-                    try {
-                        // 通过定位父元素后获取第二个 span 元素，获取公司名
-                        companyElement = CHROME_DRIVER
-                                .findElement(By.xpath("//p[@class='base-info fl']/span[2]"));
-                    } catch (Exception e) {
+                    // 通过定位父元素后获取第二个 span 元素，获取公司名
+                    WebElement companyElement = Selectors.find(Platform.BOSS, "recruiterCompany");
+                    if (companyElement == null) {
                         log.info("获取公司名异常！");
                     }
                     String company = null;
@@ -460,28 +745,66 @@ public class Boss {
                         company = companyElement.getText();
                         job.setCompanyName(company);
                     }
-                    WebElement positionNameElement = CHROME_DRIVER.findElement(By
-                            .xpath("//a[@class='position-content']/span[@class='position-name']"));
-                    WebElement salaryElement = CHROME_DRIVER.findElement(
-                            By.xpath("//a[@class='position-content']/span[@class='salary']"));
-                    WebElement cityElement = CHROME_DRIVER.findElement(
-                            By.xpath("//a[@class='position-content']/span[@class='city']"));
+                    WebElement positionNameElement = Selectors.require(Platform.BOSS, "positionName");
+                    WebElement salaryElement = Selectors.require(Platform.BOSS, "positionSalary");
+                    WebElement cityElement = Selectors.require(Platform.BOSS, "positionCity");
                     String position = positionNameElement.getText() + " " + salaryElement.getText()
                             + " " + cityElement.getText();
                     company = company == null ? "未知公司: " + job.getHref() : company;
-                    Boolean imgResume = sendResume(company);
-                    SeleniumUtil.sleep(2);
+                    Boolean imgResume;
+                    Tracer.Span resumeUploadSpan = Tracer.span("resumeUpload", Tracer.Category.WORK);
+                    try {
+                        imgResume = sendResume(company);
+                    } finally {
+                        resumeUploadSpan.close();
+                    }
+                    if (imgResume) {
+                        // 给图片上传留出时间，释放标签页会中断上传
+                        SeleniumUtil.sleep(2);
+                    }
                     log.info("正在投递【{}】公司，【{}】职位，招聘官:【{}】{}", company, position, recruiter,
                             imgResume ? "发送图片简历成功！" : "");
                     resultList.add(job);
+                    JobDeduplicator.record(job, Platform.BOSS);
+                    JobStore.recordDelivery(Platform.BOSS, job);
                     noJobPages = 0;
+                    return 1;
                 } catch (Exception e) {
                     log.error("发送消息失败:{}", e.getMessage(), e);
                 }
+            } finally {
+                sendSpan.close();
             }
-            closeWindow(tabs);
         }
-        return resultList.size();
+        cancel(aiStream);
+        return 0;
+    }
+
+    /**
+     * 优先使用预取到的JD，否则从岗位详情页读取
+     */
+    private static String jobDescription(Job job) {
+        return isValidString(job.getJobDescription()) ? job.getJobDescription()
+                : Selectors.require(Platform.BOSS, "jobDescription").getText();
+    }
+
+    /**
+     * 打招呼语边生成边写入聊天输入框；生成失败或内容中出现false时清空，改用默认招呼语
+     */
+    private static AiFilter streamGreeting(AiStream aiStream, WebElement input) {
+        String greeting = aiStream.drainTo(input::sendKeys, 60, TimeUnit.SECONDS);
+        if (!greeting.contains("false")) {
+            return new AiFilter(true, greeting);
+        }
+        input.sendKeys(Keys.chord(Keys.CONTROL, "a"), Keys.DELETE);
+        input.sendKeys(config.getSayHi());
+        return new AiFilter(false);
+    }
+
+    private static void cancel(AiStream aiStream) {
+        if (aiStream != null) {
+            aiStream.cancel();
+        }
     }
 
     public static boolean isValidString(String str) {
@@ -512,8 +835,7 @@ public class Boss {
             }
 
             // 使用 XPath 定位 <input type="file"> 元素
-            WebElement fileInput = CHROME_DRIVER
-                    .findElement(By.xpath("//div[@aria-label='发送图片']//input[@type='file']"));
+            WebElement fileInput = Selectors.require(Platform.BOSS, "imageInput");
 
             // 上传图片
             fileInput.sendKeys(imageFile.getAbsolutePath());
@@ -648,17 +970,19 @@ public class Boss {
         return maxSalary != null && jobSalary[0] > maxSalary;
     }
 
-    private static void RandomWait() {
-        SeleniumUtil.sleep(JobUtils.getRandomNumberInRange(3, 20));
-    }
-
-    private static void simulateWait() {
-        for (int i = 0; i < 3; i++) {
-            ACTIONS.sendKeys(" ").perform();
-            SeleniumUtil.sleep(1);
+    /**
+     * Boss的投递节奏，pacer 未配置 boss 的间隔时使用 waitTime
+     */
+    static Pacer pacer() {
+        double waitTime = 10; // 默认间隔10秒
+        if (config.getWaitTime() != null) {
+            try {
+                waitTime = Double.parseDouble(config.getWaitTime());
+            } catch (NumberFormatException e) {
+                log.error("等待时间转换异常！！");
+            }
         }
-        ACTIONS.keyDown(Keys.CONTROL).sendKeys(Keys.HOME).keyUp(Keys.CONTROL).perform();
-        SeleniumUtil.sleep(1);
+        return Pacer.of(Platform.BOSS, waitTime);
     }
 
 
@@ -666,17 +990,17 @@ public class Boss {
         if (!config.getFilterDeadHR()) {
             return false;
         }
-        try {
-            // 尝试获取 HR 的活跃时间
-            String activeTimeText = CHROME_DRIVER
-                    .findElement(By.xpath("//span[@class='boss-active-time']")).getText();
-            log.info("{}：{}", getCompanyAndHR(), activeTimeText);
-            // 如果 HR 活跃状态符合预期，则返回 true
-            return containsDeadStatus(activeTimeText, deadStatus);
-        } catch (Exception e) {
-            log.info("没有找到【{}】的活跃状态, 默认此岗位将会投递...", getCompanyAndHR());
+        // 一次读取 HR 的活跃时间和公司、职位信息
+        Map<String, String> hrState = SeleniumUtil.probe(HR_STATE);
+        String companyAndHR = hrState.getOrDefault("bossInfo", "").replaceAll("\n", "");
+        String activeTimeText = hrState.get("activeTime");
+        if (activeTimeText == null) {
+            log.info("没有找到【{}】的活跃状态, 默认此岗位将会投递...", companyAndHR);
             return false;
         }
+        log.info("{}：{}", companyAndHR, activeTimeText);
+        // 如果 HR 活跃状态符合预期，则返回 true
+        return containsDeadStatus(activeTimeText, deadStatus);
     }
 
     public static boolean containsDeadStatus(String activeTimeText, List<String> deadStatus) {
@@ -688,25 +1012,102 @@ public class Boss {
         return false;// 如果没有找到，返回 false
     }
 
-    private static String getCompanyAndHR() {
-        return CHROME_DRIVER.findElement(By.xpath("//div[@class='boss-info-attr']")).getText()
-                .replaceAll("\n", "");
+
+    /**
+     * AI检测岗位，优先复用岗位历史库中之前的检测结果
+     */
+    static AiFilter evaluateJob(String keyword, Job job, String jd) {
+        AiFilter filterResult = JobStore.findVerdict(Platform.BOSS, job);
+        if (filterResult == null) {
+            filterResult = prefilter(job, jd);
+        }
+        if (filterResult == null) {
+            filterResult = checkJob(keyword, job.getJobName(), jd);
+            JobStore.recordVerdict(Platform.BOSS, job, filterResult);
+        }
+        return filterResult;
     }
 
-    private static void closeWindow(ArrayList<String> tabs) {
-        SeleniumUtil.sleep(1);
-        CHROME_DRIVER.close();
-        CHROME_DRIVER.switchTo().window(tabs.get(0));
+    /**
+     * 本地相关度预筛，明显不相关或高度相关的岗位不再请求AI
+     * <p>
+     * 本地判断计算很快，结果不写入岗位历史库，调整 rejectScore、acceptScore 后按新阈值重新判断。
+     * 与 {@link BossPlanner} 的排序一样按岗位名加JD评分。
+     *
+     * @return 本地判断结果，不相关时返回 {@link AiFilter#skip()}，需要AI判断时返回 null
+     */
+    static AiFilter prefilter(Job job, String jd) {
+        RelevanceScorer scorer = relevanceScorer();
+        scorer.observe(job.getHref(), jd);
+        RelevanceScorer.Band band = scorer.classify(job.getJobName(), jd);
+        Metrics.RELEVANCE.inc(Platform.BOSS.name(), band.name().toLowerCase());
+        return switch (band) {
+            case REJECT -> AiFilter.skip();
+            case ACCEPT -> new AiFilter(true);
+            case AMBIGUOUS -> null;
+        };
     }
 
-    private static AiFilter checkJob(String keyword, String jobName, String jd) {
-        AiConfig aiConfig = AiConfig.init();
-        String requestMessage = String.format(aiConfig.getPrompt(), aiConfig.getIntroduce(),
-                keyword, jobName, jd, config.getSayHi());
-        String result = AiService.sendRequest(requestMessage);
+    static synchronized RelevanceScorer relevanceScorer() {
+        if (relevanceScorer == null) {
+            AiConfig aiConfig = AiConfig.init();
+            relevanceScorer = new RelevanceScorer(aiConfig.getIntroduce(), config.getKeywords(),
+                    aiConfig.getRejectScore(), aiConfig.getAcceptScore());
+        }
+        return relevanceScorer;
+    }
+
+    /**
+     * 批量AI检测已预取到JD的岗位，已有检测结果的岗位直接复用
+     *
+     * @return 岗位链接到检测结果的映射，未得到结果的岗位不在其中，投递时再单独检测
+     */
+    static Map<String, AiFilter> evaluateJobs(String keyword, List<Job> jobs) {
+        Map<String, AiFilter> verdicts = new HashMap<>();
+        AiBatchEvaluator evaluator = AiBatchEvaluator.get(Platform.BOSS);
+        if (!evaluator.isEnabled()) {
+            return verdicts;
+        }
+        List<Job> pending = new ArrayList<>();
+        for (Job job : jobs) {
+            AiFilter cached = JobStore.findVerdict(Platform.BOSS, job);
+            if (cached == null && isValidString(job.getJobDescription())) {
+                cached = prefilter(job, job.getJobDescription());
+                if (cached == null) {
+                    pending.add(job);
+                }
+            }
+            if (cached != null) {
+                verdicts.put(job.getHref(), cached);
+            }
+        }
+        if (pending.isEmpty()) {
+            return verdicts;
+        }
+        List<AiFilter> results = evaluator.evaluate(keyword, config.getSayHi(), pending.stream()
+                .map(job -> new AiBatchEvaluator.Item(job.getJobName(), job.getJobDescription())).toList());
+        for (int i = 0; i < pending.size(); i++) {
+            Job job = pending.get(i);
+            AiFilter result = results.get(i);
+            if (result != null) {
+                verdicts.put(job.getHref(), result);
+                JobStore.recordVerdict(Platform.BOSS, job, result);
+            }
+        }
+        return verdicts;
+    }
+
+    static AiFilter checkJob(String keyword, String jobName, String jd) {
+        String result = AiService.sendRequest(aiPrompt(keyword, jobName, jd));
         return result.contains("false") ? new AiFilter(false) : new AiFilter(true, result);
     }
 
+    private static String aiPrompt(String keyword, String jobName, String jd) {
+        AiConfig aiConfig = AiConfig.init();
+        return String.format(aiConfig.getPrompt(), aiConfig.getIntroduce(), keyword, jobName, jd,
+                config.getSayHi());
+    }
+
     private static boolean isTargetJob(String keyword, String jobName) {
         boolean keywordIsAI = false;
         for (String target : new String[] {"大模型", "AI"}) {
@@ -753,21 +1154,22 @@ public class Boss {
         return null;
     }
 
-    private static boolean isLimit() {
-        try {
-            SeleniumUtil.sleep(1);
-            String text = CHROME_DRIVER.findElement(By.className("dialog-con")).getText();
-            return text.contains("已达上限");
-        } catch (Exception e) {
-            return false;
-        }
+    /**
+     * 当前页面是否为异常访问提示页
+     */
+    private static boolean isAccessBlocked() {
+        return SeleniumUtil.probe(ACCESS_STATE).getOrDefault("error", "").contains("异常访问");
+    }
+
+    private static boolean isLimit(Map<String, String> chatState) {
+        return chatState.getOrDefault("limit", "").contains("已达上限");
     }
 
     @SneakyThrows
-    private static void login() {
+    static void login() {
         log.info("打开Boss直聘网站中...");
         CHROME_DRIVER.get(homeUrl);
-        if (SeleniumUtil.isCookieValid(cookiePath)) {
+        if (SeleniumUtil.isCookieValid(Platform.BOSS, cookiePath)) {
             SeleniumUtil.loadCookie(cookiePath);
             CHROME_DRIVER.navigate().refresh();
             SeleniumUtil.sleep(2);
@@ -780,20 +1182,22 @@ public class Boss {
 
 
     private static boolean isLoginRequired() {
-        try {
-            String text = CHROME_DRIVER.findElement(By.className("btns")).getText();
-            return text != null && text.contains("登录");
-        } catch (Exception e) {
+        Map<String, SeleniumUtil.Found> loginState = SeleniumUtil.probeElements(LOGIN_STATE);
+        if (loginState.containsKey("btns")) {
+            return loginState.get("btns").text().contains("登录");
+        }
+        if (loginState.containsKey("title") && loginState.containsKey("login403")) {
             try {
-                CHROME_DRIVER.findElement(By.xpath("//h1")).getText();
-                CHROME_DRIVER.findElement(By.xpath("//a[@ka='403_login']")).click();
+                loginState.get("login403").element().click();
                 return true;
-            } catch (Exception ex) {
-                log.info("没有出现403访问异常");
+            } catch (Exception e) {
+                log.error("点击403页面的登录链接失败: {}", e.getMessage());
             }
-            log.info("cookie有效，已登录...");
-            return false;
+        } else {
+            log.info("没有出现403访问异常");
         }
+        log.info("cookie有效，已登录...");
+        return false;
     }
 
     @SneakyThrows
@@ -93,6 +93,21 @@ public class BossConfig {
      */
     private String waitTime;
 
+    /**
+     * 岗位详情预取并发数，0为关闭
+     */
+    private Integer prefetchConcurrency;
+
+    /**
+     * 是否先汇总全部城市、关键词的岗位，按评分只投递得分最高的岗位
+     */
+    private Boolean plan;
+
+    /**
+     * 每日可发起聊天的上限，规划投递时用于计算剩余额度
+     */
+    private Integer dailyLimit;
+
     @SneakyThrows
     public static BossConfig init() {
         BossConfig config = JobUtils.getConfig(BossConfig.class);
@@ -125,6 +140,12 @@ public class BossConfig {
         config.setIndustry(config.getIndustry().stream()
                 .map(value -> BossEnum.Industry.forValue(value).getCode())
                 .collect(Collectors.toList()));
+        if (config.getPlan() == null) {
+            config.setPlan(false);
+        }
+        if (config.getDailyLimit() == null || config.getDailyLimit() <= 0) {
+            config.setDailyLimit(100);
+        }
 
         return config;
     }
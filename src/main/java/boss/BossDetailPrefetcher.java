@@ -0,0 +1,134 @@
+package boss;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import utils.Job;
+import utils.Metrics;
+import utils.Platform;
+
+import java.util.*;
+
+import static utils.Constant.CHROME_DRIVER;
+
+/**
+ * @author loks666 项目链接:
+ *         <a href="https://github.com/loks666/get_jobs">https://github.com/loks666/get_jobs</a>
+ *         Boss岗位详情预取：在搜索页上下文中并发 fetch 整页岗位的详情文档， 提取HR活跃状态与JD，在打开标签页之前过滤掉不活跃HR和黑名单岗位
+ */
+public class BossDetailPrefetcher {
+    private static final Logger log = LoggerFactory.getLogger(BossDetailPrefetcher.class);
+
+    /**
+     * 在页面中执行的异步脚本：限制并发数的 fetch 工作池，解析详情文档后回传结果
+     */
+    private static final String PREFETCH_SCRIPT = """
+            var hrefs = arguments[0], limit = arguments[1], done = arguments[arguments.length - 1];
+            var results = {}, next = 0;
+            function text(doc, selector) {
+                var el = doc.querySelector(selector);
+                if (!el) return null;
+                el.querySelectorAll('br').forEach(function (br) { br.replaceWith('\\n'); });
+                return el.textContent.trim();
+            }
+            function parse(html) {
+                var doc = new DOMParser().parseFromString(html, 'text/html');
+                return {
+                    activeTime: text(doc, 'span.boss-active-time'),
+                    jd: text(doc, 'div.job-sec-text'),
+                    recruiter: text(doc, 'div.job-boss-info h2.name'),
+                    company: text(doc, 'div.sider-company div.company-info a[ka="job-detail-company_custompage"]'),
+                    blocked: !!doc.querySelector('div.error-content')
+                };
+            }
+            function worker() {
+                if (next >= hrefs.length) return Promise.resolve();
+                var href = hrefs[next++];
+                return fetch(href, {credentials: 'include'})
+                    .then(function (r) { return r.text(); })
+                    .then(function (html) { results[href] = parse(html); })
+                    .catch(function (e) { results[href] = {error: String(e)}; })
+                    .then(worker);
+            }
+            var workers = [];
+            for (var i = 0; i < Math.min(limit, hrefs.length); i++) workers.push(worker());
+            Promise.all(workers).then(function () { done(results); });
+            """;
+
+    /**
+     * 预取岗位详情，补全JD与HR活跃状态，并剔除不活跃HR及黑名单岗位
+     *
+     * @param jobs 当前页待投递岗位
+     * @param config Boss配置
+     * @return 过滤后的岗位列表；预取失败的岗位原样保留，由标签页流程兜底
+     */
+    public static List<Job> prefetch(List<Job> jobs, BossConfig config) {
+        Integer concurrency = config.getPrefetchConcurrency();
+        if (jobs.isEmpty() || concurrency == null || concurrency <= 0) {
+            return jobs;
+        }
+        Map<String, Map<String, Object>> details = fetchDetails(jobs, concurrency);
+        if (details.isEmpty()) {
+            return jobs;
+        }
+        List<Job> result = new ArrayList<>();
+        int fetched = 0;
+        int dropped = 0;
+        for (Job job : jobs) {
+            Map<String, Object> detail = details.get(job.getHref());
+            if (detail == null || detail.containsKey("error") || Boolean.TRUE.equals(detail.get("blocked"))) {
+                result.add(job);
+                continue;
+            }
+            fetched++;
+            job.setHrActiveTime((String) detail.get("activeTime"));
+            job.setJobDescription((String) detail.get("jd"));
+            String reason = rejectReason(job, (String) detail.get("company"),
+                    (String) detail.get("recruiter"), config);
+            if (reason != null) {
+                log.info("预取过滤:【{}】公司【{}】岗位，原因：{}", job.getCompanyName(), job.getJobName(), reason);
+                dropped++;
+                continue;
+            }
+            result.add(job);
+        }
+        log.info("岗位详情预取完成：共{}个岗位，预取成功{}个，过滤{}个", jobs.size(), fetched, dropped);
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Map<String, Object>> fetchDetails(List<Job> jobs, int concurrency) {
+        List<String> hrefs = jobs.stream().map(Job::getHref).filter(Objects::nonNull).toList();
+        Map<String, Map<String, Object>> details = new HashMap<>();
+        try {
+            Object result = CHROME_DRIVER.executeAsyncScript(PREFETCH_SCRIPT, hrefs, concurrency);
+            if (result instanceof Map<?, ?> map) {
+                map.forEach((href, detail) -> {
+                    if (detail instanceof Map<?, ?>) {
+                        details.put(String.valueOf(href), (Map<String, Object>) detail);
+                    }
+                });
+            }
+        } catch (Exception e) {
+            log.error("岗位详情预取失败，将逐个打开标签页处理: {}", e.getMessage());
+        }
+        return details;
+    }
+
+    private static String rejectReason(Job job, String company, String recruiter, BossConfig config) {
+        String activeTime = job.getHrActiveTime();
+        if (config.getFilterDeadHR() && activeTime != null
+                && Boss.containsDeadStatus(activeTime, Boss.deadStatus)) {
+            Metrics.reject(Platform.BOSS, "dead_hr");
+            return "HR" + activeTime;
+        }
+        if (company != null && Boss.blackCompanies.stream().anyMatch(company::contains)) {
+            Metrics.reject(Platform.BOSS, "blacklist_company");
+            return "黑名单公司";
+        }
+        if (recruiter != null && Boss.blackRecruiters.stream().anyMatch(recruiter::contains)) {
+            Metrics.reject(Platform.BOSS, "blacklist_recruiter");
+            return "黑名单招聘者";
+        }
+        return null;
+    }
+}
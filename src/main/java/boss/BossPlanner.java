@@ -0,0 +1,253 @@
+package boss;
+
+import ai.RelevanceScorer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import utils.Job;
+import utils.JobDeduplicator;
+import utils.JobStore;
+import utils.Metrics;
+import utils.Platform;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @author loks666 项目链接:
+ *         <a href="https://github.com/loks666/get_jobs">https://github.com/loks666/get_jobs</a>
+ *         Boss投递规划：先汇总全部城市×关键词×页码的候选岗位，按薪资匹配度、关键词相关度、HR活跃度和公司情况打分，
+ *         用容量为剩余额度的小顶堆只保留得分最高的岗位，最后按得分从高到低投递，每日沟通额度优先留给最好的岗位
+ */
+public class BossPlanner {
+    private static final Logger log = LoggerFactory.getLogger(BossPlanner.class);
+
+    private static final double SALARY_WEIGHT = 0.35;
+    private static final double RELEVANCE_WEIGHT = 0.35;
+    private static final double ACTIVITY_WEIGHT = 0.2;
+    private static final double COMPANY_WEIGHT = 0.1;
+    /**
+     * 未知项的得分，既不加分也不扣分
+     */
+    private static final double UNKNOWN = 0.5;
+    /**
+     * JD与画像的余弦相似度达到该值即视为完全相关，TF-IDF 相似度很少超过0.5
+     */
+    private static final double RELEVANCE_SATURATION = 0.5;
+    /**
+     * 活跃状态文字不在已知列表中时的得分，这类文字多为更久以前的状态，低于所有已知的近期状态
+     */
+    private static final double UNLISTED_ACTIVITY = 0.05;
+    /**
+     * 未配置期望薪资时用作参照的月薪（K）
+     */
+    private static final int DEFAULT_SALARY = 20;
+    /**
+     * 达到期望最低薪资时的得分，低于期望的岗位得分都在此之下
+     */
+    private static final double SALARY_MET = 0.6;
+    private static final Pattern BONUS_PATTERN = Pattern.compile("·(\\d+)薪");
+    private static final Pattern RANGE_PATTERN = Pattern.compile("(\\d+)(?:-(\\d+))?");
+
+    /**
+     * HR活跃状态对应的得分，按从近到远的顺序用包含关系匹配，“本月活跃”要排在“月内活跃”之前
+     */
+    private static final Map<String, Double> ACTIVITY_SCORES = new LinkedHashMap<>();
+    /**
+     * 公司融资阶段、规模对应的得分
+     */
+    private static final Map<String, Double> STAGE_SCORES = new LinkedHashMap<>();
+    private static final Map<String, Double> SCALE_SCORES = new LinkedHashMap<>();
+
+    static {
+        ACTIVITY_SCORES.put("在线", 1.0);
+        ACTIVITY_SCORES.put("刚刚活跃", 1.0);
+        ACTIVITY_SCORES.put("今日活跃", 0.9);
+        ACTIVITY_SCORES.put("3日内活跃", 0.75);
+        ACTIVITY_SCORES.put("本周活跃", 0.6);
+        ACTIVITY_SCORES.put("2周内活跃", 0.45);
+        ACTIVITY_SCORES.put("本月活跃", 0.3);
+        ACTIVITY_SCORES.put("月内活跃", 0.15);
+        ACTIVITY_SCORES.put("半年内活跃", 0.05);
+        ACTIVITY_SCORES.put("近半年活跃", 0.05);
+        ACTIVITY_SCORES.put("半年前活跃", 0.0);
+
+        STAGE_SCORES.put("已上市", 1.0);
+        STAGE_SCORES.put("不需要融资", 0.8);
+        STAGE_SCORES.put("D轮及以上", 0.9);
+        STAGE_SCORES.put("C轮", 0.8);
+        STAGE_SCORES.put("B轮", 0.6);
+        STAGE_SCORES.put("A轮", 0.5);
+        STAGE_SCORES.put("天使轮", 0.3);
+        STAGE_SCORES.put("未融资", 0.3);
+
+        SCALE_SCORES.put("10000人以上", 1.0);
+        SCALE_SCORES.put("1000-9999人", 0.9);
+        SCALE_SCORES.put("500-999人", 0.7);
+        SCALE_SCORES.put("100-499人", 0.5);
+        SCALE_SCORES.put("20-99人", 0.3);
+        SCALE_SCORES.put("0-20人", 0.2);
+    }
+
+    /**
+     * 候选岗位
+     *
+     * @param keyword 搜到该岗位的关键词，投递时用于AI检测
+     * @param job 岗位
+     * @param score 0~1 之间的综合得分
+     */
+    public record Candidate(String keyword, Job job, double score) {
+    }
+
+    private final int capacity;
+    private final List<Integer> expectedSalary;
+    private final RelevanceScorer scorer;
+    private final PriorityQueue<Candidate> heap =
+            new PriorityQueue<>(Comparator.comparingDouble(Candidate::score));
+    /**
+     * 已评分的岗位，同一岗位会被多个关键词、城市搜到
+     */
+    private final Set<String> seen = new HashSet<>();
+    private int offered;
+
+    /**
+     * @param capacity 最多保留的岗位数
+     * @param expectedSalary 期望薪资范围（K），可为空
+     * @param scorer 关键词相关度评分器
+     */
+    public BossPlanner(int capacity, List<Integer> expectedSalary, RelevanceScorer scorer) {
+        this.capacity = Math.max(capacity, 0);
+        this.expectedSalary = expectedSalary;
+        this.scorer = scorer;
+    }
+
+    /**
+     * 给岗位打分，得分进入前 capacity 名时保留，已投递过、与其他平台重复或已评分过的岗位忽略
+     *
+     * @return 是否保留
+     */
+    public boolean offer(String keyword, Job job) {
+        if (capacity == 0 || job.getHref() == null || !seen.add(job.getHref())) {
+            return false;
+        }
+        if (JobStore.isDelivered(Platform.BOSS, job)) {
+            Metrics.reject(Platform.BOSS, "delivered");
+            return false;
+        }
+        if (JobDeduplicator.isDuplicate(job, Platform.BOSS)) {
+            return false;
+        }
+        offered++;
+        Candidate candidate = new Candidate(keyword, job, score(job));
+        if (heap.size() < capacity) {
+            heap.add(candidate);
+            return true;
+        }
+        if (candidate.score() <= heap.peek().score()) {
+            return false;
+        }
+        heap.poll();
+        heap.add(candidate);
+        return true;
+    }
+
+    /**
+     * 按得分从高到低返回保留的岗位
+     */
+    public List<Candidate> plan() {
+        List<Candidate> candidates = new ArrayList<>(heap);
+        candidates.sort(Comparator.comparingDouble(Candidate::score).reversed());
+        log.info("共评估{}个候选岗位，保留得分最高的{}个", offered, candidates.size());
+        for (Candidate candidate : candidates) {
+            log.debug("{} 【{}】{} {}", String.format("%.3f", candidate.score()), candidate.job().getCompanyName(),
+                    candidate.job().getJobName(), candidate.job().getSalary());
+        }
+        return candidates;
+    }
+
+    double score(Job job) {
+        return SALARY_WEIGHT * salaryScore(job.getSalary())
+                + RELEVANCE_WEIGHT * relevanceScore(job)
+                + ACTIVITY_WEIGHT * activityScore(job.getHrActiveTime())
+                + COMPANY_WEIGHT * companyScore(job.getCompanyInfo());
+    }
+
+    /**
+     * 薪资匹配度，按月薪中位数（含年终奖月数）计算：低于期望最低薪资视为不匹配，按差距的平方扣分，排在所有达到期望的岗位之后；
+     * 达到期望后随薪资升高，到期望最高薪资（未配置时为最低薪资的两倍）得满分
+     */
+    double salaryScore(String salary) {
+        Double monthly = monthlySalary(salary);
+        if (monthly == null) {
+            return UNKNOWN;
+        }
+        boolean configured = expectedSalary != null && !expectedSalary.isEmpty();
+        double min = configured ? expectedSalary.get(0) : DEFAULT_SALARY;
+        double max = configured && expectedSalary.size() > 1 && expectedSalary.get(1) > min ? expectedSalary.get(1)
+                : 2 * min;
+        if (monthly < min) {
+            double ratio = monthly / min;
+            return SALARY_MET * ratio * ratio;
+        }
+        return Math.min(1, SALARY_MET + (1 - SALARY_MET) * (monthly - min) / (max - min));
+    }
+
+    private double relevanceScore(Job job) {
+        if (scorer == null) {
+            return UNKNOWN;
+        }
+        String jd = Objects.toString(job.getJobDescription(), "");
+        scorer.observe(job.getHref(), jd);
+        return Math.min(1, scorer.score(job.getJobName(), jd) / RELEVANCE_SATURATION);
+    }
+
+    static double activityScore(String activeTime) {
+        if (activeTime == null || activeTime.isBlank()) {
+            return UNKNOWN;
+        }
+        return match(ACTIVITY_SCORES, activeTime, UNLISTED_ACTIVITY);
+    }
+
+    static double companyScore(String companyInfo) {
+        if (companyInfo == null || companyInfo.isBlank()) {
+            return UNKNOWN;
+        }
+        return (match(STAGE_SCORES, companyInfo, UNKNOWN) + match(SCALE_SCORES, companyInfo, UNKNOWN)) / 2;
+    }
+
+    /**
+     * 把 "15-25K·13薪"、"200-300元/天" 换算成平均月薪（K），无法解析时返回null
+     */
+    static Double monthlySalary(String salary) {
+        if (salary == null) {
+            return null;
+        }
+        int months = 12;
+        Matcher bonus = BONUS_PATTERN.matcher(salary);
+        if (bonus.find()) {
+            months = Integer.parseInt(bonus.group(1));
+        }
+        Matcher range = RANGE_PATTERN.matcher(salary);
+        if (!range.find()) {
+            return null;
+        }
+        double low = Double.parseDouble(range.group(1));
+        double high = range.group(2) == null ? low : Double.parseDouble(range.group(2));
+        double middle = (low + high) / 2;
+        if (salary.contains("元/天")) {
+            middle = middle * 21.75 / 1000;
+        } else if (!salary.contains("K") && !salary.contains("k")) {
+            return null;
+        }
+        return middle * months / 12;
+    }
+
+    private static double match(Map<String, Double> scores, String text, double fallback) {
+        for (Map.Entry<String, Double> entry : scores.entrySet()) {
+            if (text.contains(entry.getKey())) {
+                return entry.getValue();
+            }
+        }
+        return fallback;
+    }
+}
@@ -0,0 +1,133 @@
+package boss;
+
+import ai.AiFilter;
+import org.openqa.selenium.support.ui.WebDriverWait;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import utils.Job;
+import utils.JobDeduplicator;
+import utils.JobPlatform;
+import utils.JobStore;
+import utils.Metrics;
+import utils.Platform;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import static utils.Constant.CHROME_DRIVER;
+import static utils.Constant.DRIVER_LOCK;
+
+/**
+ * @author loks666 项目链接:
+ *         <a href="https://github.com/loks666/get_jobs">https://github.com/loks666/get_jobs</a>
+ *         Boss直聘流水线适配：复用 {@link Boss} 的提取与投递逻辑，AI检测移到可并发的过滤阶段
+ */
+public class BossPlatform implements JobPlatform {
+    private static final Logger log = LoggerFactory.getLogger(BossPlatform.class);
+
+    /**
+     * 过滤阶段得到的AI检测结果，投递时直接使用，key为岗位链接
+     */
+    private final Map<String, AiFilter> verdicts = new ConcurrentHashMap<>();
+
+    @Override
+    public Platform platform() {
+        return Platform.BOSS;
+    }
+
+    @Override
+    public void login() {
+        Boss.loadData(Boss.dataPath);
+        Boss.startDate = new Date();
+        Boss.login();
+    }
+
+    @Override
+    public List<SearchTask> search() {
+        List<SearchTask> tasks = new ArrayList<>();
+        for (String cityCode : Boss.config.getCityCode()) {
+            String searchUrl = Boss.getSearchUrl(cityCode);
+            for (String keyword : Boss.config.getKeywords()) {
+                tasks.add(new SearchTask(keyword, searchUrl));
+            }
+        }
+        return tasks;
+    }
+
+    @Override
+    public void extract(SearchTask task, Consumer<Job> sink, BooleanSupplier stopped) {
+        int noJobPages = 0;
+        for (int page = 1; page <= Boss.maxPages && !stopped.getAsBoolean(); page++) {
+            List<Job> jobs;
+            DRIVER_LOCK.lock();
+            try {
+                String url = task.url() + "&page=" + page + "&query=" + task.keyword();
+                log.info("提取【{}】关键词第【{}】页，页面url：{}", task.keyword(), page, url);
+                CHROME_DRIVER.get(url);
+                jobs = Boss.isJobsPresent(new WebDriverWait(CHROME_DRIVER, 40))
+                        ? Boss.extractJobs(task.keyword())
+                        : null;
+            } finally {
+                DRIVER_LOCK.unlock();
+            }
+            if (jobs == null) {
+                if (++noJobPages >= Boss.noJobMaxPages) {
+                    log.info("【{}】关键词已经连续【{}】页无岗位，结束该关键词的提取...", task.keyword(), noJobPages);
+                    return;
+                }
+                continue;
+            }
+            noJobPages = 0;
+            jobs.forEach(sink);
+        }
+    }
+
+    @Override
+    public boolean filter(SearchTask task, Job job) {
+        if (JobStore.isDelivered(Platform.BOSS, job)) {
+            Metrics.reject(Platform.BOSS, "delivered");
+            return false;
+        }
+        if (JobDeduplicator.isDuplicate(job, Platform.BOSS)) {
+            return false;
+        }
+        if (Boss.config.getEnableAI() && Boss.isValidString(job.getJobDescription())) {
+            AiFilter verdict = Boss.evaluateJob(task.keyword(), job, job.getJobDescription());
+            if (verdict.isSkip()) {
+                Metrics.reject(Platform.BOSS, "irrelevant");
+                return false;
+            }
+            verdicts.put(job.getHref(), verdict);
+        }
+        return true;
+    }
+
+    @Override
+    public DeliveryResult deliver(SearchTask task, Job job) {
+        int status;
+        // 在获取浏览器锁之前等待投递间隔，等待期间其他阶段可以继续使用浏览器
+        Boss.pacer().acquire();
+        DRIVER_LOCK.lock();
+        try {
+            status = Boss.deliverJob(task.keyword(), job, verdicts.remove(job.getHref()), false);
+        } finally {
+            DRIVER_LOCK.unlock();
+        }
+        return switch (status) {
+            case 1 -> DeliveryResult.DELIVERED;
+            case -1 -> DeliveryResult.LIMIT;
+            case -2 -> DeliveryResult.BLOCKED;
+            default -> DeliveryResult.SKIPPED;
+        };
+    }
+
+    @Override
+    public void finish() {
+        Boss.printResult(false);
+    }
+}
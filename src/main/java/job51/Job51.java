@@ -5,12 +5,23 @@ import org.openqa.selenium.*;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import utils.Checkpoint;
+import utils.CircuitBreaker;
+import utils.DriverMetrics;
+import utils.Job;
+import utils.JobDeduplicator;
+import utils.JobStore;
 import utils.JobUtils;
+import utils.Metrics;
+import utils.Platform;
+import utils.Selectors;
 import utils.SeleniumUtil;
+import utils.Tracer;
 
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import static utils.Bot.sendMessageByTime;
 import static utils.Constant.*;
@@ -34,13 +45,114 @@ public class Job51 {
     static List<String> resultList = new ArrayList<>();
     static Job51Config config = Job51Config.init();
     static Date startDate;
+    static Checkpoint<String> checkpoint;
+    private static final CircuitBreaker breaker = CircuitBreaker.of(Platform.JOB51);
+    /**
+     * 连续出现访问验证、熔断后不再恢复，结束本次运行
+     */
+    static boolean blocked;
+
+    /**
+     * 快速模式下翻页使用的URL参数
+     */
+    private static final String PAGE_PARAM = "pageNum";
+    private static final int DIALOG_TIMEOUT_SECONDS = 10;
+    /**
+     * 访问验证弹窗的标题
+     */
+    private static final Map<String, String> ANOMALY_STATE = Map.of("verify", "//p[@class='waf-nc-title']");
+
+    /**
+     * 读取整页岗位：按顺序对应复选框、岗位名、公司名和薪资，已勾选的跳过
+     */
+    private static final String COLLECT_SCRIPT = """
+            var boxes = document.querySelectorAll('div.ick');
+            var titles = document.querySelectorAll("[class*='jname text-cut']");
+            var companies = document.querySelectorAll("[class*='cname text-cut']");
+            var cards = [];
+            for (var i = 0; i < boxes.length && i < titles.length && i < companies.length; i++) {
+                if (boxes[i].classList.contains('active')) continue;
+                var item = boxes[i].closest('.joblist-item') || boxes[i].parentElement;
+                var salary = item ? item.querySelector("[class*='sal']") : null;
+                cards.push({
+                    index: i,
+                    title: titles[i].textContent.trim(),
+                    company: companies[i].textContent.trim(),
+                    salary: salary ? salary.textContent.trim() : null
+                });
+            }
+            return cards;
+            """;
+
+    /**
+     * 按序号勾选岗位
+     */
+    private static final String SELECT_SCRIPT = """
+            var boxes = document.querySelectorAll('div.ick');
+            arguments[0].forEach(function (i) { if (boxes[i]) boxes[i].click(); });
+            """;
+
+    private static final String CURRENT_PAGE_SCRIPT = """
+            var active = document.querySelector('.el-pager li.active, .el-pager li.is-active');
+            return active ? active.textContent.trim() : null;
+            """;
+
+    /**
+     * 监听页面变化，投递成功弹窗或单独申请弹窗出现时立即返回
+     */
+    private static final String WAIT_DIALOG_SCRIPT = """
+            var timeout = arguments[0], done = arguments[arguments.length - 1], finished = false;
+            function check() {
+                var success = document.querySelector('div.successContent');
+                if (success && success.offsetParent !== null) return 'success';
+                var body = document.querySelector('div.el-dialog__body span');
+                if (body && body.textContent.indexOf('需要到企业招聘平台单独申请') >= 0) return 'separate';
+                return null;
+            }
+            function finish(result) {
+                if (finished) return;
+                finished = true;
+                observer.disconnect();
+                done(result);
+            }
+            var observer = new MutationObserver(function () {
+                var result = check();
+                if (result) finish(result);
+            });
+            observer.observe(document.body, {childList: true, subtree: true, attributes: true});
+            var initial = check();
+            if (initial) finish(initial);
+            setTimeout(function () { finish('timeout'); }, timeout);
+            """;
 
     public static void main(String[] args) {
         String searchUrl = getSearchUrl();
         SeleniumUtil.initDriver();
         startDate = new Date();
+        checkpoint = Checkpoint.resume(Platform.JOB51, String.class, List.of(Checkpoint.NO_CITY),
+                config.getKeywords());
+        resultList.addAll(checkpoint.getResults());
         Login();
-        config.getKeywords().forEach(keyword -> resume(searchUrl + "&keyword=" + keyword));
+        for (String keyword : config.getKeywords()) {
+            if (checkpoint.isDone(Checkpoint.NO_CITY, keyword)) {
+                log.info("关键词【{}】上次已投递完，跳过", keyword);
+                continue;
+            }
+            int startPage = checkpoint.startPage(Checkpoint.NO_CITY, keyword);
+            if (config.getFastMode()) {
+                resumeFast(keyword, searchUrl + "&keyword=" + keyword, startPage);
+            } else {
+                resume(keyword, searchUrl + "&keyword=" + keyword, startPage);
+            }
+            if (blocked) {
+                // 连续出现访问验证，保留断点，下次运行从当前关键词继续
+                break;
+            }
+            checkpoint.keywordDone(Checkpoint.NO_CITY, keyword, maxPage, resultList);
+        }
+        if (!blocked) {
+            checkpoint.clear();
+        }
         printResult();
     }
 
@@ -49,7 +161,16 @@ public class Job51 {
                 formatDuration(startDate, new Date()));
         log.info(message);
         sendMessageByTime(message);
+        log.info(JobStore.report(Platform.JOB51, startDate));
+        log.info(DriverMetrics.report(Platform.JOB51, 10));
+        log.info(Selectors.report(Platform.JOB51));
+        Selectors.save();
+        DriverMetrics.reset(Platform.JOB51);
+        log.info(Tracer.report(Platform.JOB51));
+        Tracer.export(Platform.JOB51);
+        Metrics.runFinished(Platform.JOB51, startDate);
         resultList.clear();
+        SeleniumUtil.closeWorkerTabs();
         CHROME_DRIVER.close();
         CHROME_DRIVER.quit();
     }
@@ -61,7 +182,7 @@ public class Job51 {
 
     private static void Login() {
         CHROME_DRIVER.get(homeUrl);
-        if (SeleniumUtil.isCookieValid(cookiePath)) {
+        if (SeleniumUtil.isCookieValid(Platform.JOB51, cookiePath)) {
             SeleniumUtil.loadCookie(cookiePath);
             CHROME_DRIVER.navigate().refresh();
             SeleniumUtil.sleep(1);
@@ -83,7 +204,7 @@ public class Job51 {
     }
 
     @SneakyThrows
-    private static void resume(String url) {
+    private static void resume(String keyword, String url, int startPage) {
         CHROME_DRIVER.get(url);
         SeleniumUtil.sleep(1);
 
@@ -108,9 +229,14 @@ public class Job51 {
         try {
             CHROME_DRIVER.findElements(By.className("ss")).get(i).click();
         } catch (Exception e) {
-            findAnomaly();
+            if (findAnomaly()) {
+                if (blocked) {
+                    return;
+                }
+                CHROME_DRIVER.navigate().refresh();
+            }
         }
-        for (int j = page; j <= maxPage; j++) {
+        for (int j = startPage; j <= maxPage; j++) {
             while (true) {
                 try {
                     WebElement mytxt = WAIT.until(
@@ -128,11 +254,144 @@ public class Job51 {
                 } catch (Exception e) {
                     log.error("mytxt.clear()可能异常...");
                     SeleniumUtil.sleep(1);
-                    findAnomaly();
+                    if (findAnomaly() && blocked) {
+                        return;
+                    }
                     CHROME_DRIVER.navigate().refresh();
                 }
             }
             postCurrentJob();
+            checkpoint.pageDone(Checkpoint.NO_CITY, keyword, j, null, resultList);
+            breaker.success();
+        }
+    }
+
+    /**
+     * 快速模式：按URL参数翻页，页面加载以岗位列表出现为准，不再固定等待
+     */
+    private static void resumeFast(String keyword, String url, int startPage) {
+        for (int j = startPage; j <= maxPage; j++) {
+            CHROME_DRIVER.get(url + "&" + PAGE_PARAM + "=" + j);
+            try {
+                WAIT.until(ExpectedConditions.presenceOfElementLocated(By.cssSelector("div.joblist")));
+            } catch (Exception e) {
+                if (findAnomaly()) {
+                    if (blocked) {
+                        return;
+                    }
+                    // 恢复后重新加载被打断的页面
+                    j--;
+                    continue;
+                }
+                log.info("第 {} 页没有岗位列表，结束当前关键词", j);
+                return;
+            }
+            // 页码参数未生效时回退到输入页码跳转
+            Object current = SeleniumUtil.executeJavaScript(CURRENT_PAGE_SCRIPT);
+            if (j > 1 && current != null && !String.valueOf(j).equals(String.valueOf(current))) {
+                log.info("页码参数未生效，改用输入页码跳转到第 {} 页", j);
+                jumpPage(j);
+            }
+            log.info("第 {} 页", j);
+            Metrics.pageCrawled(Platform.JOB51);
+            // 本页没有可勾选的岗位（都已投递或已勾选）时继续翻页，页数由 maxPage 和岗位列表是否出现控制
+            Tracer.Span pageSpan = Tracer.span(Platform.JOB51, "page", Tracer.Category.WORK);
+            try {
+                selectAndPostFast();
+            } finally {
+                pageSpan.close();
+            }
+            checkpoint.pageDone(Checkpoint.NO_CITY, keyword, j, null, resultList);
+            breaker.success();
+        }
+    }
+
+    private static void jumpPage(int j) {
+        WebElement input = WAIT.until(ExpectedConditions.visibilityOfElementLocated(By.id("jump_page")));
+        input.clear();
+        input.sendKeys(String.valueOf(j), Keys.ENTER);
+        WAIT.until(ExpectedConditions.presenceOfElementLocated(By.cssSelector("div.joblist")));
+    }
+
+    /**
+     * 一次脚本读取整页岗位信息，过滤后一次脚本勾选，再点击批量投递并等待结果弹窗
+     *
+     * @return 勾选的岗位数，没有可勾选的岗位时返回0
+     */
+    @SuppressWarnings("unchecked")
+    private static int selectAndPostFast() {
+        Object result = SeleniumUtil.executeJavaScript(COLLECT_SCRIPT);
+        if (!(result instanceof List<?> cards) || cards.isEmpty()) {
+            log.info("本页没有可勾选的岗位");
+            return 0;
+        }
+        List<Long> indexes = new ArrayList<>();
+        List<Job> selected = new ArrayList<>();
+        for (Object item : cards) {
+            Map<String, Object> card = (Map<String, Object>) item;
+            Job job = new Job();
+            job.setJobName(String.valueOf(card.get("title")));
+            job.setCompanyName(String.valueOf(card.get("company")));
+            job.setSalary((String) card.get("salary"));
+            if (JobStore.isDelivered(Platform.JOB51, job)) {
+                Metrics.reject(Platform.JOB51, "delivered");
+                continue;
+            }
+            if (JobDeduplicator.isDuplicate(job, Platform.JOB51)) {
+                continue;
+            }
+            indexes.add((Long) card.get("index"));
+            selected.add(job);
+            log.info("选中:{} | {} 职位", job.getCompanyName(), job.getJobName());
+        }
+        if (indexes.isEmpty()) {
+            return 0;
+        }
+        SeleniumUtil.executeJavaScript(SELECT_SCRIPT, indexes);
+        ACTIONS.keyDown(Keys.CONTROL).sendKeys(Keys.HOME).keyUp(Keys.CONTROL).perform();
+        // 第二个按钮为批量投递
+        WebElement apply = WAIT.until(driver -> {
+            List<WebElement> buttons = Selectors.findAll(driver, Platform.JOB51, "applyButtons");
+            return buttons.size() > 1 ? buttons.get(1) : null;
+        });
+        SeleniumUtil.executeJavaScript("arguments[0].click();", apply);
+        String dialog = waitResultDialog();
+        if ("success".equals(dialog)) {
+            recordDelivered(selected);
+            SeleniumUtil.executeJavaScript(
+                    "var c = document.querySelector('.van-popup__close-icon'); if (c) c.click();");
+        } else if ("separate".equals(dialog)) {
+            SeleniumUtil.executeJavaScript(
+                    "var c = document.querySelector('.el-dialog__headerbtn'); if (c) c.click();");
+            log.info("关闭单独投递申请弹窗成功！");
+        } else {
+            log.info("未等到投递结果弹窗！");
+        }
+        return indexes.size();
+    }
+
+    /**
+     * 出现投递成功弹窗后再记录本次提交的岗位，未确认投递成功的岗位下次运行仍会投递
+     */
+    private static void recordDelivered(List<Job> jobs) {
+        for (Job job : jobs) {
+            JobDeduplicator.record(job, Platform.JOB51);
+            JobStore.recordDelivery(Platform.JOB51, job);
+            resultList.add(job.getCompanyName() + " | " + job.getJobName());
+        }
+    }
+
+    /**
+     * 用 MutationObserver 等待投递结果弹窗出现，代替固定等待
+     *
+     * @return success 投递成功弹窗，separate 需要单独申请的弹窗，timeout 超时
+     */
+    private static String waitResultDialog() {
+        try {
+            return String.valueOf(CHROME_DRIVER.executeAsyncScript(WAIT_DIALOG_SCRIPT, DIALOG_TIMEOUT_SECONDS * 1000));
+        } catch (Exception e) {
+            log.error("等待投递结果弹窗失败: {}", e.getMessage());
+            return "timeout";
         }
     }
 
@@ -145,8 +404,18 @@ public class Job51 {
     }
 
 
-    @SneakyThrows
     private static void postCurrentJob() {
+        Metrics.pageCrawled(Platform.JOB51);
+        Tracer.Span pageSpan = Tracer.span(Platform.JOB51, "page", Tracer.Category.WORK);
+        try {
+            selectAndPost();
+        } finally {
+            pageSpan.close();
+        }
+    }
+
+    @SneakyThrows
+    private static void selectAndPost() {
         SeleniumUtil.sleep(1);
         // 选择所有岗位，批量投递
         List<WebElement> checkboxes = CHROME_DRIVER.findElements(By.cssSelector("div.ick"));
@@ -158,22 +427,37 @@ public class Job51 {
         List<WebElement> companies =
                 CHROME_DRIVER.findElements(By.cssSelector("[class*='cname text-cut']"));
         JavascriptExecutor executor = CHROME_DRIVER;
+        List<Job> selected = new ArrayList<>();
         for (int i = 0; i < checkboxes.size(); i++) {
             WebElement checkbox = checkboxes.get(i);
-            executor.executeScript("arguments[0].click();", checkbox);
             String title = titles.get(i).getText();
             String company = companies.get(i).getText();
-            resultList.add(company + " | " + title);
+            Job job = new Job();
+            job.setJobName(title);
+            job.setCompanyName(company);
+            if (JobStore.isDelivered(Platform.JOB51, job)) {
+                Metrics.reject(Platform.JOB51, "delivered");
+                continue;
+            }
+            if (JobDeduplicator.isDuplicate(job, Platform.JOB51)) {
+                continue;
+            }
+            executor.executeScript("arguments[0].click();", checkbox);
+            selected.add(job);
             log.info("选中:{} | {} 职位", company, title);
         }
+        if (selected.isEmpty()) {
+            // 没有勾选任何岗位时点击批量投递不会弹出结果，只会白等弹窗超时
+            log.info("本页没有可投递的岗位");
+            return;
+        }
         SeleniumUtil.sleep(1);
         ACTIONS.keyDown(Keys.CONTROL).sendKeys(Keys.HOME).keyUp(Keys.CONTROL).perform();
         boolean success = false;
         while (!success) {
             try {
                 // 查询按钮是否存在
-                WebElement parent = CHROME_DRIVER.findElement(By.cssSelector("div.tabs_in"));
-                List<WebElement> button = parent.findElements(By.cssSelector("button.p_but"));
+                List<WebElement> button = Selectors.findAll(Platform.JOB51, "applyButtons");
                 // 如果按钮存在，则点击
                 if (button != null && !button.isEmpty()) {
                     SeleniumUtil.sleep(1);
@@ -186,48 +470,48 @@ public class Job51 {
             }
         }
 
-        try {
-            SeleniumUtil.sleep(3);
-            String text =
-                    CHROME_DRIVER.findElement(By.xpath("//div[@class='successContent']")).getText();
-            if (text.contains("快来扫码下载~")) {
-                // 关闭弹窗
-                CHROME_DRIVER.findElement(By.cssSelector(
-                        "[class*='van-icon van-icon-cross van-popup__close-icon van-popup__close-icon--top-right']"))
-                        .click();
-            }
-        } catch (Exception ignored) {
-            log.info("未找到投递成功弹窗！可能为单独投递申请弹窗！");
-        }
-        String particularly = null;
-        try {
-            particularly = CHROME_DRIVER
-                    .findElement(By.xpath("//div[@class='el-dialog__body']/span")).getText();
-        } catch (Exception ignored) {
+        String dialog = waitResultDialog();
+        if ("success".equals(dialog)) {
+            recordDelivered(selected);
+            try {
+                String text = Selectors.require(Platform.JOB51, "successContent").getText();
+                if (text.contains("快来扫码下载~")) {
+                    // 关闭弹窗
+                    Selectors.require(Platform.JOB51, "successClose").click();
+                }
+            } catch (Exception ignored) {
+                log.info("关闭投递成功弹窗失败！");
+            }
+        } else if (!"separate".equals(dialog)) {
+            log.info("未等到投递结果弹窗！");
         }
-        if (particularly != null && particularly.contains("需要到企业招聘平台单独申请")) {
+        WebElement particularly = Selectors.find(Platform.JOB51, "separateApply");
+        if (particularly != null && particularly.getText().contains("需要到企业招聘平台单独申请")) {
             // 关闭弹窗
-            CHROME_DRIVER.findElement(By.cssSelector(
-                    "#app > div > div.post > div > div > div.j_result > div > div:nth-child(2) > div > div:nth-child(2) > div:nth-child(2) > div > div.el-dialog__header > button > i"))
-                    .click();
-            log.info("关闭单独投递申请弹窗成功！");
+            WebElement close = Selectors.find(Platform.JOB51, "separateClose");
+            if (close != null) {
+                close.click();
+                log.info("关闭单独投递申请弹窗成功！");
+            }
         }
     }
 
-    private static void findAnomaly() {
-        try {
-            String verify =
-                    CHROME_DRIVER.findElement(By.xpath("//p[@class='waf-nc-title']")).getText();
-            if (verify.contains("验证")) {
-                // 关闭弹窗
-                log.error("出现访问验证了！程序退出...");
-                printResult();
-                CHROME_DRIVER.close();
-                CHROME_DRIVER.quit();
-            }
-        } catch (Exception ignored) {
+    /**
+     * 检查是否出现访问验证，出现时熔断：冷却或手动验证后返回，由调用方重试被打断的页面；
+     * 连续熔断超过上限时标记 blocked，调用方结束当前关键词
+     *
+     * @return 是否出现了访问验证
+     */
+    private static boolean findAnomaly() {
+        String verify = SeleniumUtil.probe(ANOMALY_STATE).get("verify");
+        if (verify == null || !verify.contains("验证")) {
             log.info("未出现访问验证，继续运行...");
+            return false;
+        }
+        if (!breaker.trip("出现访问验证")) {
+            blocked = true;
         }
+        return true;
     }
 
     private static void scanLogin() {
@@ -31,6 +31,11 @@ public class Job51Config {
      */
     private List<String> salary;
 
+    /**
+     * 快速模式：按URL参数翻页，一次脚本读取并勾选整页岗位，通过页面事件等待投递结果弹窗
+     */
+    private Boolean fastMode;
+
 
     @SneakyThrows
     public static Job51Config init() {
@@ -43,6 +48,9 @@ public class Job51Config {
         config.setSalary(
                 config.getSalary().stream().map(value -> Job51Enum.Salary.forValue(value).getCode())
                         .collect(Collectors.toList()));
+        if (config.getFastMode() == null) {
+            config.setFastMode(false);
+        }
         return config;
     }
 
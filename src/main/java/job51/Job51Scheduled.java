@@ -3,6 +3,7 @@ package job51;
 import lombok.extern.slf4j.Slf4j;
 import utils.JobUtils;
 import utils.Platform;
+import utils.SessionProbe;
 
 /**
  * @author loks666 项目链接:
@@ -17,6 +18,10 @@ public class Job51Scheduled {
     }
 
     public static void postJobs() {
+        // 登录失效时跳过本次定时投递，不必启动浏览器
+        if (!SessionProbe.ensureSession(Platform.JOB51, Job51.cookiePath)) {
+            return;
+        }
         safeRun(() -> Job51.main(null));
     }
 
@@ -7,15 +7,20 @@ import org.openqa.selenium.WebElement;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import utils.DriverMetrics;
+import utils.Job;
+import utils.JobDeduplicator;
+import utils.JobStore;
 import utils.JobUtils;
+import utils.Metrics;
+import utils.Platform;
+import utils.Selectors;
 import utils.SeleniumUtil;
+import utils.Tracer;
 
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
-import java.util.Set;
-import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 import static utils.Bot.sendMessageByTime;
 import static utils.Constant.*;
@@ -41,6 +46,99 @@ public class Lagou {
     static LagouConfig config = LagouConfig.init();
     static Date startDate;
 
+    private static final int DETAIL_TIMEOUT_SECONDS = 15;
+    private static final int DIALOG_TIMEOUT_SECONDS = 10;
+    private static final String CONFIRM = "确认投递";
+    private static final String ACKNOWLEDGE = "我知道了";
+    private static final String TIMEOUT = "timeout";
+
+    /**
+     * 等待岗位详情渲染完成后一次读取所有字段：新版详情页的类名带有构建哈希（name__36WTQ），按前缀匹配；
+     * 找不到时读取旧版布局。标题和投递按钮都出现后才返回，超时返回null
+     */
+    private static final String DETAIL_SCRIPT = """
+            var timeout = arguments[0], done = arguments[arguments.length - 1], finished = false;
+            function text(selector) {
+                var el = document.querySelector(selector);
+                return el ? el.textContent.trim() : '';
+            }
+            function texts(selector) {
+                return Array.from(document.querySelectorAll(selector)).map(function (el) {
+                    return el.textContent.trim();
+                }).filter(function (t) { return t; }).join('/');
+            }
+            function read() {
+                var button = document.querySelector('.resume-deliver');
+                if (!button) return null;
+                var heading = text('div[class*="header__"]');
+                if (heading) {
+                    return {layout: 'new', heading: heading, jobName: text('span[class*="name__"]'),
+                        companyName: text('span.company'), jobInfo: texts('h3.position-tags span'),
+                        companyInfo: heading, salary: text('span[class*="salary__"]'), weal: text('li.labels'),
+                        button: button.textContent.trim()};
+                }
+                var name = text('span.position-head-wrap-position-name');
+                if (name) {
+                    return {layout: 'old', heading: name, jobName: name, companyName: text('span.company'),
+                        jobInfo: texts('h3.position-tags span:not(.tag-point)'), companyInfo: text('span.company'),
+                        salary: text('span.salary'), weal: text('dd.job-advantage p'),
+                        button: button.textContent.trim()};
+                }
+                return null;
+            }
+            function finish(result) {
+                if (finished) return;
+                finished = true;
+                observer.disconnect();
+                done(result);
+            }
+            var observer = new MutationObserver(function () {
+                var result = read();
+                if (result) finish(result);
+            });
+            observer.observe(document.documentElement, {childList: true, subtree: true, characterData: true});
+            var initial = read();
+            if (initial) finish(initial);
+            setTimeout(function () { finish(null); }, timeout);
+            """;
+
+    /**
+     * 等待弹窗中出现指定文字的可见按钮并点击，弹窗按 role=dialog 或拉勾组件库的弹窗容器识别
+     */
+    private static final String DIALOG_SCRIPT = """
+            var wanted = arguments[0], timeout = arguments[1], done = arguments[arguments.length - 1], finished = false;
+            function check() {
+                var dialogs = document.querySelectorAll('[role="dialog"], .lg-design-modal-wrap, .lg-design-modal');
+                for (var i = 0; i < dialogs.length; i++) {
+                    var buttons = dialogs[i].querySelectorAll('button, [role="button"]');
+                    for (var j = 0; j < buttons.length; j++) {
+                        var label = buttons[j].textContent.trim();
+                        if (wanted.indexOf(label) >= 0 && buttons[j].getClientRects().length > 0) {
+                            buttons[j].click();
+                            return label;
+                        }
+                    }
+                }
+                var deliver = document.querySelector('.resume-deliver');
+                if (deliver && deliver.textContent.trim() === '已投递') return 'delivered';
+                return null;
+            }
+            function finish(result) {
+                if (finished) return;
+                finished = true;
+                observer.disconnect();
+                done(result);
+            }
+            var observer = new MutationObserver(function () {
+                var result = check();
+                if (result) finish(result);
+            });
+            observer.observe(document.body, {childList: true, subtree: true, attributes: true, characterData: true});
+            var initial = check();
+            if (initial) finish(initial);
+            setTimeout(function () { finish('timeout'); }, timeout);
+            """;
+
 
     public static void main(String[] args) {
         SeleniumUtil.initDriver();
@@ -55,9 +153,8 @@ public class Lagou {
             for (int i = page; i <= maxPage || currentKeyJobNum > oneKeyMaxJob; i++) {
                 submit();
                 try {
-                    getWindow();
-                    CHROME_DRIVER.findElements(By.className("lg-pagination-item-link")).get(1)
-                            .click();
+                    SeleniumUtil.releaseWorkerTab();
+                    Selectors.findAll(Platform.LAGOU, "pageLink").get(1).click();
                 } catch (Exception e) {
                     break;
                 }
@@ -72,7 +169,16 @@ public class Lagou {
                 formatDuration(startDate, new Date()));
         log.info(message);
         sendMessageByTime(message);
+        log.info(JobStore.report(Platform.LAGOU, startDate));
+        log.info(DriverMetrics.report(Platform.LAGOU, 10));
+        log.info(Selectors.report(Platform.LAGOU));
+        Selectors.save();
+        DriverMetrics.reset(Platform.LAGOU);
+        log.info(Tracer.report(Platform.LAGOU));
+        Tracer.export(Platform.LAGOU);
+        Metrics.runFinished(Platform.LAGOU, startDate);
         jobCount = 0;
+        SeleniumUtil.closeWorkerTabs();
         CHROME_DRIVER.close();
         CHROME_DRIVER.quit();
     }
@@ -102,177 +208,154 @@ public class Lagou {
 
     @SneakyThrows
     private static void submit() {
+        Metrics.pageCrawled(Platform.LAGOU);
         // 获取所有的元素
         List<WebElement> elements = null;
         try {
             ACTIONS.sendKeys(Keys.HOME).perform();
-            SeleniumUtil.sleep(1);
-            WAIT.until(ExpectedConditions.presenceOfElementLocated(By.id("openWinPostion")));
-            elements = CHROME_DRIVER.findElements(By.id("openWinPostion"));
+            Selectors.await(Platform.LAGOU, "jobLink");
+            elements = Selectors.findAll(Platform.LAGOU, "jobLink");
 
         } catch (Exception ignore) {
         }
         if (elements != null) {
             for (int i = 0; i < elements.size() || currentKeyJobNum > oneKeyMaxJob; i++) {
-                WebElement element = null;
+                Tracer.Span jobSpan = Tracer.span(Platform.LAGOU, "job", Tracer.Category.WORK);
                 try {
-                    element = elements.get(i);
-                } catch (Exception e) {
-                    log.error("获取岗位列表中某个岗位失败，岗位列表数量：{},获取第【{}】个元素失败", i + 1, elements.size());
-                }
-                try {
-                    ACTIONS.moveToElement(element).perform();
-                } catch (Exception e) {
-                    getWindow();
-                }
-                if (-1 == tryClick(element, i)) {
-                    continue;
-                }
-                TimeUnit.SECONDS.sleep(1);
-                getWindow();
-                String jobName;
-                WebElement submit;
-                try {
-                    jobName = CHROME_DRIVER.findElement(By.className("header__HY1Cm")).getText();
-                } catch (Exception e) {
+                    WebElement element = null;
                     try {
-                        jobName = CHROME_DRIVER
-                                .findElement(By.className("position-head-wrap-position-name"))
-                                .getText();
-                    } catch (Exception ex) {
-                        SeleniumUtil.sleep(10);
-                        continue;
-                    }
-
-                }
-                if (!(jobName != null && !jobName.isEmpty() && !jobName.contains("销"))) {
-                    CHROME_DRIVER.close();
-                    getWindow();
-                    continue;
-                }
-                submit = CHROME_DRIVER.findElement(By.className("resume-deliver"));
-                if ("投简历".equals(submit.getText())) {
-                    String jobTitle = null;
-                    String companyName = null;
-                    String jobInfo = null;
-                    String companyInfo = null;
-                    String salary = null;
-                    String weal = null;
-                    try {
-                        jobTitle = CHROME_DRIVER.findElement(By.cssSelector("span.name__36WTQ"))
-                                .getText();
-                        companyName =
-                                CHROME_DRIVER.findElement(By.cssSelector("span.company")).getText();
-                        jobInfo = CHROME_DRIVER
-                                .findElements(By.cssSelector("h3.position-tags span")).stream()
-                                .map(WebElement::getText).collect(Collectors.joining("/"));
-                        companyInfo = CHROME_DRIVER.findElement(By.cssSelector("div.header__HY1Cm"))
-                                .getText();
-                        salary = CHROME_DRIVER.findElement(By.cssSelector("span.salary__22Kt_"))
-                                .getText();
-                        weal = CHROME_DRIVER.findElement(By.cssSelector("li.labels")).getText();
+                        element = elements.get(i);
                     } catch (Exception e) {
-                        log.error("获取职位信息失败", e);
-                        try {
-                            jobTitle = CHROME_DRIVER
-                                    .findElement(
-                                            By.cssSelector("span.position-head-wrap-position-name"))
-                                    .getText();
-                            companyName = CHROME_DRIVER.findElement(By.cssSelector("span.company"))
-                                    .getText();
-                            List<WebElement> jobInfoElements = CHROME_DRIVER.findElements(
-                                    By.cssSelector("h3.position-tags span:not(.tag-point)"));
-                            jobInfo = jobInfoElements.stream().map(WebElement::getText)
-                                    .collect(Collectors.joining("/"));
-                            companyInfo = CHROME_DRIVER.findElement(By.cssSelector("span.company"))
-                                    .getText();
-                            salary = CHROME_DRIVER.findElement(By.cssSelector("span.salary"))
-                                    .getText();
-                            weal = CHROME_DRIVER.findElement(By.cssSelector("dd.job-advantage p"))
-                                    .getText();
-                        } catch (Exception ex) {
-                            log.error("第二次获取职位信息失败，放弃了！", ex);
-                        }
+                        log.error("获取岗位列表中某个岗位失败，岗位列表数量：{},获取第【{}】个元素失败", i + 1, elements.size());
                     }
-                    log.info("投递: {},职位: {},公司: {},职位信息: {},公司信息: {},薪资: {},福利: {}", jobTitle,
-                            jobTitle, companyName, jobInfo, companyInfo, salary, weal);
-                    jobCount++;
-                    currentKeyJobNum++;
-                    TimeUnit.SECONDS.sleep(2);
-                    submit.click();
-                    TimeUnit.SECONDS.sleep(2);
                     try {
-                        WebElement send = CHROME_DRIVER.findElement(By.cssSelector(
-                                "body > div:nth-child(45) > div > div.lg-design-modal-wrap.position-modal > div > div.lg-design-modal-content > div.lg-design-modal-footer > button.lg-design-btn.lg-design-btn-default"));
-                        if ("确认投递".equals(send.getText())) {
-                            send.click();
-                        }
+                        ACTIONS.moveToElement(element).perform();
                     } catch (Exception e) {
-                        log.error("没有【确认投递】的弹窗，继续！");
+                        SeleniumUtil.releaseWorkerTab();
                     }
-                    try {
-                        WebElement confirm = CHROME_DRIVER.findElement(
-                                By.cssSelector("button.lg-design-btn.lg-design-btn-primary span"));
-                        String buttonText = confirm.getText();
-                        if ("我知道了".equals(buttonText)) {
-                            confirm.click();
+                    if (!openJob(element, i)) {
+                        continue;
+                    }
+                    Map<String, String> detail = waitDetail();
+                    if (detail == null) {
+                        log.error("岗位详情{}秒内未加载完成，跳过该岗位", DETAIL_TIMEOUT_SECONDS);
+                        SeleniumUtil.releaseWorkerTab();
+                        continue;
+                    }
+                    String jobName = detail.get("heading");
+                    if (jobName.isEmpty() || jobName.contains("销")) {
+                        SeleniumUtil.releaseWorkerTab();
+                        continue;
+                    }
+                    String button = detail.get("button");
+                    if ("投简历".equals(button)) {
+                        Job job = new Job();
+                        job.setJobName(detail.get("jobName"));
+                        job.setCompanyName(detail.get("companyName"));
+                        job.setSalary(detail.get("salary"));
+                        job.setHref(CHROME_DRIVER.getCurrentUrl());
+                        boolean delivered = JobStore.isDelivered(Platform.LAGOU, job);
+                        if (delivered) {
+                            Metrics.reject(Platform.LAGOU, "delivered");
+                        }
+                        if (delivered || JobDeduplicator.isDuplicate(job, Platform.LAGOU)) {
+                            SeleniumUtil.releaseWorkerTab();
+                            continue;
+                        }
+                        log.info("投递: {},职位: {},公司: {},职位信息: {},公司信息: {},薪资: {},福利: {}", job.getJobName(),
+                                job.getJobName(), job.getCompanyName(), detail.get("jobInfo"),
+                                detail.get("companyInfo"), job.getSalary(), detail.get("weal"));
+                        Selectors.require(Platform.LAGOU, "deliverButton").click();
+                        // 先出现【确认投递】再出现【我知道了】，也可能直接投递成功不弹窗
+                        String result = resolveDialog(CONFIRM, ACKNOWLEDGE);
+                        if (CONFIRM.equals(result)) {
+                            result = resolveDialog(ACKNOWLEDGE);
+                        }
+                        if (TIMEOUT.equals(result)) {
+                            // 未确认投递成功，不记录，下次运行仍会投递
+                            log.error("投递后{}秒内没有出现投递结果，继续下一个岗位", DIALOG_TIMEOUT_SECONDS);
                         } else {
-                            TimeUnit.SECONDS.sleep(1);
+                            jobCount++;
+                            currentKeyJobNum++;
+                            JobDeduplicator.record(job, Platform.LAGOU);
+                            JobStore.recordDelivery(Platform.LAGOU, job);
                         }
-                    } catch (Exception e) {
-                        log.error("第一次点击【我知道了】按钮失败...重试xpath点击...");
-                        TimeUnit.SECONDS.sleep(1);
+                    } else if ("立即沟通".equals(button)) {
+                        Selectors.require(Platform.LAGOU, "deliverButton").click();
                         try {
-                            CHROME_DRIVER.findElement(By.xpath(
-                                    "/html/body/div[7]/div/div[2]/div/div[2]/div[2]/button[2]"))
-                                    .click();
-                        } catch (Exception ex) {
-                            log.error("第二次点击【我知道了】按钮失败...放弃了！", ex);
-                            TimeUnit.SECONDS.sleep(10);
-                            CHROME_DRIVER.navigate().refresh();
+                            Selectors.await(Platform.LAGOU, "chatModal").click();
+                        } catch (Exception e) {
+                            log.error("没有出现【立即沟通】的弹窗，跳过该岗位");
                         }
+                    } else {
+                        log.info("这个岗位没有投简历按钮，关闭标签页面！");
                     }
-                    try {
-                        TimeUnit.SECONDS.sleep(2);
-                        CHROME_DRIVER.findElement(By.cssSelector(
-                                "#__next > div:nth-child(3) > div > div > div.feedback_job__3EnWp > div.feedback_job_title__2y8Bj > div.feedback_job_deliver__3UIB5.feedback_job_active__3bbLa"))
-                                .click();
-                    } catch (Exception e) {
-                        log.error("这个岗位没有推荐职位...");
-                        TimeUnit.SECONDS.sleep(1);
-                    }
-                } else if ("立即沟通".equals(submit.getText())) {
-                    submit.click();
-                    try {
-                        WAIT.until(ExpectedConditions
-                                .presenceOfElementLocated(By.xpath("//*[@id=\"modalConIm\"]")))
-                                .click();
-                    } catch (Exception e) {
-                        submit.click();
-                        WAIT.until(ExpectedConditions
-                                .presenceOfElementLocated(By.xpath("//*[@id=\"modalConIm\"]")))
-                                .click();
-                    }
-                } else {
-                    log.info("这个岗位没有投简历按钮...一秒后关闭标签页面！");
-                    TimeUnit.SECONDS.sleep(1);
+                    SeleniumUtil.releaseWorkerTab();
+                } finally {
+                    jobSpan.close();
                 }
-                CHROME_DRIVER.close();
-                getWindow();
             }
         }
     }
 
-    private static void getWindow() {
+    /**
+     * 等待岗位详情渲染完成并一次读取全部字段，兼容新旧两种详情页布局
+     *
+     * @return 岗位详情，超时返回null
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, String> waitDetail() {
+        try {
+            Object result = CHROME_DRIVER.executeAsyncScript(DETAIL_SCRIPT, DETAIL_TIMEOUT_SECONDS * 1000);
+            return result instanceof Map ? (Map<String, String>) result : null;
+        } catch (Exception e) {
+            log.error("读取岗位详情失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 等待弹窗中出现指定文字的按钮并点击，按钮按 role=dialog 或弹窗容器内的文字查找，不依赖页面结构位置
+     *
+     * @param texts 可接受的按钮文字
+     * @return 点击的按钮文字，投递按钮已变为【已投递】时返回 delivered，超时返回 timeout
+     */
+    private static String resolveDialog(String... texts) {
         try {
-            ArrayList<String> tabs = new ArrayList<>(CHROME_DRIVER.getWindowHandles());
-            if (tabs.size() > 1) {
-                CHROME_DRIVER.switchTo().window(tabs.get(1));
-            } else {
-                CHROME_DRIVER.switchTo().window(tabs.get(0));
-            }
+            return String.valueOf(CHROME_DRIVER.executeAsyncScript(DIALOG_SCRIPT, List.of(texts),
+                    DIALOG_TIMEOUT_SECONDS * 1000));
+        } catch (Exception e) {
+            log.error("处理投递弹窗失败: {}", e.getMessage());
+            return TIMEOUT;
+        }
+    }
+
+    /**
+     * 在工作标签页中打开岗位详情，优先直接导航岗位链接；拿不到链接时回退为点击，并接管网站打开的新标签页
+     *
+     * @return 是否成功打开岗位详情
+     */
+    @SneakyThrows
+    private static boolean openJob(WebElement element, int i) {
+        String href = null;
+        try {
+            href = element.getAttribute("href");
         } catch (Exception ignore) {
         }
+        if (href != null && href.startsWith("http")) {
+            SeleniumUtil.openInWorkerTab(href);
+            return true;
+        }
+        // 点击时拦截网站要打开的链接，改在工作标签页中导航，不新开标签页
+        SeleniumUtil.captureWindowOpen();
+        if (-1 == tryClick(element, i)) {
+            return false;
+        }
+        if (SeleniumUtil.openCapturedInWorkerTab() == null) {
+            log.error("未能打开岗位详情标签页，跳过该岗位");
+            return false;
+        }
+        return true;
     }
 
     private static int tryClick(WebElement element, int i) {
@@ -285,7 +368,7 @@ public class Lagou {
             isClicked = true;
         } catch (Exception e) {
             try {
-                CHROME_DRIVER.findElements(By.id("openWinPostion")).get(i).click();
+                Selectors.findAll(Platform.LAGOU, "jobLink").get(i).click();
                 isClicked = true;
             } catch (Exception ex) {
                 log.info(ex.getMessage());
@@ -312,40 +395,12 @@ public class Lagou {
          */
     }
 
-    @SneakyThrows
-    private static void newTab(int index) {
-        String windowHandle = CHROME_DRIVER.getWindowHandle();
-        String company =
-                CHROME_DRIVER.findElement(By.cssSelector(".company-name__2-SjF a")).getText();
-
-        String jobTitle = CHROME_DRIVER.findElement(By.cssSelector(".p-top__1F7CL a")).getText();
-        CHROME_DRIVER.findElements(By.id("openWinPostion")).get(index).click();
-        WAIT.until(ExpectedConditions.presenceOfElementLocated(By.className("resume-deliver")));
-
-        Set<String> windowHandles = CHROME_DRIVER.getWindowHandles();
-        windowHandles.remove(windowHandle);
-        String newWindowHandle = windowHandles.iterator().next();
-        CHROME_DRIVER.switchTo().window(newWindowHandle);
-        WAIT.until(ExpectedConditions.presenceOfElementLocated(By.className("resume-deliver")));
-
-        if (!"已投递".equals(
-                CHROME_DRIVER.findElements(By.className("resume-deliver")).get(0).getText())) {
-            CHROME_DRIVER.findElements(By.className("resume-deliver")).get(0).click();
-            TimeUnit.SECONDS.sleep(1);
-            WAIT.until(ExpectedConditions.presenceOfElementLocated(
-                    By.cssSelector("button.lg-design-btn.lg-design-btn-primary"))).click();
-            log.info("投递【{}】公司: 【{}】岗位", company, jobTitle);
-        }
-        CHROME_DRIVER.close();
-        CHROME_DRIVER.switchTo().window(windowHandle);
-    }
-
     @SneakyThrows
     private static void login() {
         log.info("正在打开拉勾...");
         CHROME_DRIVER.get("https://www.lagou.com");
         log.info("拉勾正在登录...");
-        if (isCookieValid(cookiePath)) {
+        if (isCookieValid(Platform.LAGOU, cookiePath)) {
             SeleniumUtil.loadCookie(cookiePath);
             CHROME_DRIVER.navigate().refresh();
         }
@@ -360,12 +415,8 @@ public class Lagou {
     }
 
     private static boolean isLoginRequired() {
-        try {
-            WebElement header = CHROME_DRIVER.findElement(By.id("lg_tbar"));
-            return header.getText().contains("登录");
-        } catch (Exception e) {
-            return true;
-        }
+        String header = SeleniumUtil.probe(Map.of("header", "#lg_tbar")).get("header");
+        return header == null || header.contains("登录");
     }
 
     private static void scanLogin() {
@@ -3,6 +3,7 @@ package lagou;
 import lombok.extern.slf4j.Slf4j;
 import utils.JobUtils;
 import utils.Platform;
+import utils.SessionProbe;
 
 /**
  * @author loks666 项目链接:
@@ -16,6 +17,10 @@ public class LagouScheduled {
     }
 
     public static void postJobs() {
+        // 登录失效时跳过本次定时投递，不必启动浏览器
+        if (!SessionProbe.ensureSession(Platform.LAGOU, Lagou.cookiePath)) {
+            return;
+        }
         safeRun(() -> Lagou.main(null));
     }
 
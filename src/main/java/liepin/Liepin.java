@@ -7,8 +7,16 @@ import org.openqa.selenium.WebElement;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import utils.DriverMetrics;
+import utils.Job;
+import utils.JobDeduplicator;
+import utils.JobStore;
 import utils.JobUtils;
+import utils.Metrics;
+import utils.Platform;
+import utils.Selectors;
 import utils.SeleniumUtil;
+import utils.Tracer;
 
 import java.util.ArrayList;
 import java.util.Date;
@@ -48,7 +56,16 @@ public class Liepin {
                 formatDuration(startDate, new Date()));
         log.info(message);
         sendMessageByTime(message);
+        log.info(JobStore.report(Platform.LIEPIN, startDate));
+        log.info(DriverMetrics.report(Platform.LIEPIN, 10));
+        log.info(Selectors.report(Platform.LIEPIN));
+        Selectors.save();
+        DriverMetrics.reset(Platform.LIEPIN);
+        log.info(Tracer.report(Platform.LIEPIN));
+        Tracer.export(Platform.LIEPIN);
+        Metrics.runFinished(Platform.LIEPIN, startDate);
         resultList.clear();
+        SeleniumUtil.closeWorkerTabs();
         CHROME_DRIVER.close();
         CHROME_DRIVER.quit();
     }
@@ -103,88 +120,84 @@ public class Liepin {
     }
 
     private static void submitJob() {
+        Metrics.pageCrawled(Platform.LIEPIN);
         // 获取hr数量
-        String getRecruiters = "//div[contains(@class, 'job-card-pc-container')]";
-        int count = CHROME_DRIVER.findElements(By.xpath(getRecruiters)).size();
+        int count = Selectors.findAll(Platform.LIEPIN, "jobCard").size();
         StringBuilder sb = new StringBuilder();
         for (int i = 0; i < count; i++) {
-            JavascriptExecutor js = CHROME_DRIVER;
-            js.executeScript("window.scrollBy(0,120);");
-
-            String jobName = CHROME_DRIVER
-                    .findElements(By.xpath("//div[contains(@class, 'job-title-box')]")).get(i)
-                    .getText().replaceAll("\n", " ").replaceAll("【 ", "[").replaceAll(" 】", "]");
-            String companyName =
-                    CHROME_DRIVER.findElements(By.xpath("//span[contains(@class, 'company-name')]"))
-                            .get(i).getText().replaceAll("\n", " ");
-            String salary =
-                    CHROME_DRIVER.findElements(By.xpath("//span[contains(@class, 'job-salary')]"))
-                            .get(i).getText().replaceAll("\n", " ");
-            String recruiterName = null;
-            WebElement name;
-            try {
-                // 获取hr名字
-                List<WebElement> recruiters = CHROME_DRIVER.findElements(By.xpath(getRecruiters));
-                // System.out.println(count);
-                // System.out.println(recruiters.size());
-                name = recruiters.get(i);
-                recruiterName = name.getText();
-            } catch (Exception e) {
-                log.error(e.getMessage());
-            }
-            try {
-                // 移动到hr标签处
-                name = CHROME_DRIVER
-                        .findElements(By.xpath("//div[contains(@class, 'job-card-pc-container')]"))
-                        .get(i);
-                ACTIONS.moveToElement(name).perform();
-            } catch (Exception ignore) {
-            }
-            WebElement button;
+            Tracer.Span jobSpan = Tracer.span(Platform.LIEPIN, "job", Tracer.Category.WORK);
             try {
-                button = CHROME_DRIVER.findElement(
-                        By.xpath("//button[@class='ant-btn ant-btn-primary ant-btn-round']"));
-            } catch (Exception e) {
-                // 嵌套一个异常，用来获取对应按钮
+                JavascriptExecutor js = CHROME_DRIVER;
+                js.executeScript("window.scrollBy(0,120);");
+
+                String jobName = Selectors.findAll(Platform.LIEPIN, "jobTitle").get(i)
+                        .getText().replaceAll("\n", " ").replaceAll("【 ", "[").replaceAll(" 】", "]");
+                String companyName = Selectors.findAll(Platform.LIEPIN, "companyName").get(i).getText()
+                        .replaceAll("\n", " ");
+                String salary = Selectors.findAll(Platform.LIEPIN, "jobSalary").get(i).getText()
+                        .replaceAll("\n", " ");
+                String recruiterName = null;
+                WebElement name;
+                try {
+                    // 获取hr名字
+                    List<WebElement> recruiters = Selectors.findAll(Platform.LIEPIN, "jobCard");
+                    // System.out.println(count);
+                    // System.out.println(recruiters.size());
+                    name = recruiters.get(i);
+                    recruiterName = name.getText();
+                } catch (Exception e) {
+                    log.error(e.getMessage());
+                }
                 try {
-                    button = CHROME_DRIVER.findElement(
-                            By.xpath("//button[@Class='ant-btn ant-btn-round ant-btn-primary']"));
-                } catch (Exception e1) {
+                    // 移动到hr标签处
+                    name = Selectors.findAll(Platform.LIEPIN, "jobCard").get(i);
+                    ACTIONS.moveToElement(name).perform();
+                } catch (Exception ignore) {
+                }
+                // 按钮的类名顺序有两种写法，由选择器注册表按命中情况依次尝试
+                WebElement button = Selectors.find(Platform.LIEPIN, "chatButton");
+                if (button == null) {
                     continue;
                 }
-            }
-            String text;
-            try {
-                text = button.getText();
-            } catch (Exception ignore) {
-                text = "";
-            }
-            if (text.contains("聊一聊")) {
+                String text;
                 try {
-                    button.click();
+                    text = button.getText();
                 } catch (Exception ignore) {
+                    text = "";
                 }
-                WAIT.until(ExpectedConditions
-                        .presenceOfElementLocated(By.className("__im_basic__header-wrap")));
-                WAIT.until(ExpectedConditions.presenceOfElementLocated(
-                        By.xpath("//textarea[contains(@class, '__im_basic__textarea')]")));
-                WebElement input = CHROME_DRIVER.findElement(
-                        By.xpath("//textarea[contains(@class, '__im_basic__textarea')]"));
-                input.click();
-                SeleniumUtil.sleep(1);
-                WebElement close = CHROME_DRIVER
-                        .findElement(By.cssSelector("div.__im_basic__contacts-title svg"));
-                close.click();
-                WAIT.until(ExpectedConditions.presenceOfElementLocated(
-                        By.xpath("//div[contains(@class, 'recruiter-info-box')]")));
+                Job job = new Job();
+                job.setJobName(jobName);
+                job.setCompanyName(companyName);
+                job.setSalary(salary);
+                boolean delivered = text.contains("聊一聊") && JobStore.isDelivered(Platform.LIEPIN, job);
+                if (delivered) {
+                    Metrics.reject(Platform.LIEPIN, "delivered");
+                }
+                if (text.contains("聊一聊") && !delivered && !JobDeduplicator.isDuplicate(job, Platform.LIEPIN)) {
+                    try {
+                        button.click();
+                    } catch (Exception ignore) {
+                    }
+                    Selectors.await(Platform.LIEPIN, "imHeader");
+                    WebElement input = Selectors.await(Platform.LIEPIN, "imInput");
+                    input.click();
+                    SeleniumUtil.sleep(1);
+                    WebElement close = Selectors.require(Platform.LIEPIN, "imClose");
+                    close.click();
+                    Selectors.await(Platform.LIEPIN, "recruiterInfo");
 
-                resultList.add(sb.append("【").append(companyName).append(" ").append(jobName)
-                        .append(" ").append(salary).append(" ").append(recruiterName).append(" ")
-                        .append("】").toString());
-                sb.setLength(0);
-                log.info("发起新聊天:【{}】的【{}·{}】岗位", companyName, jobName, salary);
+                    resultList.add(sb.append("【").append(companyName).append(" ").append(jobName)
+                            .append(" ").append(salary).append(" ").append(recruiterName).append(" ")
+                            .append("】").toString());
+                    sb.setLength(0);
+                    JobDeduplicator.record(job, Platform.LIEPIN);
+                    JobStore.recordDelivery(Platform.LIEPIN, job);
+                    log.info("发起新聊天:【{}】的【{}·{}】岗位", companyName, jobName, salary);
+                }
+                ACTIONS.moveByOffset(125, 0).perform();
+            } finally {
+                jobSpan.close();
             }
-            ACTIONS.moveByOffset(125, 0).perform();
         }
     }
 
@@ -193,7 +206,7 @@ public class Liepin {
         log.info("正在打开猎聘网站...");
         CHROME_DRIVER.get(homeUrl);
         log.info("猎聘正在登录...");
-        if (isCookieValid(cookiePath)) {
+        if (isCookieValid(Platform.LIEPIN, cookiePath)) {
             SeleniumUtil.loadCookie(cookiePath);
             CHROME_DRIVER.navigate().refresh();
         }
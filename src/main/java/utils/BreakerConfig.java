@@ -0,0 +1,43 @@
+package utils;
+
+import lombok.Data;
+
+/**
+ * @author loks666 项目链接:
+ *         <a href="https://github.com/loks666/get_jobs">https://github.com/loks666/get_jobs</a>
+ */
+@Data
+public class BreakerConfig {
+
+    /**
+     * 第一次出现异常访问、访问验证时的冷却时长（秒），之后每次连续熔断翻倍
+     */
+    private Integer cooldownSeconds;
+
+    /**
+     * 冷却时长上限（秒）
+     */
+    private Integer maxCooldownSeconds;
+
+    /**
+     * 连续熔断超过该次数后不再恢复，结束本次运行并保留断点
+     */
+    private Integer maxTrips;
+
+    public static BreakerConfig init() {
+        BreakerConfig config = JobUtils.getConfig(BreakerConfig.class);
+        if (config == null) {
+            config = new BreakerConfig();
+        }
+        if (config.getCooldownSeconds() == null || config.getCooldownSeconds() <= 0) {
+            config.setCooldownSeconds(300);
+        }
+        if (config.getMaxCooldownSeconds() == null || config.getMaxCooldownSeconds() < config.getCooldownSeconds()) {
+            config.setMaxCooldownSeconds(Math.max(3600, config.getCooldownSeconds()));
+        }
+        if (config.getMaxTrips() == null || config.getMaxTrips() <= 0) {
+            config.setMaxTrips(5);
+        }
+        return config;
+    }
+}
@@ -0,0 +1,228 @@
+package utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Data;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 断点续投：按平台记录处理进度（城市、关键词、页码、最后处理的岗位）和已累计的投递结果
+ * <p>
+ * 每处理完一页原子写入一次（先写临时文件再替换），运行中途退出后，下次运行在有效期内跳过已处理完的城市、关键词，
+ * 从未处理完的关键词的下一页继续，并恢复已累计的投递结果；正常跑完后删除断点。
+ * 城市、关键词按配置中的顺序比较，断点中的城市或关键词已不在配置中时视为配置已变化，从头开始。
+ *
+ * @param <T> 投递结果类型
+ * @author loks666 项目链接:
+ *         <a href="https://github.com/loks666/get_jobs">https://github.com/loks666/get_jobs</a>
+ */
+public class Checkpoint<T> {
+    private static final Logger log = LoggerFactory.getLogger(Checkpoint.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final CheckpointConfig config = CheckpointConfig.init();
+
+    /**
+     * 没有城市维度的平台使用的城市
+     */
+    public static final String NO_CITY = "";
+
+    private final Platform platform;
+    private final Class<T> resultType;
+    private final List<String> cities;
+    private final List<String> keywords;
+    /**
+     * 恢复时读取的断点，没有可用断点时为null
+     */
+    private final State resumed;
+    private final int cityIndex;
+    private final int keywordIndex;
+    private final long startedAt;
+
+    /**
+     * 断点文件内容
+     */
+    @Data
+    public static class State {
+        private String city;
+        private String keyword;
+        /**
+         * 已处理完的页码
+         */
+        private int page;
+        /**
+         * 该关键词是否已全部处理完
+         */
+        private boolean finished;
+        private String lastJobId;
+        private long startedAt;
+        private long updatedAt;
+        private JsonNode results;
+    }
+
+    private Checkpoint(Platform platform, Class<T> resultType, List<String> cities, List<String> keywords,
+            State resumed) {
+        this.platform = platform;
+        this.resultType = resultType;
+        this.cities = cities;
+        this.keywords = keywords;
+        this.resumed = resumed;
+        this.cityIndex = resumed == null ? 0 : cities.indexOf(resumed.getCity());
+        this.keywordIndex = resumed == null ? 0 : keywords.indexOf(resumed.getKeyword());
+        this.startedAt = resumed == null ? System.currentTimeMillis() : resumed.getStartedAt();
+    }
+
+    /**
+     * 读取平台的断点，过期、配置已变化或未开启时返回一个从头开始的断点
+     *
+     * @param cities 按处理顺序排列的城市，没有城市维度时传 List.of(Checkpoint.NO_CITY)
+     * @param keywords 按处理顺序排列的关键词
+     */
+    public static <T> Checkpoint<T> resume(Platform platform, Class<T> resultType, List<String> cities,
+            List<String> keywords) {
+        State state = config.getEnable() ? read(platform) : null;
+        if (state != null) {
+            long age = System.currentTimeMillis() - state.getUpdatedAt();
+            if (age > TimeUnit.HOURS.toMillis(config.getStaleHours())) {
+                log.info("{}断点已超过{}小时，从头开始", platform.getPlatformName(), config.getStaleHours());
+                state = null;
+            } else if (!cities.contains(state.getCity()) || !keywords.contains(state.getKeyword())) {
+                log.info("{}断点中的城市或关键词已不在配置中，从头开始", platform.getPlatformName());
+                state = null;
+            } else {
+                log.info("{}从断点继续：城市【{}】关键词【{}】已处理到第{}页{}，最后处理的岗位：{}",
+                        platform.getPlatformName(), state.getCity(), state.getKeyword(), state.getPage(),
+                        state.isFinished() ? "（已完成）" : "", state.getLastJobId());
+            }
+        }
+        return new Checkpoint<>(platform, resultType, cities, keywords, state);
+    }
+
+    /**
+     * 是否恢复自断点
+     */
+    public boolean isResumed() {
+        return resumed != null;
+    }
+
+    /**
+     * 城市、关键词是否在上次运行中已处理完
+     */
+    public boolean isDone(String city, String keyword) {
+        if (resumed == null) {
+            return false;
+        }
+        int cityAt = cities.indexOf(city);
+        int keywordAt = keywords.indexOf(keyword);
+        if (cityAt != cityIndex) {
+            return cityAt < cityIndex;
+        }
+        return keywordAt < keywordIndex || (keywordAt == keywordIndex && resumed.isFinished());
+    }
+
+    /**
+     * 城市、关键词应从第几页开始
+     */
+    public int startPage(String city, String keyword) {
+        if (resumed == null || resumed.isFinished() || !resumed.getCity().equals(city)
+                || !resumed.getKeyword().equals(keyword)) {
+            return 1;
+        }
+        return resumed.getPage() + 1;
+    }
+
+    /**
+     * 上次运行累计的投递结果
+     */
+    public List<T> getResults() {
+        if (resumed == null || resumed.getResults() == null) {
+            return new ArrayList<>();
+        }
+        try {
+            return MAPPER.convertValue(resumed.getResults(),
+                    MAPPER.getTypeFactory().constructCollectionType(List.class, resultType));
+        } catch (IllegalArgumentException e) {
+            log.error("恢复{}断点中的投递结果失败：{}", platform.getPlatformName(), e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * 一页处理完后记录进度
+     *
+     * @param lastJobId 该页最后处理的岗位（链接或ID），没有时传null
+     * @param results 目前累计的全部投递结果
+     */
+    public void pageDone(String city, String keyword, int page, String lastJobId, List<T> results) {
+        write(city, keyword, page, false, lastJobId, results);
+    }
+
+    /**
+     * 一个关键词处理完后记录进度，下次运行从下一个关键词开始
+     */
+    public void keywordDone(String city, String keyword, int page, List<T> results) {
+        write(city, keyword, page, true, null, results);
+    }
+
+    /**
+     * 正常跑完后删除断点
+     */
+    public void clear() {
+        try {
+            Files.deleteIfExists(path(platform));
+        } catch (IOException e) {
+            log.error("删除{}断点失败：{}", platform.getPlatformName(), e.getMessage());
+        }
+    }
+
+    private void write(String city, String keyword, int page, boolean finished, String lastJobId,
+            List<T> results) {
+        if (!config.getEnable()) {
+            return;
+        }
+        State state = new State();
+        state.setCity(city);
+        state.setKeyword(keyword);
+        state.setPage(page);
+        state.setFinished(finished);
+        state.setLastJobId(lastJobId);
+        state.setStartedAt(startedAt);
+        state.setUpdatedAt(System.currentTimeMillis());
+        state.setResults(MAPPER.valueToTree(results));
+        Path path = path(platform);
+        Path temp = Paths.get(path + ".tmp");
+        try {
+            Files.createDirectories(path.getParent());
+            Files.write(temp, MAPPER.writerWithDefaultPrettyPrinter().writeValueAsBytes(state));
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            log.error("写入{}断点失败：{}", platform.getPlatformName(), e.getMessage());
+        }
+    }
+
+    private static State read(Platform platform) {
+        Path path = path(platform);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try {
+            return MAPPER.readValue(path.toFile(), State.class);
+        } catch (IOException e) {
+            log.error("读取{}断点失败，从头开始：{}", platform.getPlatformName(), e.getMessage());
+            return null;
+        }
+    }
+
+    private static Path path(Platform platform) {
+        return Paths.get(config.getPath(), platform.name().toLowerCase() + ".json");
+    }
+}
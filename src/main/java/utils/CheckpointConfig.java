@@ -0,0 +1,43 @@
+package utils;
+
+import lombok.Data;
+
+/**
+ * @author loks666 项目链接:
+ *         <a href="https://github.com/loks666/get_jobs">https://github.com/loks666/get_jobs</a>
+ */
+@Data
+public class CheckpointConfig {
+
+    /**
+     * 是否开启断点续投，中途退出后下次运行从上次处理到的城市、关键词和页码继续
+     */
+    private Boolean enable;
+
+    /**
+     * 断点的有效时长（小时），超过后从头开始
+     */
+    private Integer staleHours;
+
+    /**
+     * 断点文件所在目录，每个平台一个文件
+     */
+    private String path;
+
+    public static CheckpointConfig init() {
+        CheckpointConfig config = JobUtils.getConfig(CheckpointConfig.class);
+        if (config == null) {
+            config = new CheckpointConfig();
+        }
+        if (config.getEnable() == null) {
+            config.setEnable(true);
+        }
+        if (config.getStaleHours() == null || config.getStaleHours() <= 0) {
+            config.setStaleHours(12);
+        }
+        if (config.getPath() == null || config.getPath().isBlank()) {
+            config.setPath("./src/main/java/utils/checkpoint");
+        }
+        return config;
+    }
+}
@@ -0,0 +1,128 @@
+package utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按平台熔断：出现异常访问、访问验证页面时停止对外动作，冷却后或手动验证后恢复，继续处理被打断的岗位或页面
+ * <p>
+ * 冷却时长从 cooldownSeconds 开始，每次连续熔断翻倍，不超过 maxCooldownSeconds；投递成功一次后重置。
+ * 冷却期间可以在浏览器中手动完成验证，然后在控制台按回车立即恢复。连续熔断超过 maxTrips 次时不再恢复，
+ * 由调用方结束本次运行并保留断点。每次熔断和达到投递上限都会通过 {@link Bot} 推送通知。
+ *
+ * @author loks666 项目链接:
+ *         <a href="https://github.com/loks666/get_jobs">https://github.com/loks666/get_jobs</a>
+ */
+public class CircuitBreaker {
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+    private static final BreakerConfig config = BreakerConfig.init();
+    private static final Map<Platform, CircuitBreaker> BREAKERS = new ConcurrentHashMap<>();
+    /**
+     * 所有熔断器共用一个控制台读取器：每次新建 Scanner 会把缓冲的输入一起读走，后续回车可能丢失
+     */
+    private static final BufferedReader STDIN =
+            new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+
+    private final Platform platform;
+    /**
+     * 连续熔断次数
+     */
+    private int trips;
+    /**
+     * 已放弃恢复，本次运行不再投递
+     */
+    private boolean open;
+
+    private CircuitBreaker(Platform platform) {
+        this.platform = platform;
+    }
+
+    public static CircuitBreaker of(Platform platform) {
+        return BREAKERS.computeIfAbsent(platform, CircuitBreaker::new);
+    }
+
+    /**
+     * 出现异常访问或访问验证时调用：通知后冷却，冷却结束或手动验证后返回
+     * <p>
+     * 冷却期间一直持有本熔断器的锁，同一平台的其他线程调用 trip、success 会等到冷却结束；
+     * 队列和流水线模式下调用方还持有 {@link Constant#DRIVER_LOCK}，冷却期间其他阶段也不会操作浏览器，
+     * 浏览器留给手动验证使用。
+     *
+     * @param reason 熔断原因，用于日志和通知
+     * @return 是否可以恢复，连续熔断次数超过上限后本次运行一直返回false
+     */
+    public synchronized boolean trip(String reason) {
+        if (open) {
+            return false;
+        }
+        trips++;
+        if (trips > config.getMaxTrips()) {
+            String message = String.format("%s%s，已连续熔断%d次，停止本次投递，下次运行从断点继续",
+                    platform.getPlatformName(), reason, config.getMaxTrips());
+            log.error(message);
+            Bot.sendMessageByTime(message);
+            open = true;
+            return false;
+        }
+        long cooldown = Math.min((long) config.getCooldownSeconds() << Math.min(trips - 1, 20),
+                config.getMaxCooldownSeconds());
+        String message = String.format("%s%s，暂停投递%d秒（第%d次），可在浏览器中完成验证后在控制台按回车立即继续",
+                platform.getPlatformName(), reason, cooldown, trips);
+        log.warn(message);
+        Bot.sendMessageByTime(message);
+        boolean manual;
+        Tracer.Span cooldownSpan = Tracer.span("cooldown", Tracer.Category.SLEEP);
+        try {
+            manual = awaitCooldown(cooldown);
+        } finally {
+            cooldownSpan.close();
+        }
+        log.info("{}{}，继续投递", platform.getPlatformName(), manual ? "已手动验证" : "冷却结束");
+        return true;
+    }
+
+    /**
+     * 对外动作成功后调用，重置连续熔断次数
+     */
+    public synchronized void success() {
+        trips = 0;
+    }
+
+    /**
+     * 达到投递上限时调用：上限当天不会解除，只通知不冷却
+     */
+    public void limit(String reason) {
+        String message = String.format("%s%s，今日停止投递", platform.getPlatformName(), reason);
+        log.info(message);
+        Bot.sendMessageByTime(message);
+    }
+
+    /**
+     * 等待冷却结束，期间控制台有输入时提前返回
+     *
+     * @return 是否由手动确认提前结束
+     */
+    private static boolean awaitCooldown(long seconds) {
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        while (System.nanoTime() < end) {
+            try {
+                if (STDIN.ready()) {
+                    STDIN.readLine();
+                    return true;
+                }
+            } catch (IOException e) {
+                // 读取输入流异常，只按冷却时长等待
+            }
+            SeleniumUtil.sleep(1);
+        }
+        return false;
+    }
+}
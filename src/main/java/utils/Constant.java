@@ -4,6 +4,8 @@ import org.openqa.selenium.chrome.ChromeDriver;
 import org.openqa.selenium.interactions.Actions;
 import org.openqa.selenium.support.ui.WebDriverWait;
 
+import java.util.concurrent.locks.ReentrantLock;
+
 /**
  * @author loks666 项目链接:
  *         <a href="https://github.com/loks666/get_jobs">https://github.com/loks666/get_jobs</a>
@@ -12,6 +14,12 @@ public class Constant {
     public static ChromeDriver CHROME_DRIVER;
     public static Actions ACTIONS;
     public static WebDriverWait WAIT;
+    public static TabPool TAB_POOL;
+    public static int WORKER_TABS = 2;
+    /**
+     * 浏览器只有一个，多线程流水线中所有浏览器操作都要先获取该锁
+     */
+    public static final ReentrantLock DRIVER_LOCK = new ReentrantLock();
     public static int WAIT_TIME = 30;
     public static String UNLIMITED_CODE = "0";
 }
@@ -0,0 +1,221 @@
+package utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 分阶段并发投递流水线：搜索 -> 提取 -> 过滤 -> 投递
+ * <p>
+ * 阶段之间用有界队列连接，提取、过滤阶段有独立的并发数。下游处理不过来时上游的 put 会阻塞， 背压一直传导到翻页，避免提取大量岗位后来不及投递。过滤阶段（AI检测）不占用浏览器，可以与其他平台的提取、投递重叠执行； 占用浏览器的操作由各平台通过
+ * {@link Constant#DRIVER_LOCK} 串行化，因此投递阶段只用一个线程。
+ * 平台通过 META-INF/services/utils.JobPlatform 注册，流水线不依赖具体平台的代码；浏览器由流水线在结束时统一关闭。
+ *
+ * @author loks666 项目链接:
+ *         <a href="https://github.com/loks666/get_jobs">https://github.com/loks666/get_jobs</a>
+ */
+@Slf4j
+public class CrawlPipeline {
+
+    private record Item(JobPlatform platform, JobPlatform.SearchTask task, Job job) {
+    }
+
+    private static final Item POISON = new Item(null, null, null);
+
+    private final PipelineConfig config;
+    private final List<JobPlatform> platforms;
+    private final Map<Platform, AtomicBoolean> stopped = new EnumMap<>(Platform.class);
+    private final Map<Platform, AtomicInteger> delivered = new EnumMap<>(Platform.class);
+
+    public CrawlPipeline(List<JobPlatform> platforms, PipelineConfig config) {
+        this.platforms = platforms;
+        this.config = config;
+        for (JobPlatform platform : platforms) {
+            stopped.put(platform.platform(), new AtomicBoolean(false));
+            delivered.put(platform.platform(), new AtomicInteger(0));
+        }
+    }
+
+    public static void main(String[] args) {
+        PipelineConfig config = PipelineConfig.init();
+        List<JobPlatform> platforms = new ArrayList<>();
+        for (String name : config.getPlatforms()) {
+            JobPlatform platform = create(Platform.valueOf(name.trim().toUpperCase()));
+            if (platform != null) {
+                platforms.add(platform);
+            }
+        }
+        SeleniumUtil.initDriver();
+        new CrawlPipeline(platforms, config).run();
+    }
+
+    /**
+     * 创建已接入流水线的平台
+     *
+     * @return 平台未接入时返回null
+     */
+    static JobPlatform create(Platform platform) {
+        for (JobPlatform jobPlatform : ServiceLoader.load(JobPlatform.class)) {
+            if (jobPlatform.platform() == platform) {
+                return jobPlatform;
+            }
+        }
+        log.warn("【{}】暂未接入流水线，已跳过", platform.getPlatformName());
+        return null;
+    }
+
+    /**
+     * 执行流水线
+     *
+     * @return 各平台投递数量
+     */
+    public Map<Platform, Integer> run() {
+        Date startDate = new Date();
+        for (JobPlatform platform : platforms) {
+            Constant.DRIVER_LOCK.lock();
+            try {
+                platform.login();
+            } finally {
+                Constant.DRIVER_LOCK.unlock();
+            }
+        }
+        int capacity = config.getQueueCapacity();
+        BlockingQueue<Item> taskQueue = new ArrayBlockingQueue<>(capacity);
+        BlockingQueue<Item> filterQueue = new ArrayBlockingQueue<>(capacity);
+        BlockingQueue<Item> deliverQueue = new ArrayBlockingQueue<>(capacity);
+
+        Thread feeder = new Thread(() -> feed(taskQueue), "pipeline-search");
+        feeder.start();
+        List<Thread> extractors = startStage("pipeline-extract", config.getExtractConcurrency(), taskQueue,
+                item -> item.platform().extract(item.task(),
+                        job -> put(filterQueue, new Item(item.platform(), item.task(), job)),
+                        () -> isStopped(item.platform())));
+        List<Thread> filters = startStage("pipeline-filter", config.getFilterConcurrency(), filterQueue, item -> {
+            if (item.platform().filter(item.task(), item.job())) {
+                put(deliverQueue, item);
+            }
+        });
+        List<Thread> deliverers = startStage("pipeline-deliver", 1, deliverQueue, this::deliver);
+
+        join(List.of(feeder));
+        join(extractors);
+        poison(filterQueue, config.getFilterConcurrency());
+        join(filters);
+        poison(deliverQueue, 1);
+        join(deliverers);
+
+        Map<Platform, Integer> result = new EnumMap<>(Platform.class);
+        for (JobPlatform platform : platforms) {
+            result.put(platform.platform(), delivered.get(platform.platform()).get());
+            platform.finish();
+        }
+        log.info("流水线投递完成：{}，用时{}", result, JobUtils.formatDuration(startDate, new Date()));
+        Constant.CHROME_DRIVER.quit();
+        return result;
+    }
+
+    /**
+     * 搜索阶段：按平台轮流投放搜索任务，让不同平台的工作交错进行
+     */
+    private void feed(BlockingQueue<Item> taskQueue) {
+        List<Iterator<JobPlatform.SearchTask>> iterators = new ArrayList<>();
+        for (JobPlatform platform : platforms) {
+            iterators.add(platform.search().iterator());
+        }
+        boolean remaining = true;
+        while (remaining) {
+            remaining = false;
+            for (int i = 0; i < platforms.size(); i++) {
+                Iterator<JobPlatform.SearchTask> iterator = iterators.get(i);
+                if (iterator.hasNext() && !isStopped(platforms.get(i))) {
+                    put(taskQueue, new Item(platforms.get(i), iterator.next(), null));
+                    remaining = true;
+                }
+            }
+        }
+        poison(taskQueue, config.getExtractConcurrency());
+    }
+
+    private void deliver(Item item) {
+        JobPlatform platform = item.platform();
+        if (isStopped(platform)) {
+            return;
+        }
+        JobPlatform.DeliveryResult result = platform.deliver(item.task(), item.job());
+        switch (result) {
+            case DELIVERED -> delivered.get(platform.platform()).incrementAndGet();
+            case LIMIT, BLOCKED -> {
+                log.info("【{}】{}，停止该平台后续投递", platform.platform().getPlatformName(),
+                        result == JobPlatform.DeliveryResult.LIMIT ? "今日投递已达上限" : "出现异常访问");
+                stopped.get(platform.platform()).set(true);
+            }
+            default -> {
+            }
+        }
+    }
+
+    private boolean isStopped(JobPlatform platform) {
+        return stopped.get(platform.platform()).get();
+    }
+
+    private static List<Thread> startStage(String name, int concurrency, BlockingQueue<Item> input,
+            Consumer<Item> handler) {
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            Thread thread = new Thread(() -> {
+                while (true) {
+                    Item item;
+                    try {
+                        item = input.take();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    if (item == POISON) {
+                        return;
+                    }
+                    try {
+                        handler.accept(item);
+                    } catch (Exception e) {
+                        log.error("{}处理【{}】失败: {}", name, item.job() != null ? item.job() : item.task(),
+                                e.getMessage(), e);
+                    }
+                }
+            }, name + "-" + i);
+            thread.start();
+            threads.add(thread);
+        }
+        return threads;
+    }
+
+    private static void put(BlockingQueue<Item> queue, Item item) {
+        try {
+            queue.put(item);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("流水线被中断", e);
+        }
+    }
+
+    private static void poison(BlockingQueue<Item> queue, int count) {
+        for (int i = 0; i < count; i++) {
+            put(queue, POISON);
+        }
+    }
+
+    private static void join(List<Thread> threads) {
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package utils;
+
+import lombok.Data;
+
+/**
+ * @author loks666 项目链接:
+ *         <a href="https://github.com/loks666/get_jobs">https://github.com/loks666/get_jobs</a>
+ */
+@Data
+public class DedupConfig {
+
+    /**
+     * 最低相似度：最多允许15位不同，分段索引最多16段，每段至少4位
+     */
+    public static final double MIN_SIMILARITY = 1 - 15 / 64.0;
+
+    /**
+     * 是否开启跨平台重复岗位检测
+     */
+    private Boolean enable;
+
+    /**
+     * 相似度阈值，越接近1越严格，低于 MIN_SIMILARITY 时按 MIN_SIMILARITY 计算
+     */
+    private Double similarity;
+
+    /**
+     * 指纹持久化文件路径
+     */
+    private String path;
+
+    /**
+     * 指纹保留天数，超期的指纹在加载时丢弃，同一岗位过期后可以再次投递
+     */
+    private Integer expireDays;
+
+    public static DedupConfig init() {
+        DedupConfig config = JobUtils.getConfig(DedupConfig.class);
+        if (config == null) {
+            config = new DedupConfig();
+        }
+        if (config.getEnable() == null) {
+            config.setEnable(false);
+        }
+        if (config.getSimilarity() == null || config.getSimilarity() <= 0 || config.getSimilarity() > 1) {
+            config.setSimilarity(0.9);
+        }
+        if (config.getSimilarity() < MIN_SIMILARITY) {
+            config.setSimilarity(MIN_SIMILARITY);
+        }
+        if (config.getPath() == null || config.getPath().isBlank()) {
+            config.setPath("./src/main/java/utils/fingerprint.txt");
+        }
+        if (config.getExpireDays() == null || config.getExpireDays() <= 0) {
+            config.setExpireDays(30);
+        }
+        return config;
+    }
+}
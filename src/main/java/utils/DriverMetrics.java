@@ -0,0 +1,187 @@
+package utils;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 浏览器命令耗时统计：按平台 + 命令类型、平台 + 定位器(XPath/CSS)分别记录次数、失败数和耗时直方图
+ * <p>
+ * 计数全部使用 LongAdder，记录时不加锁，对投递流程几乎没有额外开销。
+ *
+ * @author loks666 项目链接:
+ *         <a href="https://github.com/loks666/get_jobs">https://github.com/loks666/get_jobs</a>
+ */
+public class DriverMetrics {
+
+    /**
+     * 直方图桶上界（毫秒），按2的幂划分，最后一个桶收纳更慢的调用
+     */
+    private static final long[] BUCKETS = {1, 2, 4, 8, 16, 32, 64, 128, 256, 512, 1024, 2048, 4096, 8192, 16384,
+            32768, Long.MAX_VALUE};
+    private static final Map<Key, Stat> commands = new ConcurrentHashMap<>();
+    private static final Map<Key, Stat> locators = new ConcurrentHashMap<>();
+    /**
+     * 浏览器最近一次导航所属的平台
+     */
+    private static volatile Platform currentPlatform = Platform.UNKNOWN;
+
+    private record Key(Platform platform, String name) {
+    }
+
+    /**
+     * 单个统计项，所有字段都可以无锁并发更新
+     */
+    public static class Stat {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder[] histogram = new LongAdder[BUCKETS.length];
+
+        Stat() {
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] = new LongAdder();
+            }
+        }
+
+        void record(long nanos, boolean success) {
+            count.increment();
+            if (!success) {
+                failures.increment();
+            }
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            long millis = nanos / 1_000_000;
+            int bucket = 0;
+            while (millis >= BUCKETS[bucket]) {
+                bucket++;
+            }
+            histogram[bucket].increment();
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getFailures() {
+            return failures.sum();
+        }
+
+        public long getTotalMillis() {
+            return totalNanos.sum() / 1_000_000;
+        }
+
+        public long getMaxMillis() {
+            return maxNanos.get() / 1_000_000;
+        }
+
+        /**
+         * 根据直方图估算分位数，返回所在桶的上界（毫秒）
+         */
+        public long percentile(double p) {
+            long total = getCount();
+            if (total == 0) {
+                return 0;
+            }
+            long target = (long) Math.ceil(total * p);
+            long seen = 0;
+            for (int i = 0; i < histogram.length; i++) {
+                seen += histogram[i].sum();
+                if (seen >= target) {
+                    return Math.min(BUCKETS[i], getMaxMillis());
+                }
+            }
+            return getMaxMillis();
+        }
+    }
+
+    /**
+     * 记录一次浏览器命令
+     *
+     * @param platform 当前平台
+     * @param command 命令类型，例如 findElement、executeScript
+     * @param locator 定位器，非查找命令为 null
+     * @param nanos 耗时（纳秒）
+     * @param success 是否成功
+     */
+    public static void record(Platform platform, String command, String locator, long nanos, boolean success) {
+        commands.computeIfAbsent(new Key(platform, command), k -> new Stat()).record(nanos, success);
+        if (locator != null) {
+            locators.computeIfAbsent(new Key(platform, locator), k -> new Stat()).record(nanos, success);
+        }
+    }
+
+    /**
+     * 生成平台的浏览器耗时报告：各命令汇总 + 总耗时最长的 topN 个定位器
+     */
+    public static String report(Platform platform, int topN) {
+        StringBuilder sb = new StringBuilder("\n【").append(platform.getPlatformName()).append("】浏览器命令耗时统计：");
+        appendTop(sb, commands, platform, Integer.MAX_VALUE);
+        sb.append("\n最慢的").append(topN).append("个定位器：");
+        appendTop(sb, locators, platform, topN);
+        return sb.toString();
+    }
+
+    /**
+     * 清空平台的统计，下一轮定时任务重新计数
+     */
+    public static void reset(Platform platform) {
+        commands.keySet().removeIf(key -> key.platform() == platform);
+        locators.keySet().removeIf(key -> key.platform() == platform);
+    }
+
+    private static void appendTop(StringBuilder sb, Map<Key, Stat> stats, Platform platform, int limit) {
+        stats.entrySet().stream()
+                .filter(e -> e.getKey().platform() == platform)
+                .sorted(Comparator.comparingLong((Map.Entry<Key, Stat> e) -> e.getValue().getTotalMillis()).reversed())
+                .limit(limit)
+                .forEach(e -> {
+                    Stat stat = e.getValue();
+                    sb.append(String.format("%n  %s 次数:%d 失败:%d 总耗时:%dms 平均:%dms p95:%dms 最大:%dms",
+                            e.getKey().name(), stat.getCount(), stat.getFailures(), stat.getTotalMillis(),
+                            stat.getTotalMillis() / Math.max(1, stat.getCount()), stat.percentile(0.95),
+                            stat.getMaxMillis()));
+                });
+    }
+
+    public static Platform currentPlatform() {
+        return currentPlatform;
+    }
+
+    /**
+     * 浏览器导航到新链接时更新当前平台
+     */
+    public static void navigate(String url) {
+        Platform platform = platformOf(url);
+        if (platform != Platform.UNKNOWN) {
+            currentPlatform = platform;
+        }
+    }
+
+    /**
+     * 根据链接判断所属平台
+     */
+    public static Platform platformOf(String url) {
+        if (url == null) {
+            return Platform.UNKNOWN;
+        }
+        if (url.contains("zhipin.com")) {
+            return Platform.BOSS;
+        }
+        if (url.contains("liepin.com")) {
+            return Platform.LIEPIN;
+        }
+        if (url.contains("51job.com")) {
+            return Platform.JOB51;
+        }
+        if (url.contains("zhaopin.com")) {
+            return Platform.ZHILIAN;
+        }
+        if (url.contains("lagou.com")) {
+            return Platform.LAGOU;
+        }
+        return Platform.UNKNOWN;
+    }
+}
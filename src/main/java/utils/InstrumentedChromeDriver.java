@@ -0,0 +1,58 @@
+package utils;
+
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.remote.DriverCommand;
+import org.openqa.selenium.remote.Response;
+
+import java.util.Map;
+
+/**
+ * 带耗时统计的 ChromeDriver：所有浏览器命令（包括 WebElement 上的查找、点击以及 WAIT.until 的每次轮询）
+ * 最终都经过 execute，在这里统一计时并写入 {@link DriverMetrics}，被 try/catch 吞掉的失败也能统计到；
+ * 同时计入 {@link Tracer} 当前 span，查找元素和页面加载算作等待页面，其余命令算作实际工作
+ *
+ * @author loks666 项目链接:
+ *         <a href="https://github.com/loks666/get_jobs">https://github.com/loks666/get_jobs</a>
+ */
+public class InstrumentedChromeDriver extends ChromeDriver {
+
+    public InstrumentedChromeDriver(ChromeOptions options) {
+        super(options);
+    }
+
+    @Override
+    protected Response execute(String driverCommand, Map<String, ?> parameters) {
+        if (DriverCommand.GET.equals(driverCommand) && parameters != null) {
+            DriverMetrics.navigate(String.valueOf(parameters.get("url")));
+        }
+        Platform platform = DriverMetrics.currentPlatform();
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Response response = super.execute(driverCommand, parameters);
+            success = true;
+            return response;
+        } finally {
+            long nanos = System.nanoTime() - start;
+            DriverMetrics.record(platform, driverCommand, locator(driverCommand, parameters), nanos, success);
+            if (!success) {
+                Metrics.DRIVER_ERRORS.inc(platform.name(), driverCommand);
+            }
+            Tracer.account(platform, driverCommand, isWaiting(driverCommand) ? Tracer.Category.DOM
+                    : Tracer.Category.WORK, nanos);
+        }
+    }
+
+    private static boolean isWaiting(String driverCommand) {
+        return driverCommand.startsWith("find") || DriverCommand.GET.equals(driverCommand)
+                || DriverCommand.REFRESH.equals(driverCommand);
+    }
+
+    private static String locator(String driverCommand, Map<String, ?> parameters) {
+        if (parameters == null || !parameters.containsKey("using") || !driverCommand.startsWith("find")) {
+            return null;
+        }
+        return parameters.get("using") + "=" + parameters.get("value");
+    }
+}
@@ -55,6 +55,16 @@ public class Job implements Serializable {
      */
     private String companyInfo;
 
+    /**
+     * 岗位描述(JD)
+     */
+    private String jobDescription;
+
+    /**
+     * HR活跃状态
+     */
+    private String hrActiveTime;
+
     @Override
     public String toString() {
         return String.format("【%s, %s, %s, %s, %s, %s】", companyName, jobName, jobArea, salary,
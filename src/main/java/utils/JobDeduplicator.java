@@ -0,0 +1,322 @@
+package utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * 跨平台重复岗位检测
+ * <p>
+ * 对公司名、岗位名、地区和JD做归一化后计算64位 SimHash 指纹，并按公司名+指纹分段建立索引： 汉明距离不超过 d 的两个指纹，在 d+1 段中至少有一段完全相同，因此每次查询只需 d+1 次哈希查找。
+ * 每个岗位保存两个指纹：岗位名+地区的头部指纹，以及包含JD的完整指纹；部分平台列表页拿不到JD，此时只比较头部指纹。
+ * 岗位名为空时头部指纹会和同公司的任意岗位相近，这类岗位不参与检测。指纹保留 expireDays 天，加载时丢弃超期的指纹并重写文件。
+ *
+ * @author loks666 项目链接:
+ *         <a href="https://github.com/loks666/get_jobs">https://github.com/loks666/get_jobs</a>
+ */
+@Slf4j
+public class JobDeduplicator {
+
+    private static final DedupConfig config = DedupConfig.init();
+    /**
+     * 允许的最大汉明距离
+     */
+    private static final int maxDistance = (int) Math.floor((1 - config.getSimilarity()) * 64);
+    private static final int bands = maxDistance + 1;
+    private static final Map<String, List<Fingerprint>> index = new HashMap<>();
+    private static boolean loaded = false;
+
+    private record Fingerprint(String company, long head, Long full, String platform, long time, String desc) {
+    }
+
+    /**
+     * 判断岗位是否已在任一平台投递过（近似重复）
+     *
+     * @param job 岗位
+     * @param platform 当前平台
+     * @return 是否重复
+     */
+    public static synchronized boolean isDuplicate(Job job, Platform platform) {
+        if (!config.getEnable()) {
+            return false;
+        }
+        load();
+        String company = normalizeCompany(job.getCompanyName());
+        if (company.isEmpty() || normalizeTitle(job.getJobName()).isEmpty()) {
+            return false;
+        }
+        Fingerprint match = find(company, headHash(job), fullHash(job));
+        if (match != null) {
+            log.info("跳过重复岗位:【{}】{} 已于【{}】投递过 {}", platform.getPlatformName(), job,
+                    match.platform(), match.desc());
+            Metrics.reject(platform, "duplicate");
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 双方都有JD时只按完整指纹判断，任一方缺少JD时才按头部指纹判断
+     */
+    private static Fingerprint find(String company, long head, Long full) {
+        long cutoff = expireCutoff();
+        for (int band = 0; band < bands; band++) {
+            for (Fingerprint candidate : index.getOrDefault(bandKey("h", company, head, band), List.of())) {
+                if (candidate.time() >= cutoff && (full == null || candidate.full() == null)
+                        && Long.bitCount(candidate.head() ^ head) <= maxDistance) {
+                    return candidate;
+                }
+            }
+            if (full == null) {
+                continue;
+            }
+            for (Fingerprint candidate : index.getOrDefault(bandKey("f", company, full, band), List.of())) {
+                if (candidate.time() >= cutoff && Long.bitCount(candidate.full() ^ full) <= maxDistance) {
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 记录已投递的岗位指纹
+     *
+     * @param job 岗位
+     * @param platform 投递平台
+     */
+    public static synchronized void record(Job job, Platform platform) {
+        if (!config.getEnable()) {
+            return;
+        }
+        load();
+        String company = normalizeCompany(job.getCompanyName());
+        if (company.isEmpty() || normalizeTitle(job.getJobName()).isEmpty()) {
+            return;
+        }
+        Fingerprint fingerprint = new Fingerprint(company, headHash(job), fullHash(job), platform.getPlatformName(),
+                System.currentTimeMillis(),
+                String.format("【%s, %s】", job.getCompanyName(), job.getJobName()).replaceAll("[\t\n]", " "));
+        put(fingerprint);
+        Path path = Paths.get(config.getPath());
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(format(fingerprint));
+            writer.newLine();
+        } catch (IOException e) {
+            log.error("保存岗位指纹失败！路径:{}", path);
+        }
+    }
+
+    private static String format(Fingerprint fingerprint) {
+        return String.join("\t", fingerprint.company(), Long.toHexString(fingerprint.head()),
+                fingerprint.full() == null ? "-" : Long.toHexString(fingerprint.full()),
+                fingerprint.platform(), Long.toString(fingerprint.time()), fingerprint.desc());
+    }
+
+    /**
+     * 指纹的最早保留时间
+     */
+    private static long expireCutoff() {
+        return System.currentTimeMillis() - config.getExpireDays() * 24L * 60 * 60 * 1000;
+    }
+
+    private static void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        Path path = Paths.get(config.getPath());
+        if (!Files.exists(path)) {
+            return;
+        }
+        List<Fingerprint> kept = new ArrayList<>();
+        int expired = 0;
+        try {
+            // 旧格式没有时间字段，按文件修改时间计算
+            long modified = Files.getLastModifiedTime(path).toMillis();
+            long cutoff = expireCutoff();
+            for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                String[] parts = line.split("\t", 6);
+                if (parts.length < 5) {
+                    continue;
+                }
+                Long full = "-".equals(parts[2]) ? null : Long.parseUnsignedLong(parts[2], 16);
+                long time = parts.length == 6 ? Long.parseLong(parts[4]) : modified;
+                if (time < cutoff) {
+                    expired++;
+                    continue;
+                }
+                Fingerprint fingerprint = new Fingerprint(parts[0], Long.parseUnsignedLong(parts[1], 16), full,
+                        parts[3], time, parts[parts.length - 1]);
+                put(fingerprint);
+                kept.add(fingerprint);
+            }
+            log.info("已加载岗位指纹{}条，相似度阈值{}(最大汉明距离{})", kept.size(), config.getSimilarity(), maxDistance);
+        } catch (Exception e) {
+            log.error("读取岗位指纹失败！路径:{}", path);
+            return;
+        }
+        if (expired > 0) {
+            rewrite(path, kept);
+            log.info("已清理超过{}天的岗位指纹{}条", config.getExpireDays(), expired);
+        }
+    }
+
+    /**
+     * 只保留未过期的指纹：先写临时文件再原子替换
+     */
+    private static void rewrite(Path path, List<Fingerprint> fingerprints) {
+        Path temp = Paths.get(path + ".tmp");
+        try {
+            List<String> lines = new ArrayList<>();
+            for (Fingerprint fingerprint : fingerprints) {
+                lines.add(format(fingerprint));
+            }
+            Files.write(temp, lines, StandardCharsets.UTF_8);
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            log.error("清理岗位指纹失败！路径:{}", path);
+        }
+    }
+
+    private static void put(Fingerprint fingerprint) {
+        for (int band = 0; band < bands; band++) {
+            index.computeIfAbsent(bandKey("h", fingerprint.company(), fingerprint.head(), band),
+                    k -> new ArrayList<>()).add(fingerprint);
+            if (fingerprint.full() != null) {
+                index.computeIfAbsent(bandKey("f", fingerprint.company(), fingerprint.full(), band),
+                        k -> new ArrayList<>()).add(fingerprint);
+            }
+        }
+    }
+
+    private static String bandKey(String kind, String company, long hash, int band) {
+        int from = band * 64 / bands;
+        int to = (band + 1) * 64 / bands;
+        long mask = to - from == 64 ? -1L : ((1L << (to - from)) - 1) << from;
+        return kind + '#' + company + '#' + band + '#' + Long.toHexString(hash & mask);
+    }
+
+    /**
+     * 头部指纹：岗位名二元组 + 地区
+     */
+    static long headHash(Job job) {
+        int[] vector = new int[64];
+        addHead(vector, job);
+        return toHash(vector);
+    }
+
+    /**
+     * 完整指纹：头部特征叠加JD三元组(shingle)，没有JD时返回 null
+     */
+    static Long fullHash(Job job) {
+        String jd = normalizeText(job.getJobDescription());
+        if (jd.isEmpty()) {
+            return null;
+        }
+        int[] vector = new int[64];
+        addHead(vector, job);
+        for (String gram : shingles(jd, 3)) {
+            addFeature(vector, "d:" + gram, 1);
+        }
+        return toHash(vector);
+    }
+
+    private static void addHead(int[] vector, Job job) {
+        String title = normalizeTitle(job.getJobName());
+        for (String gram : shingles(title, 2)) {
+            addFeature(vector, "t:" + gram, 3);
+        }
+        String area = normalizeArea(job.getJobArea());
+        if (!area.isEmpty()) {
+            addFeature(vector, "a:" + area, 2);
+        }
+    }
+
+    private static long toHash(int[] vector) {
+        long hash = 0;
+        for (int i = 0; i < 64; i++) {
+            if (vector[i] > 0) {
+                hash |= 1L << i;
+            }
+        }
+        return hash;
+    }
+
+    private static void addFeature(int[] vector, String feature, int weight) {
+        long h = hash64(feature);
+        for (int i = 0; i < 64; i++) {
+            vector[i] += ((h >>> i) & 1) == 1 ? weight : -weight;
+        }
+    }
+
+    private static Set<String> shingles(String text, int size) {
+        Set<String> result = new LinkedHashSet<>();
+        if (text.length() <= size) {
+            if (!text.isEmpty()) {
+                result.add(text);
+            }
+            return result;
+        }
+        for (int i = 0; i + size <= text.length(); i++) {
+            result.add(text.substring(i, i + size));
+        }
+        return result;
+    }
+
+    /**
+     * 64位 FNV-1a 哈希，并做一次 murmur 风格的混淆以打散低位
+     */
+    private static long hash64(String text) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            h ^= text.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    static String normalizeCompany(String company) {
+        if (company == null) {
+            return "";
+        }
+        return normalizeText(company.replaceAll("[（(][^）)]*[）)]", "")
+                .replaceAll("(有限责任公司|股份有限公司|有限公司|集团|分公司|公司)$", ""));
+    }
+
+    /**
+     * 岗位名去掉括号内的补充说明，如 "Java开发工程师（P6）"、"【急招】"
+     */
+    private static String normalizeTitle(String title) {
+        if (title == null) {
+            return "";
+        }
+        return normalizeText(title.replaceAll("[（(【\\[][^）)】\\]]*[）)】\\]]", ""));
+    }
+
+    private static String normalizeArea(String area) {
+        if (area == null) {
+            return "";
+        }
+        return normalizeText(area.split("[·\\-]")[0]);
+    }
+
+    private static String normalizeText(String text) {
+        if (text == null) {
+            return "";
+        }
+        return text.toLowerCase(Locale.ROOT).replaceAll("[\\s\\p{Punct}【】（）()，。、；：！？“”‘’·]", "");
+    }
+}
@@ -0,0 +1,88 @@
+package utils;
+
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * 招聘平台SPI：把登录、搜索、提取、过滤、投递拆成独立阶段，由 {@link CrawlPipeline} 用有界队列串联调度
+ * <p>
+ * 实现类需有无参构造方法，并登记在 META-INF/services/utils.JobPlatform 中
+ *
+ * @author loks666 项目链接:
+ *         <a href="https://github.com/loks666/get_jobs">https://github.com/loks666/get_jobs</a>
+ */
+public interface JobPlatform {
+
+    /**
+     * 搜索任务，例如 Boss 的一个城市+关键词组合
+     *
+     * @param keyword 搜索关键词
+     * @param url 搜索链接（不含页码）
+     */
+    record SearchTask(String keyword, String url) {
+    }
+
+    /**
+     * 投递结果
+     */
+    enum DeliveryResult {
+        /**
+         * 投递成功
+         */
+        DELIVERED,
+        /**
+         * 跳过该岗位
+         */
+        SKIPPED,
+        /**
+         * 今日投递已达上限，停止该平台
+         */
+        LIMIT,
+        /**
+         * 出现异常访问/验证，停止该平台
+         */
+        BLOCKED
+    }
+
+    Platform platform();
+
+    /**
+     * 登录阶段
+     */
+    void login();
+
+    /**
+     * 搜索阶段：生成该平台的全部搜索任务
+     */
+    List<SearchTask> search();
+
+    /**
+     * 提取阶段：翻页读取搜索结果，每提取到一个岗位就交给下游；下游队列满时会阻塞，从而产生背压
+     *
+     * @param task 搜索任务
+     * @param sink 下游
+     * @param stopped 平台是否已停止（达上限或被风控），提取过程中应及时检查
+     */
+    void extract(SearchTask task, Consumer<Job> sink, BooleanSupplier stopped);
+
+    /**
+     * 过滤阶段：不占用浏览器，可并发执行（例如AI检测）
+     *
+     * @return 是否继续投递
+     */
+    default boolean filter(SearchTask task, Job job) {
+        return true;
+    }
+
+    /**
+     * 投递阶段
+     */
+    DeliveryResult deliver(SearchTask task, Job job);
+
+    /**
+     * 所有阶段结束后的收尾工作，例如打印结果；浏览器由调用方统一关闭，这里不要关闭
+     */
+    default void finish() {
+    }
+}
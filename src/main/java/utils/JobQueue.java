@@ -0,0 +1,308 @@
+package utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 持久化的待投递队列：发现端把提取到的岗位追加到队列文件，投递端按顺序读取，投递完成后追加到完成记录文件
+ * <p>
+ * 两个文件都是只追加的 JSONL，发现端和投递端可以是两个独立运行的进程，各自随时停止、重启：
+ * 重启后已入队的岗位不会重复入队，已完成的岗位不会重复投递。队列文件中还记录已提取完的搜索任务，
+ * 发现端重启时在 staleHours 内跳过这些任务。写入时对队列文件加文件锁；投递端只读取以换行结尾的完整行，
+ * 不会读到发现端写了一半的记录。队列全部投递完后由投递端压缩两个文件。
+ *
+ * @author loks666 项目链接:
+ *         <a href="https://github.com/loks666/get_jobs">https://github.com/loks666/get_jobs</a>
+ */
+public class JobQueue {
+    private static final Logger log = LoggerFactory.getLogger(JobQueue.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * 岗位记录完成时的状态
+     */
+    public enum Status {
+        DELIVERED, SKIPPED, STALE
+    }
+
+    /**
+     * 队列中的一个岗位
+     *
+     * @param id 岗位唯一标识（岗位链接）
+     * @param task 提取该岗位的搜索任务
+     * @param job 岗位
+     * @param enqueuedAt 入队时间
+     */
+    public record Entry(String id, JobPlatform.SearchTask task, Job job, long enqueuedAt) {
+    }
+
+    private final Platform platform;
+    private final QueueConfig config;
+    private final Path queuePath;
+    private final Path donePath;
+    /**
+     * 已入队的岗位，发现端用于去重
+     */
+    private final Set<String> queued = new HashSet<>();
+    /**
+     * 已完成的岗位，投递端用于跳过
+     */
+    private final Set<String> done = new HashSet<>();
+    /**
+     * 已提取完的搜索任务及完成时间
+     */
+    private final Map<String, Long> finishedTasks = new HashMap<>();
+    private final Deque<Entry> pending = new ArrayDeque<>();
+    /**
+     * 队列文件已读取到的位置
+     */
+    private long offset;
+
+    private JobQueue(Platform platform, QueueConfig config) {
+        this.platform = platform;
+        this.config = config;
+        String name = platform.name().toLowerCase();
+        this.queuePath = Paths.get(config.getPath(), name + ".queue.jsonl");
+        this.donePath = Paths.get(config.getPath(), name + ".done.jsonl");
+    }
+
+    /**
+     * 打开平台的队列，读取已有的队列和完成记录
+     */
+    public static JobQueue open(Platform platform) {
+        JobQueue queue = new JobQueue(platform, QueueConfig.init());
+        try {
+            Files.createDirectories(queue.queuePath.getParent());
+            if (Files.exists(queue.donePath)) {
+                for (String line : Files.readAllLines(queue.donePath, StandardCharsets.UTF_8)) {
+                    if (!line.isBlank()) {
+                        queue.done.add(MAPPER.readTree(line).path("id").asText());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.error("读取{}队列完成记录失败：{}", platform.getPlatformName(), e.getMessage());
+        }
+        queue.refresh();
+        log.info("{}队列：待投递{}个，已完成{}个", platform.getPlatformName(), queue.pending.size(), queue.done.size());
+        return queue;
+    }
+
+    /**
+     * 岗位入队，已在队列中或已完成的岗位不会重复入队
+     *
+     * @return 是否入队
+     */
+    public boolean offer(JobPlatform.SearchTask task, Job job) {
+        String id = job.getHref();
+        if (id == null || queued.contains(id) || done.contains(id)) {
+            return false;
+        }
+        ObjectNode line = MAPPER.createObjectNode();
+        line.put("type", "job");
+        line.put("id", id);
+        line.put("keyword", task.keyword());
+        line.put("url", task.url());
+        line.put("at", System.currentTimeMillis());
+        line.set("job", MAPPER.valueToTree(job));
+        if (append(queuePath, line)) {
+            queued.add(id);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 记录搜索任务已提取完
+     */
+    public void finishTask(JobPlatform.SearchTask task) {
+        ObjectNode line = MAPPER.createObjectNode();
+        line.put("type", "task");
+        line.put("id", taskId(task));
+        line.put("at", System.currentTimeMillis());
+        if (append(queuePath, line)) {
+            finishedTasks.put(taskId(task), System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * 搜索任务是否在有效期内已提取完
+     */
+    public boolean isTaskFinished(JobPlatform.SearchTask task) {
+        Long at = finishedTasks.get(taskId(task));
+        return at != null && !isStale(at);
+    }
+
+    /**
+     * 取出下一个待投递的岗位，会先读取发现端新写入的记录
+     *
+     * @return 没有待投递的岗位时返回null
+     */
+    public Entry poll() {
+        if (pending.isEmpty()) {
+            refresh();
+        }
+        return pending.poll();
+    }
+
+    /**
+     * 岗位是否已过期
+     */
+    public boolean isStale(Entry entry) {
+        return isStale(entry.enqueuedAt());
+    }
+
+    /**
+     * 记录岗位已完成，下次运行不再投递
+     */
+    public void complete(Entry entry, Status status) {
+        ObjectNode line = MAPPER.createObjectNode();
+        line.put("id", entry.id());
+        line.put("status", status.name());
+        line.put("at", System.currentTimeMillis());
+        if (append(donePath, line)) {
+            done.add(entry.id());
+        }
+    }
+
+    /**
+     * 把未完成的岗位放回队首，下次运行时最先投递
+     */
+    public void putBack(Entry entry) {
+        pending.addFirst(entry);
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * 队列全部完成后压缩文件：只保留有效期内的已提取任务，清空岗位和完成记录
+     * <p>
+     * 压缩在队列文件锁内进行，期间发现端如果写入了新岗位则放弃压缩。
+     */
+    public void compactIfDrained() {
+        if (!pending.isEmpty() || done.isEmpty()) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(queuePath, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // 关闭通道时自动释放文件锁
+            channel.lock();
+            if (channel.size() != offset) {
+                return;
+            }
+            StringBuilder tasks = new StringBuilder();
+            for (Map.Entry<String, Long> task : finishedTasks.entrySet()) {
+                if (!isStale(task.getValue())) {
+                    ObjectNode line = MAPPER.createObjectNode();
+                    line.put("type", "task");
+                    line.put("id", task.getKey());
+                    line.put("at", task.getValue());
+                    tasks.append(MAPPER.writeValueAsString(line)).append('\n');
+                }
+            }
+            byte[] bytes = tasks.toString().getBytes(StandardCharsets.UTF_8);
+            channel.truncate(0);
+            channel.write(ByteBuffer.wrap(bytes), 0);
+            channel.force(true);
+            Files.deleteIfExists(donePath);
+            offset = bytes.length;
+            queued.clear();
+            done.clear();
+            log.info("{}队列已全部投递，压缩队列文件", platform.getPlatformName());
+        } catch (IOException e) {
+            log.error("压缩{}队列失败：{}", platform.getPlatformName(), e.getMessage());
+        }
+    }
+
+    /**
+     * 从上次读取的位置继续读取队列文件中完整的行
+     */
+    private void refresh() {
+        if (!Files.exists(queuePath)) {
+            return;
+        }
+        try (RandomAccessFile file = new RandomAccessFile(queuePath.toFile(), "r")) {
+            if (file.length() < offset) {
+                // 队列被其他进程压缩过，从头读取
+                offset = 0;
+            }
+            byte[] bytes = new byte[(int) (file.length() - offset)];
+            file.seek(offset);
+            file.readFully(bytes);
+            int end = lastNewline(bytes);
+            if (end < 0) {
+                return;
+            }
+            String text = new String(bytes, 0, end + 1, StandardCharsets.UTF_8);
+            offset += end + 1;
+            for (String line : text.split("\n")) {
+                if (!line.isBlank()) {
+                    read(MAPPER.readTree(line));
+                }
+            }
+        } catch (IOException e) {
+            log.error("读取{}队列失败：{}", platform.getPlatformName(), e.getMessage());
+        }
+    }
+
+    private void read(JsonNode line) throws IOException {
+        String id = line.path("id").asText();
+        long at = line.path("at").asLong();
+        if ("task".equals(line.path("type").asText())) {
+            finishedTasks.merge(id, at, Math::max);
+            return;
+        }
+        if (!queued.add(id) || done.contains(id)) {
+            return;
+        }
+        Job job = MAPPER.treeToValue(line.path("job"), Job.class);
+        pending.add(new Entry(id, new JobPlatform.SearchTask(line.path("keyword").asText(),
+                line.path("url").asText()), job, at));
+    }
+
+    private boolean append(Path path, JsonNode line) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            channel.lock();
+            channel.write(ByteBuffer.wrap((MAPPER.writeValueAsString(line) + "\n").getBytes(StandardCharsets.UTF_8)));
+            channel.force(false);
+            return true;
+        } catch (IOException e) {
+            log.error("写入{}队列失败：{}", platform.getPlatformName(), e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean isStale(long at) {
+        return System.currentTimeMillis() - at > TimeUnit.HOURS.toMillis(config.getStaleHours());
+    }
+
+    private static int lastNewline(byte[] bytes) {
+        for (int i = bytes.length - 1; i >= 0; i--) {
+            if (bytes[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String taskId(JobPlatform.SearchTask task) {
+        return task.url() + "&query=" + task.keyword();
+    }
+}
@@ -0,0 +1,658 @@
+package utils;
+
+import ai.AiFilter;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.json.JSONObject;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * 岗位历史库：嵌入式、基于文件的追加日志存储
+ * <p>
+ * 保存各平台的岗位列表、投递记录、黑名单和AI检测结果，每条记录一行JSON追加到文件末尾，启动时重放日志重建内存索引。
+ * 索引包括：平台+岗位ID的哈希索引、公司名的哈希索引、时间戳的有序索引，查询不再需要线性扫描列表。
+ * 岗位列表和AI检测结果批量写入，投递记录和黑名单立即落盘，避免中途退出后重复投递。
+ * <p>
+ * 日志条数超过阈值后压缩为快照：先写临时文件，再原子重命名覆盖旧快照，最后清空日志。每条记录带递增序号，
+ * 快照中保存已包含的最大序号，启动时加载快照后只重放序号更大的日志，因此任一步骤中途崩溃都不会丢失或重复记录。
+ * <p>
+ * StartAll 启动的多个平台进程共用同一份文件，读写日志和压缩都在 {@code store.jsonl.lock} 的文件锁内进行：
+ * 加锁后先读入其他进程追加的日志，再分配序号并写入，因此序号全局递增；其他进程压缩过（快照序号变化）时重新加载。
+ * 岗位列表记录只保留 listingDays 天，超期的记录在加载时跳过、压缩时从索引和快照中移除。
+ *
+ * @author loks666 项目链接:
+ *         <a href="https://github.com/loks666/get_jobs">https://github.com/loks666/get_jobs</a>
+ */
+@Slf4j
+public class JobStore {
+
+    private static final StoreConfig config = StoreConfig.init();
+    private static final Map<String, List<Entry>> jobIndex = new HashMap<>();
+    private static final Map<String, List<Entry>> companyIndex = new HashMap<>();
+    private static final NavigableMap<Long, List<Entry>> timeIndex = new TreeMap<>();
+    private static final Map<String, Set<String>> blacklists = new HashMap<>();
+    private static final JsonFactory jsonFactory = new ObjectMapper().getFactory();
+    private static final List<Entry> pending = new ArrayList<>();
+    /**
+     * 各平台的累计投递数，建索引时累加，避免统计时扫描全部记录
+     */
+    private static final Map<Platform, Integer> deliveryCounts = new EnumMap<>(Platform.class);
+    private static boolean loaded = false;
+    /**
+     * 已读到的最大序号
+     */
+    private static long seq = 0;
+    /**
+     * 当前已加载快照的序号
+     */
+    private static long snapshotSeq = 0;
+    /**
+     * 日志文件中已读入内存的字节数
+     */
+    private static long journalOffset = 0;
+    /**
+     * 日志文件中尚未压缩进快照的记录数
+     */
+    private static int journalSize = 0;
+
+    public enum Kind {
+        LISTING, DELIVERY, BLACKLIST, VERDICT
+    }
+
+    public record Entry(Kind kind, Platform platform, String jobId, String company, long time, JSONObject data) {
+    }
+
+    /**
+     * 记录搜索到的岗位（批量写入）
+     */
+    public static synchronized void recordListing(Platform platform, Job job) {
+        append(new Entry(Kind.LISTING, platform, jobId(job), job.getCompanyName(), System.currentTimeMillis(),
+                describe(job)), false);
+    }
+
+    /**
+     * 记录投递成功的岗位（立即写入）
+     */
+    public static synchronized void recordDelivery(Platform platform, Job job) {
+        Metrics.DELIVERIES.inc(platform.name());
+        append(new Entry(Kind.DELIVERY, platform, jobId(job), job.getCompanyName(), System.currentTimeMillis(),
+                describe(job)), true);
+    }
+
+    /**
+     * 记录AI检测结果（批量写入）
+     */
+    public static synchronized void recordVerdict(Platform platform, Job job, AiFilter filter) {
+        JSONObject data = new JSONObject();
+        data.put("result", filter.getResult());
+        data.put("message", filter.getMessage() == null ? "" : filter.getMessage());
+        append(new Entry(Kind.VERDICT, platform, jobId(job), job.getCompanyName(), System.currentTimeMillis(),
+                data), false);
+    }
+
+    /**
+     * 添加黑名单（立即写入）
+     *
+     * @param type 黑名单类型，例如 company、recruiter、job
+     * @return 是否为新增
+     */
+    public static synchronized boolean addBlacklist(Platform platform, String type, String value) {
+        load();
+        if (value == null || value.isBlank() || blacklist(platform, type).contains(value)) {
+            return false;
+        }
+        JSONObject data = new JSONObject();
+        data.put("type", type);
+        data.put("value", value);
+        append(new Entry(Kind.BLACKLIST, platform, null, null, System.currentTimeMillis(), data), true);
+        return true;
+    }
+
+    /**
+     * 获取黑名单的副本
+     */
+    public static synchronized Set<String> getBlacklist(Platform platform, String type) {
+        load();
+        return new HashSet<>(blacklist(platform, type));
+    }
+
+    /**
+     * 岗位是否已在该平台投递过，只查询不计入指标，跳过岗位的调用方自行记录
+     */
+    public static synchronized boolean isDelivered(Platform platform, Job job) {
+        load();
+        return find(platform, job, Kind.DELIVERY) != null;
+    }
+
+    /**
+     * 外部数据（例如 data.json）的该版本是否已导入过
+     *
+     * @param source 来源标识，例如文件路径加修改时间
+     */
+    public static synchronized boolean isImported(Platform platform, String source) {
+        load();
+        return blacklist(platform, "import").contains(source);
+    }
+
+    /**
+     * 记录外部数据已导入，与黑名单一起保存
+     */
+    public static synchronized void markImported(Platform platform, String source) {
+        addBlacklist(platform, "import", source);
+    }
+
+    /**
+     * 查询该岗位之前的AI检测结果
+     *
+     * @return 没有检测过时返回 null
+     */
+    public static synchronized AiFilter findVerdict(Platform platform, Job job) {
+        load();
+        Entry entry = find(platform, job, Kind.VERDICT);
+        if (entry == null) {
+            return null;
+        }
+        String message = entry.data().optString("message", "");
+        return new AiFilter(entry.data().optBoolean("result"), message.isEmpty() ? null : message);
+    }
+
+    /**
+     * 查询公司在所有平台的历史记录
+     */
+    public static synchronized List<Entry> findByCompany(String company) {
+        load();
+        return new ArrayList<>(companyIndex.getOrDefault(JobDeduplicator.normalizeCompany(company), List.of()));
+    }
+
+    /**
+     * 查询时间区间内的记录
+     *
+     * @param platform 平台，为 null 时查询全部平台
+     * @param kind 记录类型
+     * @param from 起始时间（包含）
+     * @param to 结束时间（不包含）
+     */
+    public static synchronized List<Entry> findByTime(Platform platform, Kind kind, Date from, Date to) {
+        load();
+        List<Entry> result = new ArrayList<>();
+        for (List<Entry> entries : timeIndex.subMap(from.getTime(), true, to.getTime(), false).values()) {
+            for (Entry entry : entries) {
+                if (entry.kind() == kind && (platform == null || entry.platform() == platform)) {
+                    result.add(entry);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 生成投递统计，例如：本次投递5个，今日共投递12个，累计投递300个
+     */
+    public static synchronized String report(Platform platform, Date startDate) {
+        Date now = new Date();
+        return String.format("本次投递%d个，今日共投递%d个，累计投递%d个",
+                findByTime(platform, Kind.DELIVERY, startDate, now).size(),
+                deliveredToday(platform),
+                deliveryCounts.getOrDefault(platform, 0));
+    }
+
+    /**
+     * 今日已投递数
+     */
+    public static synchronized int deliveredToday(Platform platform) {
+        Calendar today = Calendar.getInstance();
+        today.set(Calendar.HOUR_OF_DAY, 0);
+        today.set(Calendar.MINUTE, 0);
+        today.set(Calendar.SECOND, 0);
+        today.set(Calendar.MILLISECOND, 0);
+        return findByTime(platform, Kind.DELIVERY, today.getTime(), new Date()).size();
+    }
+
+    /**
+     * 将批量缓存的记录写入文件
+     */
+    public static synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        withLock(() -> {
+            catchUp();
+            writePending();
+            if (journalSize >= config.getCompactThreshold()) {
+                writeSnapshot();
+            }
+        });
+    }
+
+    /**
+     * 将全部记录压缩为快照并清空日志
+     */
+    public static synchronized void compact() {
+        load();
+        withLock(() -> {
+            catchUp();
+            writePending();
+            writeSnapshot();
+        });
+    }
+
+    /**
+     * 在文件锁内执行，同一进程内由 synchronized 互斥
+     */
+    private static void withLock(Runnable action) {
+        Path lock = Paths.get(config.getPath() + ".lock");
+        try (FileChannel channel = FileChannel.open(lock, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            // 关闭通道时自动释放文件锁
+            channel.lock();
+            action.run();
+        } catch (IOException e) {
+            log.error("锁定岗位历史库失败！路径:{}，{}", lock, e.getMessage());
+        }
+    }
+
+    /**
+     * 读入其他进程追加的日志；其他进程压缩过时重新加载快照和日志
+     */
+    private static void catchUp() {
+        Path journal = Paths.get(config.getPath());
+        try {
+            long size = Files.exists(journal) ? Files.size(journal) : 0;
+            if (readSnapshotSeq() != snapshotSeq || size < journalOffset) {
+                reload();
+            } else if (size > journalOffset) {
+                replay(journal);
+            }
+        } catch (IOException e) {
+            log.error("读取岗位历史库失败！路径:{}", journal);
+        }
+    }
+
+    /**
+     * 分配序号并追加到日志
+     */
+    private static void writePending() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Path path = Paths.get(config.getPath());
+        StringBuilder lines = new StringBuilder();
+        for (Entry entry : pending) {
+            lines.append(toJson(entry).put("seq", ++seq)).append('\n');
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            ByteBuffer last = ByteBuffer.allocate(1);
+            if (size > 0 && channel.read(last, size - 1) == 1 && last.get(0) != '\n') {
+                // 异常退出留下的不完整行单独成行，不能和新记录连在一起
+                lines.insert(0, '\n');
+            }
+            channel.write(ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8)), size);
+            channel.force(false);
+            journalOffset = channel.size();
+            journalSize += pending.size();
+            pending.clear();
+        } catch (IOException e) {
+            log.error("写入岗位历史库失败！路径:{}", path);
+        }
+    }
+
+    /**
+     * 写入快照并清空日志，调用前已读入全部日志
+     */
+    private static void writeSnapshot() {
+        pruneListings();
+        Path journal = Paths.get(config.getPath());
+        Path snapshot = snapshotPath();
+        Path temp = Paths.get(snapshot + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp.toFile());
+                JsonGenerator generator = jsonFactory.createGenerator(out, JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            // 序号必须是第一个字段，其他进程只读取它判断快照是否变化
+            generator.writeNumberField("seq", seq);
+            generator.writeObjectFieldStart("blacklists");
+            for (Map.Entry<String, Set<String>> blacklist : blacklists.entrySet()) {
+                generator.writeArrayFieldStart(blacklist.getKey());
+                for (String value : blacklist.getValue()) {
+                    generator.writeString(value);
+                }
+                generator.writeEndArray();
+            }
+            generator.writeEndObject();
+            generator.writeArrayFieldStart("entries");
+            for (List<Entry> entries : timeIndex.values()) {
+                for (Entry entry : entries) {
+                    writeEntry(generator, entry);
+                }
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+            generator.flush();
+            out.getFD().sync();
+        } catch (IOException e) {
+            log.error("写入岗位历史库快照失败！路径:{}", temp);
+            return;
+        }
+        try {
+            Files.move(temp, snapshot, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            snapshotSeq = seq;
+            // 快照已包含日志中的全部记录，此时崩溃也只会在下次启动时跳过这些日志
+            Files.write(journal, new byte[0]);
+            log.info("岗位历史库已压缩为快照，共{}条日志", journalSize);
+            journalSize = 0;
+            journalOffset = 0;
+        } catch (IOException e) {
+            log.error("替换岗位历史库快照失败！路径:{}", snapshot);
+        }
+    }
+
+    /**
+     * 岗位ID：优先取岗位链接的最后一段（如 job_detail/xxx.html 中的 xxx），没有链接时用公司名+岗位名
+     */
+    public static String jobId(Job job) {
+        String href = job.getHref();
+        if (href != null && !href.isBlank()) {
+            String path = href.split("[?#]")[0];
+            if (path.endsWith("/")) {
+                path = path.substring(0, path.length() - 1);
+            }
+            String id = path.substring(path.lastIndexOf('/') + 1);
+            int dot = id.lastIndexOf('.');
+            id = dot > 0 ? id.substring(0, dot) : id;
+            if (!id.isEmpty()) {
+                return id;
+            }
+        }
+        return JobDeduplicator.normalizeCompany(job.getCompanyName()) + "|" + job.getJobName();
+    }
+
+    private static Entry find(Platform platform, Job job, Kind kind) {
+        List<Entry> entries = jobIndex.getOrDefault(platform.name() + "#" + jobId(job), List.of());
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            if (entries.get(i).kind() == kind) {
+                return entries.get(i);
+            }
+        }
+        return null;
+    }
+
+    private static Set<String> blacklist(Platform platform, String type) {
+        return blacklists.computeIfAbsent(platform.name() + "#" + type, k -> new HashSet<>());
+    }
+
+    private static void append(Entry entry, boolean immediate) {
+        load();
+        index(entry);
+        // 序号在写入时分配，保证多个进程之间递增
+        pending.add(entry);
+        if (immediate || pending.size() >= config.getBatchSize()) {
+            flush();
+        }
+    }
+
+    private static void index(Entry entry) {
+        if (entry.kind() == Kind.LISTING && entry.time() < listingCutoff()) {
+            return;
+        }
+        if (entry.kind() == Kind.BLACKLIST) {
+            blacklist(entry.platform(), entry.data().getString("type")).add(entry.data().getString("value"));
+            return;
+        }
+        if (entry.kind() == Kind.DELIVERY) {
+            deliveryCounts.merge(entry.platform(), 1, Integer::sum);
+        }
+        jobIndex.computeIfAbsent(entry.platform().name() + "#" + entry.jobId(), k -> new ArrayList<>()).add(entry);
+        String company = JobDeduplicator.normalizeCompany(entry.company());
+        if (!company.isEmpty()) {
+            companyIndex.computeIfAbsent(company, k -> new ArrayList<>()).add(entry);
+        }
+        timeIndex.computeIfAbsent(entry.time(), k -> new ArrayList<>()).add(entry);
+    }
+
+    /**
+     * 岗位列表记录的最早保留时间
+     */
+    private static long listingCutoff() {
+        return System.currentTimeMillis() - config.getListingDays() * 24L * 60 * 60 * 1000;
+    }
+
+    /**
+     * 从各索引中移除超期的岗位列表记录
+     */
+    private static void pruneListings() {
+        int count = 0;
+        Iterator<List<Entry>> buckets = timeIndex.headMap(listingCutoff(), false).values().iterator();
+        while (buckets.hasNext()) {
+            List<Entry> entries = buckets.next();
+            Iterator<Entry> iterator = entries.iterator();
+            while (iterator.hasNext()) {
+                Entry entry = iterator.next();
+                if (entry.kind() != Kind.LISTING) {
+                    continue;
+                }
+                iterator.remove();
+                unindex(jobIndex, entry.platform().name() + "#" + entry.jobId(), entry);
+                unindex(companyIndex, JobDeduplicator.normalizeCompany(entry.company()), entry);
+                count++;
+            }
+            if (entries.isEmpty()) {
+                buckets.remove();
+            }
+        }
+        if (count > 0) {
+            log.info("已清理超过{}天的岗位列表记录{}条", config.getListingDays(), count);
+        }
+    }
+
+    private static void unindex(Map<String, List<Entry>> index, String key, Entry entry) {
+        List<Entry> entries = index.get(key);
+        if (entries == null) {
+            return;
+        }
+        entries.removeIf(e -> e == entry);
+        if (entries.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    private static void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        Runtime.getRuntime().addShutdownHook(new Thread(JobStore::flush));
+        withLock(JobStore::reload);
+    }
+
+    /**
+     * 清空内存索引，重新加载快照并重放日志，尚未写入的记录保留
+     */
+    private static void reload() {
+        jobIndex.clear();
+        companyIndex.clear();
+        timeIndex.clear();
+        blacklists.clear();
+        deliveryCounts.clear();
+        journalSize = 0;
+        journalOffset = 0;
+        snapshotSeq = loadSnapshot();
+        seq = snapshotSeq;
+        Path path = Paths.get(config.getPath());
+        if (Files.exists(path)) {
+            try {
+                log.info("已重放岗位历史日志{}条", replay(path));
+            } catch (IOException e) {
+                log.error("读取岗位历史库失败！路径:{}", path);
+            }
+        }
+        pending.forEach(JobStore::index);
+    }
+
+    /**
+     * 从已读位置重放日志到文件末尾
+     *
+     * @return 重放的记录数
+     */
+    private static int replay(Path path) throws IOException {
+        byte[] bytes;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            bytes = Channels.newInputStream(channel.position(journalOffset)).readAllBytes();
+        }
+        journalOffset += bytes.length;
+        int count = 0;
+        for (String line : new String(bytes, StandardCharsets.UTF_8).split("\n")) {
+            if (line.isBlank()) {
+                continue;
+            }
+            journalSize++;
+            try {
+                JSONObject json = new JSONObject(line);
+                long lineSeq = json.optLong("seq", 0);
+                if (lineSeq != 0 && lineSeq <= snapshotSeq) {
+                    // 压缩时在清空日志前崩溃，这些记录已在快照中
+                    continue;
+                }
+                seq = Math.max(seq, lineSeq);
+                index(fromJson(json));
+                count++;
+            } catch (Exception e) {
+                // 异常退出时最后一行可能不完整，跳过即可
+                log.warn("跳过无法解析的历史记录: {}", line);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 只读取快照开头的序号
+     */
+    private static long readSnapshotSeq() {
+        Path snapshot = snapshotPath();
+        if (!Files.exists(snapshot)) {
+            return 0;
+        }
+        try (JsonParser parser = jsonFactory.createParser(snapshot.toFile())) {
+            if (parser.nextToken() == JsonToken.START_OBJECT && parser.nextToken() == JsonToken.FIELD_NAME
+                    && "seq".equals(parser.getCurrentName())) {
+                parser.nextToken();
+                return parser.getLongValue();
+            }
+        } catch (IOException e) {
+            log.error("读取岗位历史库快照失败！路径:{}", snapshot);
+        }
+        return 0;
+    }
+
+    /**
+     * 流式读取快照
+     *
+     * @return 快照包含的最大序号，没有快照时返回0
+     */
+    private static long loadSnapshot() {
+        Path snapshot = snapshotPath();
+        if (!Files.exists(snapshot)) {
+            return 0;
+        }
+        long snapshotSeq = 0;
+        int count = 0;
+        try (JsonParser parser = jsonFactory.createParser(snapshot.toFile())) {
+            parser.nextToken();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                switch (field) {
+                    case "seq" -> snapshotSeq = parser.getLongValue();
+                    case "blacklists" -> {
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            Set<String> values = blacklists.computeIfAbsent(parser.getCurrentName(),
+                                    k -> new HashSet<>());
+                            parser.nextToken();
+                            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                                values.add(parser.getText());
+                            }
+                        }
+                    }
+                    case "entries" -> {
+                        while (parser.nextToken() == JsonToken.START_OBJECT) {
+                            index(fromJson(new JSONObject(parser.readValueAsTree().toString())));
+                            count++;
+                        }
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+            log.info("已加载岗位历史快照{}条", count);
+        } catch (IOException e) {
+            log.error("读取岗位历史库快照失败！路径:{}", snapshot);
+        }
+        return snapshotSeq;
+    }
+
+    private static Path snapshotPath() {
+        return Paths.get(config.getPath() + ".snapshot");
+    }
+
+    private static JSONObject describe(Job job) {
+        JSONObject data = new JSONObject();
+        data.put("jobName", job.getJobName() == null ? "" : job.getJobName());
+        data.put("salary", job.getSalary() == null ? "" : job.getSalary());
+        data.put("jobArea", job.getJobArea() == null ? "" : job.getJobArea());
+        data.put("recruiter", job.getRecruiter() == null ? "" : job.getRecruiter());
+        data.put("href", job.getHref() == null ? "" : job.getHref());
+        return data;
+    }
+
+    private static JSONObject toJson(Entry entry) {
+        JSONObject json = new JSONObject();
+        json.put("kind", entry.kind().name());
+        json.put("platform", entry.platform().name());
+        json.put("jobId", entry.jobId() == null ? "" : entry.jobId());
+        json.put("company", entry.company() == null ? "" : entry.company());
+        json.put("time", entry.time());
+        json.put("data", entry.data());
+        return json;
+    }
+
+    private static void writeEntry(JsonGenerator generator, Entry entry) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("kind", entry.kind().name());
+        generator.writeStringField("platform", entry.platform().name());
+        generator.writeStringField("jobId", entry.jobId() == null ? "" : entry.jobId());
+        generator.writeStringField("company", entry.company() == null ? "" : entry.company());
+        generator.writeNumberField("time", entry.time());
+        generator.writeObjectFieldStart("data");
+        for (String key : entry.data().keySet()) {
+            Object value = entry.data().get(key);
+            if (value instanceof Boolean bool) {
+                generator.writeBooleanField(key, bool);
+            } else {
+                generator.writeStringField(key, String.valueOf(value));
+            }
+        }
+        generator.writeEndObject();
+        generator.writeEndObject();
+    }
+
+    private static Entry fromJson(JSONObject json) {
+        return new Entry(Kind.valueOf(json.getString("kind")), Platform.valueOf(json.getString("platform")),
+                json.optString("jobId", ""), json.optString("company", ""), json.getLong("time"),
+                json.getJSONObject("data"));
+    }
+}
@@ -51,6 +51,7 @@ public class JobUtils {
     }
 
     public static void runScheduled(Platform platform) {
+        Metrics.start();
         String platformName = platform.getPlatformName();
         switch (platform) {
             case BOSS -> {
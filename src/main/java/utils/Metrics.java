@@ -0,0 +1,338 @@
+package utils;
+
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 运行指标注册表，以 Prometheus 文本格式通过内置 HTTP 接口暴露，供长期运行的定时任务监控
+ * <p>
+ * 计数基于 LongAdder/DoubleAdder，爬取线程上的累加不加锁。StartAll 以子进程运行各平台，子进程在处理搜索结果页时（最多每
+ * {@value #FLUSH_INTERVAL_MILLIS} 毫秒一次）和每轮结束时把指标写到 ./target/metrics/平台.prom，主进程的接口合并这些文件后一起输出；
+ * 子进程带有 {@value #CHILD_PROPERTY} 标记，不启动指标接口。
+ *
+ * @author loks666 项目链接:
+ *         <a href="https://github.com/loks666/get_jobs">https://github.com/loks666/get_jobs</a>
+ */
+@Slf4j
+public class Metrics {
+
+    private static final String DUMP_DIR = "./target/metrics";
+    /**
+     * StartAll 启动子进程时设置的系统属性，带有该属性的进程只导出指标文件
+     */
+    public static final String CHILD_PROPERTY = "get_jobs.metrics.child";
+    private static final long FLUSH_INTERVAL_MILLIS = 15_000;
+    /**
+     * 各平台上次导出指标文件的时间
+     */
+    private static final Map<Platform, Long> lastDump = new ConcurrentHashMap<>();
+    private static final Map<String, Metric> registry = Collections.synchronizedMap(new LinkedHashMap<>());
+    /**
+     * 本进程已导出过的平台，合并文件时跳过，避免重复输出
+     */
+    private static final Set<String> dumped = ConcurrentHashMap.newKeySet();
+    private static HttpServer server;
+
+    public static final Counter DELIVERIES = register(new Counter("get_jobs_deliveries_total",
+            "投递成功的岗位数", "platform"));
+    public static final Counter REJECTIONS = register(new Counter("get_jobs_rejections_total",
+            "被过滤的岗位数，按原因区分", "platform", "reason"));
+    public static final Counter PAGES = register(new Counter("get_jobs_pages_crawled_total",
+            "已处理的搜索结果页数", "platform"));
+    public static final Histogram AI_LATENCY = register(new Histogram("get_jobs_ai_request_duration_seconds",
+            "AI请求耗时", new double[] {0.5, 1, 2, 5, 10, 20, 30, 60}, "platform", "result"));
+    public static final Histogram AI_DECISION = register(new Histogram("get_jobs_ai_decision_seconds",
+            "流式AI请求从发出到判断出是否匹配的耗时", new double[] {0.25, 0.5, 1, 2, 5, 10, 30}, "platform", "verdict"));
+    public static final Counter RELEVANCE = register(new Counter("get_jobs_relevance_prefilter_total",
+            "本地相关度预筛结果：reject、accept 不再请求AI，ambiguous 交给AI判断", "platform", "band"));
+    public static final Counter AI_HEDGES = register(new Counter("get_jobs_ai_hedged_total",
+            "发送过对冲请求的AI调用，按先返回的一方区分", "platform", "winner"));
+    public static final Counter AI_TOKENS = register(new Counter("get_jobs_ai_tokens_total",
+            "AI消耗的token数，来自响应中的usage", "platform", "type"));
+    public static final Counter DRIVER_ERRORS = register(new Counter("get_jobs_webdriver_errors_total",
+            "失败的浏览器命令数", "platform", "command"));
+    public static final Counter RUNS = register(new Counter("get_jobs_runs_total",
+            "完成的投递轮数", "platform"));
+    public static final Gauge RUN_DURATION = register(new Gauge("get_jobs_last_run_duration_seconds",
+            "最近一轮投递的耗时", "platform"));
+
+    /**
+     * 指标基类：按标签值保存各条时间序列
+     */
+    public abstract static class Metric {
+        final String name;
+        final String help;
+        final String type;
+        final String[] labelNames;
+
+        Metric(String name, String help, String type, String... labelNames) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+            this.labelNames = labelNames;
+        }
+
+        abstract void render(StringBuilder sb);
+
+        String labels(List<String> values, String extra) {
+            StringJoiner joiner = new StringJoiner(",", "{", "}");
+            joiner.setEmptyValue("");
+            for (int i = 0; i < labelNames.length; i++) {
+                joiner.add(labelNames[i] + "=\"" + escape(values.get(i)) + "\"");
+            }
+            if (extra != null) {
+                joiner.add(extra);
+            }
+            return joiner.toString();
+        }
+
+        List<String> key(String... values) {
+            if (values.length != labelNames.length) {
+                throw new IllegalArgumentException(name + " 需要标签: " + Arrays.toString(labelNames));
+            }
+            return List.of(values);
+        }
+    }
+
+    public static class Counter extends Metric {
+        private final Map<List<String>, LongAdder> series = new ConcurrentHashMap<>();
+
+        Counter(String name, String help, String... labelNames) {
+            super(name, help, "counter", labelNames);
+        }
+
+        public void inc(String... labels) {
+            add(1, labels);
+        }
+
+        public void add(long value, String... labels) {
+            series.computeIfAbsent(key(labels), k -> new LongAdder()).add(value);
+        }
+
+        @Override
+        void render(StringBuilder sb) {
+            series.forEach((labels, value) -> sb.append(name).append(labels(labels, null)).append(' ')
+                    .append(value.sum()).append('\n'));
+        }
+    }
+
+    public static class Gauge extends Metric {
+        private final Map<List<String>, AtomicLong> series = new ConcurrentHashMap<>();
+
+        Gauge(String name, String help, String... labelNames) {
+            super(name, help, "gauge", labelNames);
+        }
+
+        public void set(double value, String... labels) {
+            series.computeIfAbsent(key(labels), k -> new AtomicLong()).set(Double.doubleToLongBits(value));
+        }
+
+        @Override
+        void render(StringBuilder sb) {
+            series.forEach((labels, value) -> sb.append(name).append(labels(labels, null)).append(' ')
+                    .append(Double.longBitsToDouble(value.get())).append('\n'));
+        }
+    }
+
+    public static class Histogram extends Metric {
+        private final double[] buckets;
+        private final Map<List<String>, HistogramSeries> series = new ConcurrentHashMap<>();
+
+        private record HistogramSeries(LongAdder[] counts, DoubleAdder sum, LongAdder count) {
+        }
+
+        Histogram(String name, String help, double[] buckets, String... labelNames) {
+            super(name, help, "histogram", labelNames);
+            this.buckets = buckets;
+        }
+
+        public void observe(double value, String... labels) {
+            HistogramSeries s = series.computeIfAbsent(key(labels), k -> {
+                LongAdder[] counts = new LongAdder[buckets.length];
+                for (int i = 0; i < counts.length; i++) {
+                    counts[i] = new LongAdder();
+                }
+                return new HistogramSeries(counts, new DoubleAdder(), new LongAdder());
+            });
+            for (int i = 0; i < buckets.length; i++) {
+                if (value <= buckets[i]) {
+                    s.counts()[i].increment();
+                    break;
+                }
+            }
+            s.sum().add(value);
+            s.count().increment();
+        }
+
+        @Override
+        void render(StringBuilder sb) {
+            series.forEach((labels, s) -> {
+                long cumulative = 0;
+                for (int i = 0; i < buckets.length; i++) {
+                    cumulative += s.counts()[i].sum();
+                    sb.append(name).append("_bucket").append(labels(labels, "le=\"" + buckets[i] + "\""))
+                            .append(' ').append(cumulative).append('\n');
+                }
+                sb.append(name).append("_bucket").append(labels(labels, "le=\"+Inf\"")).append(' ')
+                        .append(s.count().sum()).append('\n');
+                sb.append(name).append("_sum").append(labels(labels, null)).append(' ').append(s.sum().sum())
+                        .append('\n');
+                sb.append(name).append("_count").append(labels(labels, null)).append(' ').append(s.count().sum())
+                        .append('\n');
+            });
+        }
+    }
+
+    /**
+     * 记录被过滤的岗位
+     */
+    public static void reject(Platform platform, String reason) {
+        REJECTIONS.inc(platform.name(), reason);
+    }
+
+    /**
+     * 处理完一页搜索结果，距上次导出超过间隔时导出指标文件，主进程在一轮进行中也能看到较新的数据
+     */
+    public static void pageCrawled(Platform platform) {
+        PAGES.inc(platform.name());
+        long now = System.currentTimeMillis();
+        Long last = lastDump.get(platform);
+        if (last == null || now - last >= FLUSH_INTERVAL_MILLIS) {
+            dump(platform);
+        }
+    }
+
+    /**
+     * 一轮投递结束：记录耗时，并导出指标文件供主进程合并
+     */
+    public static void runFinished(Platform platform, Date startDate) {
+        RUNS.inc(platform.name());
+        RUN_DURATION.set((System.currentTimeMillis() - startDate.getTime()) / 1000.0, platform.name());
+        dump(platform);
+    }
+
+    /**
+     * 按配置启动指标接口，重复调用只启动一次；StartAll 的子进程不启动，由主进程合并输出
+     */
+    public static synchronized void start() {
+        MetricsConfig config = MetricsConfig.init();
+        if (!config.getEnable() || server != null || Boolean.getBoolean(CHILD_PROPERTY)) {
+            return;
+        }
+        try {
+            server = HttpServer.create(new InetSocketAddress(config.getPort()), 0);
+            server.createContext("/metrics", exchange -> {
+                byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            });
+            server.setExecutor(null);
+            server.start();
+            log.info("Prometheus指标接口已启动：http://localhost:{}/metrics", config.getPort());
+        } catch (IOException e) {
+            log.error("启动指标接口失败，端口:{}，{}", config.getPort(), e.getMessage());
+        }
+    }
+
+    /**
+     * 输出本进程的指标
+     */
+    public static String render() {
+        StringBuilder sb = new StringBuilder();
+        List<Metric> metrics;
+        synchronized (registry) {
+            metrics = new ArrayList<>(registry.values());
+        }
+        for (Metric metric : metrics) {
+            sb.append("# HELP ").append(metric.name).append(' ').append(metric.help).append('\n');
+            sb.append("# TYPE ").append(metric.name).append(' ').append(metric.type).append('\n');
+            metric.render(sb);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 本进程指标与子进程导出的指标文件合并，同名指标的 HELP/TYPE 只输出一次
+     */
+    static String scrape() {
+        Map<String, List<String>> families = new LinkedHashMap<>();
+        Map<String, String> headers = new HashMap<>();
+        collect(render(), families, headers);
+        Path dir = Paths.get(DUMP_DIR);
+        if (Files.isDirectory(dir)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.prom")) {
+                for (Path file : files) {
+                    String platform = file.getFileName().toString().replace(".prom", "");
+                    if (!dumped.contains(platform)) {
+                        collect(Files.readString(file, StandardCharsets.UTF_8), families, headers);
+                    }
+                }
+            } catch (IOException e) {
+                log.error("读取指标文件失败！路径:{}", dir);
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        families.forEach((name, samples) -> {
+            sb.append(headers.get(name));
+            samples.forEach(sample -> sb.append(sample).append('\n'));
+        });
+        return sb.toString();
+    }
+
+    private static void collect(String text, Map<String, List<String>> families, Map<String, String> headers) {
+        String family = null;
+        for (String line : text.split("\n")) {
+            if (line.startsWith("# HELP ")) {
+                family = line.split(" ")[2];
+                headers.merge(family, line + "\n", (a, b) -> a.contains("# TYPE") ? a : a + b);
+                families.computeIfAbsent(family, k -> new ArrayList<>());
+            } else if (line.startsWith("# TYPE ")) {
+                headers.merge(line.split(" ")[2], line + "\n", (a, b) -> a.contains("# TYPE") ? a : a + b);
+            } else if (!line.isBlank() && family != null) {
+                families.get(family).add(line);
+            }
+        }
+    }
+
+    private static void dump(Platform platform) {
+        String name = platform.name().toLowerCase();
+        Path path = Paths.get(DUMP_DIR, name + ".prom");
+        Path temp = Paths.get(DUMP_DIR, name + ".prom.tmp");
+        try {
+            Files.createDirectories(path.getParent());
+            Files.writeString(temp, render(), StandardCharsets.UTF_8);
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            dumped.add(name);
+            lastDump.put(platform, System.currentTimeMillis());
+        } catch (IOException e) {
+            log.error("导出指标文件失败！路径:{}", path);
+        }
+    }
+
+    private static <T extends Metric> T register(T metric) {
+        registry.put(metric.name, metric);
+        return metric;
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
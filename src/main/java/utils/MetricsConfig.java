@@ -0,0 +1,35 @@
+package utils;
+
+import lombok.Data;
+
+/**
+ * @author loks666 项目链接:
+ *         <a href="https://github.com/loks666/get_jobs">https://github.com/loks666/get_jobs</a>
+ */
+@Data
+public class MetricsConfig {
+
+    /**
+     * 是否开启 Prometheus 指标接口
+     */
+    private Boolean enable;
+
+    /**
+     * 指标接口端口，访问 http://localhost:端口/metrics
+     */
+    private Integer port;
+
+    public static MetricsConfig init() {
+        MetricsConfig config = JobUtils.getConfig(MetricsConfig.class);
+        if (config == null) {
+            config = new MetricsConfig();
+        }
+        if (config.getEnable() == null) {
+            config.setEnable(false);
+        }
+        if (config.getPort() == null || config.getPort() <= 0) {
+            config.setPort(9464);
+        }
+        return config;
+    }
+}
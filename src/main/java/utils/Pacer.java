@@ -0,0 +1,97 @@
+package utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按平台控制投递节奏：用令牌桶限制发起聊天、投递简历这类对外动作的最小间隔，并加入随机抖动
+ * <p>
+ * 令牌按间隔匀速积攒，最多积攒 burst 个。只有对外动作之前调用 {@link #acquire()}，提取岗位、过滤、AI检测和页面加载
+ * 不受限制：如果两次投递之间的这些工作已经用掉了一个间隔，投递时无需再等待，实际投递速度可以达到间隔允许的上限。
+ * 抖动只在需要等待时加入，提前或推后的时间计入下一次的间隔，长期平均速度不变。
+ *
+ * @author loks666 项目链接:
+ *         <a href="https://github.com/loks666/get_jobs">https://github.com/loks666/get_jobs</a>
+ */
+public class Pacer {
+    private static final Logger log = LoggerFactory.getLogger(Pacer.class);
+    private static final PacerConfig config = PacerConfig.init();
+    private static final Map<Platform, Pacer> PACERS = new ConcurrentHashMap<>();
+
+    private final Platform platform;
+    private final long intervalNanos;
+    private final double jitter;
+    private final int burst;
+    /**
+     * 当前可用的令牌数，为负数时表示已被预约、需要等待的令牌
+     */
+    private double tokens;
+    private long refilledAt;
+
+    private Pacer(Platform platform, double intervalSeconds, double jitter, int burst) {
+        this.platform = platform;
+        this.intervalNanos = (long) (intervalSeconds * TimeUnit.SECONDS.toNanos(1));
+        this.jitter = jitter;
+        this.burst = burst;
+        // 第一次投递无需等待
+        this.tokens = 1;
+        this.refilledAt = System.nanoTime();
+    }
+
+    /**
+     * 获取平台的节奏控制器
+     *
+     * @param defaultSeconds 配置中没有该平台的间隔时使用的间隔（秒），0 表示不限速
+     */
+    public static Pacer of(Platform platform, double defaultSeconds) {
+        return PACERS.computeIfAbsent(platform, key -> {
+            double interval = config.getInterval().getOrDefault(key.name().toLowerCase(), defaultSeconds);
+            log.info("{}投递间隔{}秒，随机抖动{}%，最多连续投递{}次", key.getPlatformName(), interval,
+                    Math.round(config.getJitter() * 100), config.getBurst());
+            return new Pacer(key, Math.max(interval, 0), config.getJitter(), config.getBurst());
+        });
+    }
+
+    /**
+     * 对外动作之前调用，令牌不足时等待到下一个令牌可用
+     */
+    public void acquire() {
+        long waitNanos = reserve();
+        if (waitNanos <= 0) {
+            return;
+        }
+        log.debug("{}等待投递间隔{}毫秒", platform.getPlatformName(), TimeUnit.NANOSECONDS.toMillis(waitNanos));
+        Tracer.Span pacingSpan = Tracer.span("pacing", Tracer.Category.SLEEP);
+        try {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Sleep was interrupted", e);
+        } finally {
+            pacingSpan.close();
+        }
+    }
+
+    /**
+     * 预约一个令牌，返回需要等待的时长（纳秒）；等待在锁外进行
+     */
+    private synchronized long reserve() {
+        if (intervalNanos == 0) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (double) (now - refilledAt) / intervalNanos);
+        refilledAt = now;
+        tokens -= 1;
+        if (tokens >= 0) {
+            return 0;
+        }
+        double jitterNanos = ThreadLocalRandom.current().nextDouble() * jitter * intervalNanos;
+        return (long) (-tokens * intervalNanos + jitterNanos);
+    }
+}
@@ -0,0 +1,46 @@
+package utils;
+
+import lombok.Data;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @author loks666 项目链接:
+ *         <a href="https://github.com/loks666/get_jobs">https://github.com/loks666/get_jobs</a>
+ */
+@Data
+public class PacerConfig {
+
+    /**
+     * 各平台两次投递之间的最小间隔（秒），键为平台名小写，如 boss；未配置的平台使用平台自身的默认值
+     */
+    private Map<String, Double> interval;
+
+    /**
+     * 随机抖动比例，每次需要等待时额外随机等待 0~jitter 倍间隔，避免固定节奏
+     */
+    private Double jitter;
+
+    /**
+     * 空闲时最多积攒的投递次数，1 表示严格按间隔投递
+     */
+    private Integer burst;
+
+    public static PacerConfig init() {
+        PacerConfig config = JobUtils.getConfig(PacerConfig.class);
+        if (config == null) {
+            config = new PacerConfig();
+        }
+        if (config.getInterval() == null) {
+            config.setInterval(new HashMap<>());
+        }
+        if (config.getJitter() == null || config.getJitter() < 0) {
+            config.setJitter(0.5);
+        }
+        if (config.getBurst() == null || config.getBurst() < 1) {
+            config.setBurst(1);
+        }
+        return config;
+    }
+}
@@ -0,0 +1,51 @@
+package utils;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * @author loks666 项目链接:
+ *         <a href="https://github.com/loks666/get_jobs">https://github.com/loks666/get_jobs</a>
+ */
+@Data
+public class PipelineConfig {
+
+    /**
+     * 参与流水线的平台，例如 BOSS
+     */
+    private List<String> platforms;
+
+    /**
+     * 提取阶段并发数
+     */
+    private Integer extractConcurrency;
+
+    /**
+     * 过滤阶段并发数（AI检测等不占用浏览器的工作）
+     */
+    private Integer filterConcurrency;
+
+    /**
+     * 阶段之间队列的容量
+     */
+    private Integer queueCapacity;
+
+    public static PipelineConfig init() {
+        PipelineConfig config = JobUtils.getConfig(PipelineConfig.class);
+        if (config == null) {
+            config = new PipelineConfig();
+        }
+        if (config.getPlatforms() == null || config.getPlatforms().isEmpty()) {
+            config.setPlatforms(List.of(Platform.BOSS.name()));
+        }
+        config.setExtractConcurrency(positive(config.getExtractConcurrency(), 1));
+        config.setFilterConcurrency(positive(config.getFilterConcurrency(), 4));
+        config.setQueueCapacity(positive(config.getQueueCapacity(), 20));
+        return config;
+    }
+
+    private static int positive(Integer value, int defaultValue) {
+        return value == null || value <= 0 ? defaultValue : value;
+    }
+}
@@ -0,0 +1,43 @@
+package utils;
+
+import lombok.Data;
+
+/**
+ * @author loks666 项目链接:
+ *         <a href="https://github.com/loks666/get_jobs">https://github.com/loks666/get_jobs</a>
+ */
+@Data
+public class QueueConfig {
+
+    /**
+     * 待投递队列文件所在目录，每个平台一个队列文件和一个完成记录文件
+     */
+    private String path;
+
+    /**
+     * 岗位入队超过该时长（小时）仍未投递则视为过期，不再投递
+     */
+    private Integer staleHours;
+
+    /**
+     * 投递端队列为空时继续等待新岗位的时长（秒），超过后结束，0表示队列为空立即结束
+     */
+    private Integer idleSeconds;
+
+    public static QueueConfig init() {
+        QueueConfig config = JobUtils.getConfig(QueueConfig.class);
+        if (config == null) {
+            config = new QueueConfig();
+        }
+        if (config.getPath() == null || config.getPath().isBlank()) {
+            config.setPath("./src/main/java/utils/queue");
+        }
+        if (config.getStaleHours() == null || config.getStaleHours() <= 0) {
+            config.setStaleHours(24);
+        }
+        if (config.getIdleSeconds() == null || config.getIdleSeconds() < 0) {
+            config.setIdleSeconds(0);
+        }
+        return config;
+    }
+}
@@ -0,0 +1,109 @@
+package utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import static utils.Constant.CHROME_DRIVER;
+
+/**
+ * 发现与投递分离运行：发现端只翻页提取岗位，全速写入 {@link JobQueue}；投递端从队列中按平台自身的节奏逐个投递
+ * <p>
+ * 用法：QueueWorker discover [平台] 或 QueueWorker deliver [平台]，平台默认为 BOSS，需已接入 {@link CrawlPipeline}。
+ * 两端可以同时运行（投递端配置 queue.idleSeconds 等待发现端写入），也可以分开运行；任意一端中途停止后重新运行即可继续。
+ * 投递端跳过入队超过 queue.staleHours 的岗位，以及已投递过、与其他平台重复的岗位；达到上限或出现异常访问时，
+ * 当前岗位留在队列中，下次运行最先投递。
+ *
+ * @author loks666 项目链接:
+ *         <a href="https://github.com/loks666/get_jobs">https://github.com/loks666/get_jobs</a>
+ */
+@Slf4j
+public class QueueWorker {
+
+    public static void main(String[] args) {
+        String mode = args.length > 0 ? args[0] : "deliver";
+        Platform platform = Platform.valueOf(args.length > 1 ? args[1].trim().toUpperCase() : Platform.BOSS.name());
+        JobPlatform jobPlatform = CrawlPipeline.create(platform);
+        if (jobPlatform == null) {
+            return;
+        }
+        JobQueue queue = JobQueue.open(platform);
+        SeleniumUtil.initDriver();
+        jobPlatform.login();
+        if ("discover".equals(mode)) {
+            discover(jobPlatform, queue);
+        } else {
+            deliver(jobPlatform, queue, QueueConfig.init().getIdleSeconds());
+        }
+    }
+
+    /**
+     * 发现端：提取全部搜索任务的岗位并入队，已提取完的任务在有效期内跳过
+     */
+    static void discover(JobPlatform jobPlatform, JobQueue queue) {
+        Date startDate = new Date();
+        int offered = 0;
+        for (JobPlatform.SearchTask task : jobPlatform.search()) {
+            if (queue.isTaskFinished(task)) {
+                log.info("【{}】关键词已提取过，跳过：{}", task.keyword(), task.url());
+                continue;
+            }
+            int[] count = {0};
+            jobPlatform.extract(task, job -> {
+                if (queue.offer(task, job)) {
+                    count[0]++;
+                }
+            }, () -> false);
+            queue.finishTask(task);
+            offered += count[0];
+            log.info("【{}】关键词提取完成，新入队{}个岗位", task.keyword(), count[0]);
+        }
+        log.info("{}发现完成，共新入队{}个岗位，用时{}", jobPlatform.platform().getPlatformName(), offered,
+                JobUtils.formatDuration(startDate, new Date()));
+        CHROME_DRIVER.quit();
+    }
+
+    /**
+     * 投递端：逐个取出岗位投递，队列为空且超过 idleSeconds 没有新岗位时结束
+     */
+    static void deliver(JobPlatform jobPlatform, JobQueue queue, int idleSeconds) {
+        int delivered = 0;
+        long idleSince = System.nanoTime();
+        while (true) {
+            JobQueue.Entry entry = queue.poll();
+            if (entry == null) {
+                if (System.nanoTime() - idleSince >= TimeUnit.SECONDS.toNanos(idleSeconds)) {
+                    break;
+                }
+                SeleniumUtil.sleep(1);
+                continue;
+            }
+            if (queue.isStale(entry)) {
+                log.info("岗位入队已过期，跳过：{}", entry.job().getJobName());
+                queue.complete(entry, JobQueue.Status.STALE);
+            } else if (!jobPlatform.filter(entry.task(), entry.job())) {
+                queue.complete(entry, JobQueue.Status.SKIPPED);
+            } else {
+                JobPlatform.DeliveryResult result = jobPlatform.deliver(entry.task(), entry.job());
+                if (result == JobPlatform.DeliveryResult.LIMIT || result == JobPlatform.DeliveryResult.BLOCKED) {
+                    log.info("【{}】{}，停止投递，剩余岗位留在队列中", jobPlatform.platform().getPlatformName(),
+                            result == JobPlatform.DeliveryResult.LIMIT ? "今日投递已达上限" : "出现异常访问");
+                    queue.putBack(entry);
+                    break;
+                }
+                if (result == JobPlatform.DeliveryResult.DELIVERED) {
+                    delivered++;
+                }
+                queue.complete(entry, result == JobPlatform.DeliveryResult.DELIVERED ? JobQueue.Status.DELIVERED
+                        : JobQueue.Status.SKIPPED);
+            }
+            idleSince = System.nanoTime();
+        }
+        log.info("{}队列投递结束，本次投递{}个，队列剩余{}个", jobPlatform.platform().getPlatformName(), delivered,
+                queue.pendingCount());
+        queue.compactIfDrained();
+        jobPlatform.finish();
+        CHROME_DRIVER.quit();
+    }
+}
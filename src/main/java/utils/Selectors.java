@@ -0,0 +1,352 @@
+package utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import org.json.JSONObject;
+import org.openqa.selenium.By;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.SearchContext;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebElement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static utils.Constant.WAIT;
+
+/**
+ * 选择器注册表：各平台的 XPath/CSS 定位器集中维护在 selectors.yaml 中，按名称引用
+ * <p>
+ * 每个名称对应一条有序的备选链，加载时预先构建好 {@link By}。查找时按健康度（命中率，其次平均耗时）依次尝试，
+ * 用 findElements 判断是否命中，不抛异常，也不会为了换备选而白等。只有 require、await 找不到元素，或者备选中有其他定位器命中时，
+ * 才记为未命中。命中情况保存在 selector_stats.json 中，
+ * 下次运行时最健康的定位器排在最前面；新加入的定位器没有记录，按配置顺序参与排序。
+ *
+ * @author loks666 项目链接:
+ *         <a href="https://github.com/loks666/get_jobs">https://github.com/loks666/get_jobs</a>
+ */
+public class Selectors {
+    private static final Logger log = LoggerFactory.getLogger(Selectors.class);
+
+    private static final String RESOURCE = "selectors.yaml";
+    private static final String STATS_PATH = "./src/main/java/utils/selector_stats.json";
+    /**
+     * 统计次数达到该值后减半，让页面改版后的命中率变化能较快反映到排序上
+     */
+    private static final int WINDOW = 64;
+
+    private static final Map<Platform, Map<String, List<Locator>>> registry = load();
+
+    /**
+     * 一个预编译的定位器及其命中统计
+     */
+    public static class Locator {
+        private final String expression;
+        private final By by;
+        private final int order;
+        private long hits;
+        private long misses;
+        private long totalNanos;
+
+        Locator(String expression, int order) {
+            this.expression = expression;
+            this.by = parse(expression);
+            this.order = order;
+        }
+
+        public By getBy() {
+            return by;
+        }
+
+        synchronized void record(long nanos, boolean hit) {
+            if (hits + misses >= WINDOW) {
+                hits /= 2;
+                misses /= 2;
+                totalNanos /= 2;
+            }
+            if (hit) {
+                hits++;
+                totalNanos += nanos;
+            } else {
+                misses++;
+            }
+        }
+
+        /**
+         * 拉普拉斯平滑后的命中率，没有记录时为0.5
+         */
+        synchronized double hitRate() {
+            return (hits + 1.0) / (hits + misses + 2.0);
+        }
+
+        synchronized boolean hasMisses() {
+            return misses > 0;
+        }
+
+        synchronized long averageNanos() {
+            return hits == 0 ? Long.MAX_VALUE : totalNanos / hits;
+        }
+
+        synchronized JSONObject toJson() {
+            return new JSONObject().put("hits", hits).put("misses", misses).put("totalNanos", totalNanos);
+        }
+
+        synchronized void fromJson(JSONObject json) {
+            hits = json.optLong("hits");
+            misses = json.optLong("misses");
+            totalNanos = json.optLong("totalNanos");
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format("%s 命中%d/%d 平均%.1fms", expression, hits, hits + misses,
+                    hits == 0 ? 0 : totalNanos / hits / 1e6);
+        }
+    }
+
+    /**
+     * 按健康度查找第一个元素
+     *
+     * @return 所有备选都未命中时返回null
+     */
+    public static WebElement find(Platform platform, String name) {
+        return find(Constant.CHROME_DRIVER, platform, name);
+    }
+
+    /**
+     * 在指定元素内按健康度查找第一个元素
+     *
+     * @return 所有备选都未命中时返回null
+     */
+    public static WebElement find(SearchContext context, Platform platform, String name) {
+        List<WebElement> elements = findAll(context, platform, name);
+        return elements.isEmpty() ? null : elements.get(0);
+    }
+
+    /**
+     * 与 {@link #find(Platform, String)} 相同，但未命中时抛出 NoSuchElementException，用于必须存在的元素
+     */
+    public static WebElement require(Platform platform, String name) {
+        return require(Constant.CHROME_DRIVER, platform, name);
+    }
+
+    public static WebElement require(SearchContext context, Platform platform, String name) {
+        List<WebElement> elements = lookup(context, chain(platform, name), true);
+        if (elements == null) {
+            throw new NoSuchElementException("没有找到元素：" + platform + "." + name);
+        }
+        return elements.get(0);
+    }
+
+    public static List<WebElement> findAll(Platform platform, String name) {
+        return findAll(Constant.CHROME_DRIVER, platform, name);
+    }
+
+    /**
+     * 按健康度依次尝试备选链，返回第一个命中的定位器找到的全部元素；元素本来就可能不存在，整条链都未命中时不计入统计
+     */
+    public static List<WebElement> findAll(SearchContext context, Platform platform, String name) {
+        List<WebElement> elements = lookup(context, chain(platform, name), false);
+        return elements == null ? List.of() : elements;
+    }
+
+    /**
+     * 等待备选链中任意一个定位器命中，等待期间每轮都会尝试全部备选
+     *
+     * @throws TimeoutException 超过 WAIT 的等待时间仍未命中
+     */
+    public static WebElement await(Platform platform, String name) {
+        List<Locator> chain = chain(platform, name);
+        try {
+            return WAIT.until(driver -> {
+                List<WebElement> elements = lookup(driver, chain, false);
+                return elements == null ? null : elements.get(0);
+            });
+        } catch (TimeoutException e) {
+            chain.forEach(locator -> locator.record(0, false));
+            throw e;
+        }
+    }
+
+    /**
+     * 当前最健康的定位器，用于需要 By 的场景（如 ExpectedConditions）
+     */
+    public static By by(Platform platform, String name) {
+        return ranked(chain(platform, name)).get(0).getBy();
+    }
+
+    /**
+     * 本次运行中出现未命中的选择器，方便及时发现页面改版
+     */
+    public static String report(Platform platform) {
+        StringBuilder sb = new StringBuilder("选择器命中情况：");
+        int before = sb.length();
+        registry.getOrDefault(platform, Map.of()).forEach((name, chain) -> {
+            if (chain.stream().anyMatch(Locator::hasMisses)) {
+                sb.append("\n  ").append(name).append(" -> ").append(ranked(chain));
+            }
+        });
+        return sb.length() == before ? sb.append("全部命中").toString() : sb.toString();
+    }
+
+    /**
+     * 保存所有平台的命中统计，供下次运行排序
+     */
+    public static synchronized void save() {
+        JSONObject root = new JSONObject();
+        registry.forEach((platform, names) -> {
+            JSONObject platformJson = new JSONObject();
+            names.forEach((name, chain) -> {
+                JSONObject chainJson = new JSONObject();
+                chain.forEach(locator -> chainJson.put(locator.expression, locator.toJson()));
+                platformJson.put(name, chainJson);
+            });
+            root.put(platform.name(), platformJson);
+        });
+        Path path = Paths.get(STATS_PATH);
+        Path temp = Paths.get(STATS_PATH + ".tmp");
+        try {
+            Files.writeString(temp, root.toString(2), StandardCharsets.UTF_8);
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("保存选择器命中统计失败：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 依次尝试备选链。有定位器命中时，排在它前面未命中的定位器记一次未命中；整条链都未命中时，
+     * 只有 recordAbsent 为真（元素必须存在）才记录，可选元素本来就不存在不算定位器失效
+     */
+    private static List<WebElement> lookup(SearchContext context, List<Locator> chain, boolean recordAbsent) {
+        List<Locator> missed = new ArrayList<>();
+        for (Locator locator : ranked(chain)) {
+            long start = System.nanoTime();
+            List<WebElement> elements;
+            try {
+                elements = context.findElements(locator.by);
+            } catch (Exception e) {
+                elements = List.of();
+            }
+            if (!elements.isEmpty()) {
+                locator.record(System.nanoTime() - start, true);
+                missed.forEach(miss -> miss.record(0, false));
+                return elements;
+            }
+            missed.add(locator);
+        }
+        if (recordAbsent) {
+            missed.forEach(miss -> miss.record(0, false));
+        }
+        return null;
+    }
+
+    /**
+     * 命中率高的在前，命中率相同时耗时短的在前，都相同时保持配置顺序
+     */
+    private static List<Locator> ranked(List<Locator> chain) {
+        List<Locator> ranked = new ArrayList<>(chain);
+        ranked.sort(Comparator.comparingDouble((Locator locator) -> -locator.hitRate())
+                .thenComparingLong(Locator::averageNanos).thenComparingInt(locator -> locator.order));
+        return ranked;
+    }
+
+    private static List<Locator> chain(Platform platform, String name) {
+        List<Locator> chain = registry.getOrDefault(platform, Map.of()).get(name);
+        if (chain == null) {
+            throw new IllegalArgumentException("selectors.yaml 中没有定义 " + platform + "." + name);
+        }
+        return chain;
+    }
+
+    /**
+     * 解析定位器，支持 css: xpath: id: class: tag: 前缀，没有前缀时以 / ( . 开头的视为 XPath，其余视为 CSS
+     */
+    static By parse(String expression) {
+        int colon = expression.indexOf(':');
+        String type = colon > 0 ? expression.substring(0, colon) : "";
+        String value = expression.substring(colon + 1).trim();
+        return switch (type) {
+            case "css" -> By.cssSelector(value);
+            case "xpath" -> By.xpath(value);
+            case "id" -> By.id(value);
+            case "class" -> By.className(value);
+            case "tag" -> By.tagName(value);
+            default -> expression.startsWith("/") || expression.startsWith("(") || expression.startsWith(".")
+                    ? By.xpath(expression) : By.cssSelector(expression);
+        };
+    }
+
+    private static Map<Platform, Map<String, List<Locator>>> load() {
+        Map<Platform, Map<String, List<Locator>>> registry = new EnumMap<>(Platform.class);
+        try (InputStream is = Selectors.class.getClassLoader().getResourceAsStream(RESOURCE)) {
+            if (is == null) {
+                throw new IllegalStateException("无法找到 " + RESOURCE + " 文件");
+            }
+            JsonNode root = new ObjectMapper(new YAMLFactory()).readTree(is);
+            root.fields().forEachRemaining(platformEntry -> {
+                Map<String, List<Locator>> names = new ConcurrentHashMap<>();
+                platformEntry.getValue().fields().forEachRemaining(nameEntry -> {
+                    List<Locator> chain = new ArrayList<>();
+                    JsonNode node = nameEntry.getValue();
+                    if (node.isArray()) {
+                        node.forEach(expression -> chain.add(new Locator(expression.asText(), chain.size())));
+                    } else {
+                        chain.add(new Locator(node.asText(), 0));
+                    }
+                    names.put(nameEntry.getKey(), List.copyOf(chain));
+                });
+                registry.put(Platform.valueOf(platformEntry.getKey().toUpperCase()), names);
+            });
+        } catch (IOException e) {
+            throw new IllegalStateException("读取 " + RESOURCE + " 失败", e);
+        }
+        loadStats(registry);
+        Runtime.getRuntime().addShutdownHook(new Thread(Selectors::save));
+        return registry;
+    }
+
+    private static void loadStats(Map<Platform, Map<String, List<Locator>>> registry) {
+        Path path = Paths.get(STATS_PATH);
+        if (!Files.exists(path)) {
+            return;
+        }
+        try {
+            JSONObject root = new JSONObject(Files.readString(path, StandardCharsets.UTF_8));
+            registry.forEach((platform, names) -> {
+                JSONObject platformJson = root.optJSONObject(platform.name());
+                if (platformJson == null) {
+                    return;
+                }
+                names.forEach((name, chain) -> {
+                    JSONObject chainJson = platformJson.optJSONObject(name);
+                    if (chainJson == null) {
+                        return;
+                    }
+                    // 定位器改动后旧记录自然失效
+                    chain.forEach(locator -> {
+                        JSONObject stat = chainJson.optJSONObject(locator.expression);
+                        if (stat != null) {
+                            locator.fromJson(stat);
+                        }
+                    });
+                });
+            });
+        } catch (Exception e) {
+            log.error("读取选择器命中统计失败，按配置顺序查找：{}", e.getMessage());
+        }
+    }
+}
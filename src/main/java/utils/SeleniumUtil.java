@@ -7,7 +7,6 @@ import org.openqa.selenium.By;
 import org.openqa.selenium.Cookie;
 import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.WebElement;
-import org.openqa.selenium.chrome.ChromeDriver;
 import org.openqa.selenium.chrome.ChromeOptions;
 import org.openqa.selenium.interactions.Actions;
 import org.openqa.selenium.support.ui.ExpectedConditions;
@@ -21,9 +20,9 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.time.Instant;
-import java.time.temporal.ChronoUnit;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
@@ -37,10 +36,81 @@ import static utils.Constant.*;
 public class SeleniumUtil {
     private static final Logger log = LoggerFactory.getLogger(SeleniumUtil.class);
 
+    /**
+     * 异步脚本的超时上限，启动浏览器时设置一次；各异步脚本在页面内按自己的时限结束，时限都小于该值
+     */
+    private static final int SCRIPT_TIMEOUT_SECONDS = 60;
+    /**
+     * 一次查询多个选择器：以 / 或 ( 开头的按 XPath 查询，其余按 CSS 查询，返回存在的名称及其文本，withElements 为真时同时返回元素
+     */
+    private static final String PROBE_FUNCTION = """
+            function probe(selectors, withElements) {
+                var result = {};
+                for (var name in selectors) {
+                    var selector = selectors[name], el = null;
+                    try {
+                        if (selector.charAt(0) === '/' || selector.charAt(0) === '(') {
+                            el = document.evaluate(selector, document, null,
+                                XPathResult.FIRST_ORDERED_NODE_TYPE, null).singleNodeValue;
+                        } else {
+                            el = document.querySelector(selector);
+                        }
+                    } catch (e) {
+                        el = null;
+                    }
+                    if (!el) continue;
+                    var text = (el.innerText || el.textContent || '').trim();
+                    result[name] = withElements ? {text: text, element: el} : text;
+                }
+                return result;
+            }
+            """;
+    private static final String PROBE_SCRIPT = PROBE_FUNCTION + "return probe(arguments[0]);";
+    private static final String PROBE_ELEMENTS_SCRIPT = PROBE_FUNCTION + "return probe(arguments[0], true);";
+    /**
+     * 拦截网站调用的 window.open，只记下要打开的链接，不新开标签页
+     */
+    private static final String CAPTURE_OPEN_SCRIPT = """
+            window.__openedUrl = null;
+            if (!window.__openCaptured) {
+                window.__openCaptured = true;
+                window.open = function (url) {
+                    window.__openedUrl = new URL(url, location.href).href;
+                    return null;
+                };
+            }
+            """;
+    /**
+     * 用 MutationObserver 等待任意一个选择器出现，超时返回空结果
+     */
+    private static final String AWAIT_PROBE_SCRIPT = PROBE_FUNCTION + """
+            var selectors = arguments[0], timeout = arguments[1], done = arguments[arguments.length - 1];
+            var finished = false;
+            function check() {
+                var result = probe(selectors);
+                return Object.keys(result).length > 0 ? result : null;
+            }
+            function finish(result) {
+                if (finished) return;
+                finished = true;
+                observer.disconnect();
+                done(result);
+            }
+            var observer = new MutationObserver(function () {
+                var result = check();
+                if (result) finish(result);
+            });
+            observer.observe(document.documentElement, {childList: true, subtree: true, characterData: true});
+            var initial = check();
+            if (initial) finish(initial);
+            setTimeout(function () { finish({}); }, timeout);
+            """;
+
     public static void initDriver() {
         SeleniumUtil.getChromeDriver();
         SeleniumUtil.getActions();
         SeleniumUtil.getWait(WAIT_TIME);
+        TAB_POOL = new TabPool(CHROME_DRIVER, WORKER_TABS);
     }
 
     public static void getChromeDriver() {
@@ -81,8 +151,9 @@ public class SeleniumUtil {
             options.addArguments("--window-position=2800,1000"); // 将窗口移动到副屏的起始位置
         }
         // options.addArguments("--headless"); //使用无头模式
-        CHROME_DRIVER = new ChromeDriver(options);
+        CHROME_DRIVER = new InstrumentedChromeDriver(options);
         CHROME_DRIVER.manage().window().maximize();
+        CHROME_DRIVER.manage().timeouts().setScriptTimeout(SCRIPT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
     }
 
     private static String getOSType(String osName) {
@@ -132,16 +203,6 @@ public class SeleniumUtil {
         }
     }
 
-    private static void updateCookieFile(JSONArray jsonArray, String path) {
-        // 将JSONArray写入到一个文件中
-        try (FileWriter file = new FileWriter(path)) {
-            file.write(jsonArray.toString(4)); // 使用4个空格的缩进
-            log.info("cookie文件更新：{}", path);
-        } catch (IOException e) {
-            log.error("更新cookie异常！保存路径:{}", path);
-        }
-    }
-
     public static void loadCookie(String cookiePath) {
         // 首先清除由于浏览器打开已有的cookies
         CHROME_DRIVER.manage().deleteAllCookies();
@@ -163,10 +224,13 @@ public class SeleniumUtil {
                 String value = jsonObject.getString("value");
                 String domain = jsonObject.getString("domain");
                 String path = jsonObject.getString("path");
+                // 保留cookie真实的过期时间，已过期的直接跳过，交给登录流程处理
                 Date expiry = null;
                 if (!jsonObject.isNull("expiry")) {
-                    expiry = new Date(Instant.now().plus(7, ChronoUnit.DAYS).toEpochMilli());
-                    jsonObject.put("expiry", Instant.now().plus(7, ChronoUnit.DAYS).toEpochMilli()); // 更新expiry
+                    expiry = new Date(jsonObject.getLong("expiry"));
+                    if (expiry.before(new Date())) {
+                        continue;
+                    }
                 }
                 boolean isSecure = jsonObject.getBoolean("isSecure");
                 boolean isHttpOnly = jsonObject.getBoolean("isHttpOnly");
@@ -178,8 +242,49 @@ public class SeleniumUtil {
                 } catch (Exception ignore) {
                 }
             }
-            // 更新cookie文件
-            updateCookieFile(jsonArray, cookiePath);
+        }
+    }
+
+    /**
+     * 在复用的工作标签页中打开链接
+     *
+     * @param url 链接
+     * @return 工作标签页句柄
+     */
+    public static String openInWorkerTab(String url) {
+        return TAB_POOL.open(url);
+    }
+
+    /**
+     * 在点击会用 window.open 打开新标签页的元素之前调用，之后的点击只记下链接
+     */
+    public static void captureWindowOpen() {
+        executeJavaScript(CAPTURE_OPEN_SCRIPT);
+    }
+
+    /**
+     * 在复用的工作标签页中打开点击时记下的链接，不用等待并轮询新标签页的句柄
+     *
+     * @return 工作标签页句柄，点击后网站没有调用 window.open 时返回 null
+     */
+    public static String openCapturedInWorkerTab() {
+        Object url = executeJavaScript("return window.__openedUrl;");
+        return url == null ? null : openInWorkerTab(url.toString());
+    }
+
+    /**
+     * 归还工作标签页并切回主标签页
+     */
+    public static void releaseWorkerTab() {
+        TAB_POOL.release();
+    }
+
+    /**
+     * 运行结束时关闭全部工作标签页
+     */
+    public static void closeWorkerTabs() {
+        if (TAB_POOL != null) {
+            TAB_POOL.closeAll();
         }
     }
 
@@ -192,20 +297,26 @@ public class SeleniumUtil {
     }
 
     public static void sleep(int seconds) {
+        Tracer.Span sleepSpan = Tracer.span("sleep", Tracer.Category.SLEEP);
         try {
             TimeUnit.SECONDS.sleep(seconds);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             log.error("Sleep was interrupted", e);
+        } finally {
+            sleepSpan.close();
         }
     }
 
     public static void sleepByMilliSeconds(int milliSeconds) {
+        Tracer.Span sleepSpan = Tracer.span("sleep", Tracer.Category.SLEEP);
         try {
             TimeUnit.MILLISECONDS.sleep(milliSeconds);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             log.error("Sleep was interrupted", e);
+        } finally {
+            sleepSpan.close();
         }
     }
 
@@ -286,6 +397,13 @@ public class SeleniumUtil {
         return Files.exists(Paths.get(cookiePath));
     }
 
+    /**
+     * 不启动页面，直接请求平台接口预检cookie是否仍然有效
+     */
+    public static boolean isCookieValid(Platform platform, String cookiePath) {
+        return isCookieValid(cookiePath) && SessionProbe.probe(platform, cookiePath) != SessionProbe.Status.EXPIRED;
+    }
+
     /**
      * 等待元素可见并可点击，带有超时机制
      * 
@@ -320,6 +438,63 @@ public class SeleniumUtil {
         }
     }
 
+    /**
+     * 一次脚本调用检测多个选择器是否存在，代替逐个 findElement 并捕获 NoSuchElementException
+     *
+     * @param selectors 名称到选择器的映射，以 / 或 ( 开头的为 XPath，其余为 CSS
+     * @return 存在的名称及其文本，不存在的名称不在结果中；脚本执行失败时返回空结果
+     */
+    public static Map<String, String> probe(Map<String, String> selectors) {
+        return toProbeResult(executeJavaScript(PROBE_SCRIPT, selectors));
+    }
+
+    /**
+     * 探测到的元素及其文本
+     */
+    public record Found(String text, WebElement element) {
+    }
+
+    /**
+     * 与 {@link #probe(Map)} 相同，但同时返回找到的元素，需要点击时不用再查找一次
+     *
+     * @return 存在的名称及其元素和文本；脚本执行失败时返回空结果
+     */
+    public static Map<String, Found> probeElements(Map<String, String> selectors) {
+        Map<String, Found> present = new HashMap<>();
+        if (executeJavaScript(PROBE_ELEMENTS_SCRIPT, selectors) instanceof Map<?, ?> map) {
+            map.forEach((name, found) -> {
+                if (found instanceof Map<?, ?> item && item.get("element") instanceof WebElement element) {
+                    present.put(String.valueOf(name), new Found(String.valueOf(item.get("text")), element));
+                }
+            });
+        }
+        return present;
+    }
+
+    /**
+     * 等待任意一个选择器出现后返回探测结果，期间由页面内的 MutationObserver 监听变化，不轮询
+     *
+     * @param selectors 名称到选择器的映射，以 / 或 ( 开头的为 XPath，其余为 CSS
+     * @param timeoutMillis 最长等待时间
+     * @return 存在的名称及其文本，超时返回空结果
+     */
+    public static Map<String, String> awaitProbe(Map<String, String> selectors, long timeoutMillis) {
+        try {
+            return toProbeResult(CHROME_DRIVER.executeAsyncScript(AWAIT_PROBE_SCRIPT, selectors, timeoutMillis));
+        } catch (Exception e) {
+            log.error("等待页面元素失败: {}", e.getMessage());
+            return Map.of();
+        }
+    }
+
+    private static Map<String, String> toProbeResult(Object result) {
+        Map<String, String> present = new HashMap<>();
+        if (result instanceof Map<?, ?> map) {
+            map.forEach((name, text) -> present.put(String.valueOf(name), text == null ? "" : String.valueOf(text)));
+        }
+        return present;
+    }
+
     /**
      * 检查页面是否包含特定文本
      * 
@@ -0,0 +1,226 @@
+package utils;
+
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * 登录态预检：不启动浏览器，直接用保存的 cookie 请求各平台需要登录的轻量接口，毫秒级判断登录是否有效
+ * <p>
+ * 定时任务据此在登录失效时跳过本次投递并推送提醒，避免启动 Chrome 后才发现需要扫码。
+ * 没有可靠登录接口的平台返回 UNKNOWN，交给浏览器按原流程检查。
+ *
+ * @author loks666 项目链接:
+ *         <a href="https://github.com/loks666/get_jobs">https://github.com/loks666/get_jobs</a>
+ */
+@Slf4j
+public class SessionProbe {
+
+    /**
+     * 所有探测共用一个客户端，复用连接池；不跟随重定向，跳转到登录页即视为失效
+     */
+    private static final HttpClient CLIENT = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(3))
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .build();
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+    private static final String USER_AGENT =
+            "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36";
+
+    public enum Status {
+        /**
+         * 登录有效
+         */
+        ALIVE,
+        /**
+         * 登录失效或没有 cookie
+         */
+        EXPIRED,
+        /**
+         * 网络异常等原因无法判断，按原流程交给浏览器处理
+         */
+        UNKNOWN
+    }
+
+    /**
+     * 探测目标：需要登录才能访问的接口，以及判断登录有效的条件
+     */
+    public record Target(String url, Predicate<HttpResponse<String>> alive) {
+    }
+
+    /**
+     * 检查登录态
+     *
+     * @param platform 平台
+     * @param cookiePath cookie 文件路径
+     * @return 登录状态
+     */
+    public static Status probe(Platform platform, String cookiePath) {
+        Target target = target(platform);
+        if (target == null) {
+            return Status.UNKNOWN;
+        }
+        return probe(target, cookiePath);
+    }
+
+    public static Status probe(Target target, String cookiePath) {
+        long start = System.currentTimeMillis();
+        URI uri = URI.create(target.url());
+        String cookie = cookieHeader(cookiePath, uri.getHost());
+        if (cookie.isEmpty()) {
+            return Status.EXPIRED;
+        }
+        Status status;
+        try {
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                    .timeout(TIMEOUT)
+                    .header("Cookie", cookie)
+                    .header("User-Agent", USER_AGENT)
+                    .GET()
+                    .build();
+            HttpResponse<String> response = CLIENT.send(request, HttpResponse.BodyHandlers.ofString());
+            status = target.alive().test(response) ? Status.ALIVE : Status.EXPIRED;
+        } catch (IOException e) {
+            log.warn("登录态预检请求失败: {}", e.getMessage());
+            status = Status.UNKNOWN;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            status = Status.UNKNOWN;
+        }
+        log.info("登录态预检【{}】: {}，耗时{}ms", uri.getHost(), status, System.currentTimeMillis() - start);
+        return status;
+    }
+
+    /**
+     * 定时任务执行前检查登录态，失效时推送提醒并返回 false
+     */
+    public static boolean ensureSession(Platform platform, String cookiePath) {
+        if (probe(platform, cookiePath) != Status.EXPIRED) {
+            return true;
+        }
+        String message = String.format("\n【%s】登录已失效，本次定时投递已跳过，请手动运行扫码登录后再试",
+                platform.getPlatformName());
+        log.warn(message);
+        Bot.sendMessageByTime(message);
+        return false;
+    }
+
+    /**
+     * 各平台需要登录的轻量接口，页面改版后在这里调整
+     * <p>
+     * 目前只有Boss有返回登录状态的接口；猎聘、51job、智联、拉勾的个人页未登录时也可能返回200（前端再跳转登录），
+     * 状态码判断不可靠，这些平台返回 null（UNKNOWN），仍由浏览器按原流程检查登录
+     */
+    private static Target target(Platform platform) {
+        return switch (platform) {
+            case BOSS -> new Target("https://www.zhipin.com/wapi/zpuser/wap/getUserInfo.json",
+                    response -> response.statusCode() == 200 && response.body().contains("\"code\":0"));
+            default -> null;
+        };
+    }
+
+    /**
+     * 未登录时重定向到登录页的接口，用于本地模拟演示
+     */
+    private static boolean notRedirected(HttpResponse<String> response) {
+        return response.statusCode() == 200;
+    }
+
+    /**
+     * 拼接未过期、且属于该域名的 cookie
+     */
+    static String cookieHeader(String cookiePath, String host) {
+        Path path = Paths.get(cookiePath);
+        if (!Files.exists(path)) {
+            return "";
+        }
+        JSONArray cookies;
+        try {
+            String json = Files.readString(path, StandardCharsets.UTF_8);
+            if (json.isBlank()) {
+                return "";
+            }
+            cookies = new JSONArray(json);
+        } catch (Exception e) {
+            log.error("读取cookie异常！路径:{}", cookiePath);
+            return "";
+        }
+        long now = System.currentTimeMillis();
+        List<String> pairs = new ArrayList<>();
+        for (int i = 0; i < cookies.length(); i++) {
+            JSONObject cookie = cookies.getJSONObject(i);
+            if (!cookie.isNull("expiry") && cookie.getLong("expiry") <= now) {
+                continue;
+            }
+            String domain = cookie.optString("domain", "");
+            domain = domain.startsWith(".") ? domain.substring(1) : domain;
+            if (!domain.isEmpty() && !host.equals(domain) && !host.endsWith("." + domain)) {
+                continue;
+            }
+            pairs.add(cookie.getString("name") + "=" + cookie.getString("value"));
+        }
+        return String.join("; ", pairs);
+    }
+
+    /**
+     * 用本地模拟接口演示预检：携带 token=ok 视为已登录，否则重定向到登录页
+     */
+    public static void main(String[] args) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/user", exchange -> {
+            String cookie = exchange.getRequestHeaders().getFirst("Cookie");
+            if (cookie != null && cookie.contains("token=ok")) {
+                byte[] body = "{\"code\":0}".getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } else {
+                exchange.getResponseHeaders().add("Location", "/login");
+                exchange.sendResponseHeaders(302, -1);
+                exchange.close();
+            }
+        });
+        server.start();
+        try {
+            Target target = new Target("http://127.0.0.1:" + server.getAddress().getPort() + "/user",
+                    SessionProbe::notRedirected);
+            long future = System.currentTimeMillis() + 3600_000;
+            long past = System.currentTimeMillis() - 3600_000;
+            Path alive = Files.createTempFile("cookie", ".json");
+            Files.writeString(alive, "[{\"name\":\"token\",\"value\":\"ok\",\"domain\":\"127.0.0.1\",\"expiry\":"
+                    + future + "}]");
+            Path expired = Files.createTempFile("cookie", ".json");
+            Files.writeString(expired, "[{\"name\":\"token\",\"value\":\"ok\",\"domain\":\"127.0.0.1\",\"expiry\":"
+                    + past + "}]");
+            Path invalid = Files.createTempFile("cookie", ".json");
+            Files.writeString(invalid, "[{\"name\":\"token\",\"value\":\"bad\",\"domain\":\"127.0.0.1\"}]");
+            log.info("有效cookie: {}", probe(target, alive.toString()));
+            log.info("已过期cookie: {}", probe(target, expired.toString()));
+            log.info("无效cookie: {}", probe(target, invalid.toString()));
+            log.info("cookie文件不存在: {}", probe(target, "./not-exists.json"));
+            Files.delete(alive);
+            Files.delete(expired);
+            Files.delete(invalid);
+        } finally {
+            server.stop(0);
+        }
+    }
+}
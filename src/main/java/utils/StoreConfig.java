@@ -0,0 +1,51 @@
+package utils;
+
+import lombok.Data;
+
+/**
+ * @author loks666 项目链接:
+ *         <a href="https://github.com/loks666/get_jobs">https://github.com/loks666/get_jobs</a>
+ */
+@Data
+public class StoreConfig {
+
+    /**
+     * 岗位历史库文件路径
+     */
+    private String path;
+
+    /**
+     * 批量写入条数，岗位列表、AI检测结果攒够该数量后一次性落盘
+     */
+    private Integer batchSize;
+
+    /**
+     * 日志条数超过该值后压缩为快照
+     */
+    private Integer compactThreshold;
+
+    /**
+     * 岗位列表记录的保留天数，超期的记录在加载和压缩时丢弃，投递记录、黑名单和AI检测结果不受影响
+     */
+    private Integer listingDays;
+
+    public static StoreConfig init() {
+        StoreConfig config = JobUtils.getConfig(StoreConfig.class);
+        if (config == null) {
+            config = new StoreConfig();
+        }
+        if (config.getPath() == null || config.getPath().isBlank()) {
+            config.setPath("./src/main/java/utils/store.jsonl");
+        }
+        if (config.getBatchSize() == null || config.getBatchSize() <= 0) {
+            config.setBatchSize(50);
+        }
+        if (config.getCompactThreshold() == null || config.getCompactThreshold() <= 0) {
+            config.setCompactThreshold(1000);
+        }
+        if (config.getListingDays() == null || config.getListingDays() <= 0) {
+            config.setListingDays(7);
+        }
+        return config;
+    }
+}
@@ -0,0 +1,190 @@
+package utils;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+/**
+ * 标签页池：维护少量长期存活的工作标签页，岗位之间直接复用标签页导航， 避免每个岗位都新开、关闭标签页带来的渲染进程启动开销
+ *
+ * @author loks666 项目链接:
+ *         <a href="https://github.com/loks666/get_jobs">https://github.com/loks666/get_jobs</a>
+ */
+public class TabPool {
+    private static final Logger log = LoggerFactory.getLogger(TabPool.class);
+    /**
+     * 等待新标签页时查询窗口句柄的间隔
+     */
+    private static final int ADOPT_POLL_MILLIS = 200;
+
+    private final WebDriver driver;
+    private final int maxTabs;
+    private final String mainHandle;
+    /**
+     * 池中所有已知的句柄（包括主标签页），用于识别新打开的标签页
+     */
+    private final Set<String> knownHandles = new LinkedHashSet<>();
+    private final Deque<String> idleTabs = new ArrayDeque<>();
+    private final Set<String> busyTabs = new LinkedHashSet<>();
+    /**
+     * 由网站自身打开、被接管的标签页，不计入池容量，归还时直接关闭
+     */
+    private final Set<String> adoptedTabs = new HashSet<>();
+
+    public TabPool(WebDriver driver, int maxTabs) {
+        this.driver = driver;
+        this.maxTabs = Math.max(1, maxTabs);
+        this.mainHandle = driver.getWindowHandle();
+        knownHandles.add(mainHandle);
+    }
+
+    /**
+     * 在工作标签页中打开链接，优先复用空闲标签页
+     *
+     * @param url 要打开的链接
+     * @return 工作标签页句柄
+     */
+    public String open(String url) {
+        String handle = acquire();
+        try {
+            driver.switchTo().window(handle);
+        } catch (Exception e) {
+            log.warn("工作标签页【{}】已失效，重新创建: {}", handle, e.getMessage());
+            forget(handle);
+            handle = acquire();
+            driver.switchTo().window(handle);
+        }
+        busyTabs.add(handle);
+        driver.get(url);
+        return handle;
+    }
+
+    /**
+     * 归还当前占用的工作标签页并切回主标签页，池中的标签页保留以便下个岗位复用，接管的标签页直接关闭
+     */
+    public void release() {
+        for (String handle : new ArrayList<>(busyTabs)) {
+            if (adoptedTabs.contains(handle)) {
+                discard(handle);
+            } else {
+                idleTabs.add(handle);
+            }
+        }
+        busyTabs.clear();
+        switchToMain();
+    }
+
+    /**
+     * 接管由网站自身打开的新标签页（例如点击 target=_blank 的链接）并切换过去
+     *
+     * @return 新标签页句柄，如果没有新标签页则返回 null
+     */
+    public String adopt() {
+        String handle = findNewHandle();
+        if (handle == null) {
+            return null;
+        }
+        knownHandles.add(handle);
+        adoptedTabs.add(handle);
+        busyTabs.add(handle);
+        driver.switchTo().window(handle);
+        return handle;
+    }
+
+    /**
+     * 等待网站打开新标签页并接管，新标签页出现即返回，代替固定等待后再接管
+     *
+     * @param timeoutMillis 最长等待毫秒数
+     * @return 新标签页句柄，超时仍未出现时返回 null
+     */
+    public String awaitAdopt(long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        String handle = adopt();
+        while (handle == null && System.currentTimeMillis() < deadline) {
+            SeleniumUtil.sleepByMilliSeconds(ADOPT_POLL_MILLIS);
+            handle = adopt();
+        }
+        return handle;
+    }
+
+    /**
+     * 关闭并移出指定标签页，然后切回主标签页
+     *
+     * @param handle 标签页句柄
+     */
+    public void discard(String handle) {
+        if (handle == null || mainHandle.equals(handle)) {
+            return;
+        }
+        try {
+            driver.switchTo().window(handle);
+            driver.close();
+        } catch (Exception e) {
+            log.debug("关闭标签页【{}】失败: {}", handle, e.getMessage());
+        }
+        forget(handle);
+        switchToMain();
+    }
+
+    /**
+     * 关闭全部工作标签页
+     */
+    public void closeAll() {
+        for (String handle : new ArrayList<>(knownHandles)) {
+            discard(handle);
+        }
+    }
+
+    public void switchToMain() {
+        driver.switchTo().window(mainHandle);
+    }
+
+    public String getMainHandle() {
+        return mainHandle;
+    }
+
+    private String acquire() {
+        if (!idleTabs.isEmpty()) {
+            return idleTabs.pollFirst();
+        }
+        if (knownHandles.size() - 1 - adoptedTabs.size() < maxTabs) {
+            return create();
+        }
+        // 池已满且没有空闲标签页，复用最早占用的标签页
+        String handle = busyTabs.stream().filter(busy -> !adoptedTabs.contains(busy)).findFirst()
+                .orElseThrow(() -> new IllegalStateException("没有可复用的工作标签页"));
+        busyTabs.remove(handle);
+        return handle;
+    }
+
+    private String create() {
+        driver.switchTo().window(mainHandle);
+        ((JavascriptExecutor) driver).executeScript("window.open('about:blank', '_blank');");
+        String handle = findNewHandle();
+        if (handle == null) {
+            throw new IllegalStateException("创建工作标签页失败");
+        }
+        knownHandles.add(handle);
+        log.info("创建工作标签页【{}】，当前工作标签页数量：{}", handle, knownHandles.size() - 1 - adoptedTabs.size());
+        return handle;
+    }
+
+    private String findNewHandle() {
+        for (String handle : driver.getWindowHandles()) {
+            if (!knownHandles.contains(handle)) {
+                return handle;
+            }
+        }
+        return null;
+    }
+
+    private void forget(String handle) {
+        knownHandles.remove(handle);
+        adoptedTabs.remove(handle);
+        idleTabs.remove(handle);
+        busyTabs.remove(handle);
+    }
+}
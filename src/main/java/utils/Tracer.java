@@ -0,0 +1,206 @@
+package utils;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 岗位级耗时追踪：每个岗位的处理过程记录为一棵 span 树（打开标签页、等待按钮、HR活跃检测、间隔等待、AI、发送消息、上传简历），
+ * 运行结束时导出为 Chrome trace-event JSON（可在 chrome://tracing 或 Perfetto 中打开），并统计时间分布
+ * <p>
+ * span 的自身耗时（总耗时减去子 span 和浏览器命令的耗时）计入所属分类，因此各分类之和不会重复计算。
+ *
+ * @author loks666 项目链接:
+ *         <a href="https://github.com/loks666/get_jobs">https://github.com/loks666/get_jobs</a>
+ */
+@Slf4j
+public class Tracer {
+
+    /**
+     * 单次运行最多保留的事件数，超出后只统计时间分布不再记录事件
+     */
+    private static final int MAX_EVENTS = 200_000;
+    private static final String TRACE_DIR = "./target/trace";
+    private static final long BASE_NANOS = System.nanoTime();
+    private static final ThreadLocal<Deque<Span>> stack = ThreadLocal.withInitial(ArrayDeque::new);
+    private static final Map<Platform, Queue<Event>> events = new ConcurrentHashMap<>();
+    private static final Map<Platform, LongAdder[]> breakdown = new ConcurrentHashMap<>();
+    private static final AtomicInteger eventCount = new AtomicInteger();
+
+    public enum Category {
+        SLEEP("间隔等待"), DOM("等待页面"), AI("等待AI"), WORK("实际工作");
+
+        private final String label;
+
+        Category(String label) {
+            this.label = label;
+        }
+    }
+
+    private record Event(String name, Category category, long startNanos, long durationNanos, long threadId) {
+    }
+
+    /**
+     * 追踪片段：开始后在 try 块中执行，在 finally 中调用 {@link #close()} 结束；重复关闭无影响
+     */
+    public static class Span implements AutoCloseable {
+        private final Platform platform;
+        private final String name;
+        private final Category category;
+        private final long startNanos = System.nanoTime();
+        private long childNanos;
+        private boolean closed;
+
+        private Span(Platform platform, String name, Category category) {
+            this.platform = platform;
+            this.name = name;
+            this.category = category;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            Deque<Span> spans = stack.get();
+            // 子 span 因异常没有关闭时一并关闭，保证栈结构正确
+            while (!spans.isEmpty() && spans.peek() != this) {
+                spans.peek().close();
+            }
+            spans.poll();
+            closed = true;
+            long duration = System.nanoTime() - startNanos;
+            add(platform, category, Math.max(0, duration - childNanos));
+            Span parent = spans.peek();
+            if (parent != null) {
+                parent.childNanos += duration;
+            }
+            addEvent(platform, new Event(name, category, startNanos, duration, Thread.currentThread().threadId()));
+        }
+    }
+
+    /**
+     * 开始一个 span
+     *
+     * @param platform 平台
+     * @param name 名称，例如 openTab、waitButton
+     * @param category 自身耗时所属分类
+     */
+    public static Span span(Platform platform, String name, Category category) {
+        Span span = new Span(platform, name, category);
+        stack.get().push(span);
+        return span;
+    }
+
+    /**
+     * 开始一个 span，平台沿用外层 span，没有外层时使用浏览器当前所在的平台
+     */
+    public static Span span(String name, Category category) {
+        Span parent = stack.get().peek();
+        return span(parent != null ? parent.platform : DriverMetrics.currentPlatform(), name, category);
+    }
+
+    /**
+     * 记录一段已经结束的叶子耗时（例如单条浏览器命令），计入当前 span 的子耗时
+     */
+    public static void account(Platform platform, String name, Category category, long nanos) {
+        add(platform, category, nanos);
+        Span parent = stack.get().peek();
+        if (parent != null) {
+            parent.childNanos += nanos;
+            addEvent(platform, new Event(name, category, System.nanoTime() - nanos, nanos,
+                    Thread.currentThread().threadId()));
+        }
+    }
+
+    /**
+     * 生成时间分布报告，例如：间隔等待 45.0%(120秒)
+     */
+    public static String report(Platform platform) {
+        LongAdder[] adders = breakdown.get(platform);
+        if (adders == null) {
+            return "【" + platform.getPlatformName() + "】没有耗时追踪数据";
+        }
+        long total = Arrays.stream(adders).mapToLong(LongAdder::sum).sum();
+        StringBuilder sb = new StringBuilder("【").append(platform.getPlatformName()).append("】时间分布：");
+        for (Category category : Category.values()) {
+            long nanos = adders[category.ordinal()].sum();
+            sb.append(String.format("%s %.1f%%(%.1f秒) ", category.label, total == 0 ? 0 : nanos * 100.0 / total,
+                    nanos / 1e9));
+        }
+        return sb.toString().trim();
+    }
+
+    /**
+     * 导出平台的 trace-event JSON 文件，并清空该平台的追踪数据
+     *
+     * @return 导出文件路径，没有数据时返回 null
+     */
+    public static Path export(Platform platform) {
+        Queue<Event> queue = events.remove(platform);
+        breakdown.remove(platform);
+        if (queue == null || queue.isEmpty()) {
+            return null;
+        }
+        eventCount.addAndGet(-queue.size());
+        String time = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        Path path = Paths.get(TRACE_DIR, platform.name().toLowerCase() + "-" + time + ".json");
+        try {
+            Files.createDirectories(path.getParent());
+            try (JsonGenerator generator = new ObjectMapper().getFactory()
+                    .createGenerator(path.toFile(), JsonEncoding.UTF8)) {
+                generator.writeStartObject();
+                generator.writeStringField("displayTimeUnit", "ms");
+                generator.writeArrayFieldStart("traceEvents");
+                for (Event event : queue) {
+                    generator.writeStartObject();
+                    generator.writeStringField("name", event.name());
+                    generator.writeStringField("cat", event.category().name());
+                    generator.writeStringField("ph", "X");
+                    generator.writeNumberField("ts", (event.startNanos() - BASE_NANOS) / 1000);
+                    generator.writeNumberField("dur", event.durationNanos() / 1000);
+                    generator.writeNumberField("pid", 1);
+                    generator.writeNumberField("tid", event.threadId());
+                    generator.writeEndObject();
+                }
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+            log.info("耗时追踪已导出：{}，共{}个事件", path, queue.size());
+            return path;
+        } catch (IOException e) {
+            log.error("导出耗时追踪失败！路径:{}", path);
+            return null;
+        }
+    }
+
+    private static void add(Platform platform, Category category, long nanos) {
+        breakdown.computeIfAbsent(platform, k -> {
+            LongAdder[] adders = new LongAdder[Category.values().length];
+            for (int i = 0; i < adders.length; i++) {
+                adders[i] = new LongAdder();
+            }
+            return adders;
+        })[category.ordinal()].add(nanos);
+    }
+
+    private static void addEvent(Platform platform, Event event) {
+        if (eventCount.incrementAndGet() > MAX_EVENTS) {
+            eventCount.decrementAndGet();
+            return;
+        }
+        events.computeIfAbsent(platform, k -> new ConcurrentLinkedQueue<>()).add(event);
+    }
+}
@@ -4,13 +4,22 @@ import org.openqa.selenium.*;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import utils.Checkpoint;
+import utils.DriverMetrics;
 import utils.Job;
+import utils.JobDeduplicator;
+import utils.JobStore;
 import utils.JobUtils;
+import utils.Metrics;
+import utils.Platform;
+import utils.Selectors;
 import utils.SeleniumUtil;
+import utils.Tracer;
 
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import static utils.Bot.sendMessageByTime;
@@ -25,24 +34,71 @@ public class ZhiLian {
     private static final Logger log = LoggerFactory.getLogger(ZhiLian.class);
     static String loginUrl = "https://passport.zhaopin.com/login";
     static String homeUrl = "https://sou.zhaopin.com/?";
+    static String cookiePath = "./src/main/java/zhilian/cookie.json";
     static boolean isLimit = false;
     static int maxPage = 500;
     static ZhilianConfig config = ZhilianConfig.init();
     static List<Job> resultList = new ArrayList<>();
     static Date startDate;
+    static Checkpoint<Job> checkpoint;
+
+    /**
+     * 投递后的申请流程提示中出现上限文案；按文案探测，提示容器先于文案渲染时不会提前返回
+     */
+    private static final Map<String, String> APPLY_STATE =
+            Map.of("limit", "//div[@class='a-job-apply-workflow'][contains(., '达到上限')]");
+    private static final long APPLY_STATE_TIMEOUT_MILLIS = 500;
+    /**
+     * 投递后等待网站打开结果标签页的最长时间
+     */
+    private static final long RESULT_TAB_TIMEOUT_MILLIS = 2000;
+
+    /**
+     * 一次读取当前页全部岗位卡片，全选投递成功后记录
+     */
+    private static final String COLLECT_SCRIPT = """
+            var items = document.querySelectorAll('div.joblist-box__item');
+            var cards = [];
+            for (var i = 0; i < items.length; i++) {
+                var name = items[i].querySelector("[class*='jobinfo__name']");
+                var company = items[i].querySelector("[class*='companyinfo__name']");
+                var salary = items[i].querySelector("[class*='jobinfo__salary']");
+                var area = items[i].querySelector("[class*='jobinfo__other-info-item']");
+                if (!name || !company) continue;
+                cards.push({
+                    title: name.textContent.trim(),
+                    company: company.textContent.trim(),
+                    salary: salary ? salary.textContent.trim() : null,
+                    area: area ? area.textContent.trim() : null,
+                    href: name.href || null
+                });
+            }
+            return cards;
+            """;
 
     public static void main(String[] args) {
         SeleniumUtil.initDriver();
         startDate = new Date();
+        checkpoint = Checkpoint.resume(Platform.ZHILIAN, Job.class, List.of(Checkpoint.NO_CITY),
+                config.getKeywords());
+        resultList.addAll(checkpoint.getResults());
         login();
         config.getKeywords().forEach(keyword -> {
             if (isLimit) {
                 return;
             }
-            CHROME_DRIVER.get(getSearchUrl(keyword, 1));
-            submitJobs(keyword);
+            if (checkpoint.isDone(Checkpoint.NO_CITY, keyword)) {
+                log.info("关键词【{}】上次已投递完，跳过", keyword);
+                return;
+            }
+            int startPage = checkpoint.startPage(Checkpoint.NO_CITY, keyword);
+            CHROME_DRIVER.get(getSearchUrl(keyword, startPage));
+            submitJobs(keyword, startPage);
 
         });
+        if (!isLimit) {
+            checkpoint.clear();
+        }
         log.info(resultList.isEmpty() ? "未投递新的岗位..." : "新投递公司如下:\n{}",
                 resultList.stream().map(Object::toString).collect(Collectors.joining("\n")));
         printResult();
@@ -53,7 +109,16 @@ public class ZhiLian {
                 formatDuration(startDate, new Date()));
         log.info(message);
         sendMessageByTime(message);
+        log.info(JobStore.report(Platform.ZHILIAN, startDate));
+        log.info(DriverMetrics.report(Platform.ZHILIAN, 10));
+        log.info(Selectors.report(Platform.ZHILIAN));
+        Selectors.save();
+        DriverMetrics.reset(Platform.ZHILIAN);
+        log.info(Tracer.report(Platform.ZHILIAN));
+        Tracer.export(Platform.ZHILIAN);
+        Metrics.runFinished(Platform.ZHILIAN, startDate);
         resultList.clear();
+        SeleniumUtil.closeWorkerTabs();
         CHROME_DRIVER.close();
         CHROME_DRIVER.quit();
     }
@@ -64,104 +129,107 @@ public class ZhiLian {
                 + JobUtils.appendParam("sl", config.getSalary()) + "&p=" + page;
     }
 
-    private static void submitJobs(String keyword) {
+    private static void submitJobs(String keyword, int startPage) {
         if (isLimit) {
             return;
         }
         WAIT.until(ExpectedConditions.presenceOfElementLocated(
                 By.xpath("//div[contains(@class, 'joblist-box__item')]")));
         setMaxPages();
-        for (int i = 1; i <= maxPage; i++) {
-            if (i != 1) {
-                CHROME_DRIVER.get(getSearchUrl(keyword, i));
-            }
-            log.info("开始投递【{}】关键词，第【{}】页...", keyword, i);
-            // 等待岗位出现
-            try {
-                WAIT.until(ExpectedConditions
-                        .presenceOfElementLocated(By.xpath("//div[@class='positionlist']")));
-            } catch (Exception ignore) {
-                CHROME_DRIVER.navigate().refresh();
-                SeleniumUtil.sleep(1);
-            }
-            // 全选
+        for (int i = startPage; i <= maxPage; i++) {
+            Tracer.Span pageSpan = Tracer.span(Platform.ZHILIAN, "page", Tracer.Category.WORK);
             try {
-                WebElement allSelect = WAIT.until(ExpectedConditions.presenceOfElementLocated(
-                        By.xpath("//i[@class='betch__checkall__checkbox']")));
-                allSelect.click();
-            } catch (Exception e) {
-                log.info("没有全选按钮，程序退出...");
-                continue;
-            }
-            // 投递
-            WebElement submit = WAIT.until(ExpectedConditions
-                    .presenceOfElementLocated(By.xpath("//button[@class='betch__button']")));
-            submit.click();
-            if (checkIsLimit()) {
-                break;
-            }
-            SeleniumUtil.sleep(1);
-            // 切换到新的标签页
-            ArrayList<String> tabs = new ArrayList<>(CHROME_DRIVER.getWindowHandles());
-            CHROME_DRIVER.switchTo().window(tabs.get(tabs.size() - 1));
-            // 关闭弹框
-            try {
-                WebElement result =
-                        CHROME_DRIVER.findElement(By.xpath("//div[@class='deliver-dialog']"));
-                if (result.getText().contains("申请成功")) {
-                    log.info("岗位申请成功！");
+                Metrics.pageCrawled(Platform.ZHILIAN);
+                if (i != startPage) {
+                    CHROME_DRIVER.get(getSearchUrl(keyword, i));
                 }
-            } catch (Exception e) {
-                log.error("关闭投递弹框失败...");
-            }
-            try {
-                WebElement close =
-                        CHROME_DRIVER.findElement(By.xpath("//img[@title='close-icon']"));
-                close.click();
-            } catch (Exception e) {
+                log.info("开始投递【{}】关键词，第【{}】页...", keyword, i);
+                // 等待岗位出现
+                try {
+                    WAIT.until(ExpectedConditions
+                            .presenceOfElementLocated(By.xpath("//div[@class='positionlist']")));
+                } catch (Exception ignore) {
+                    CHROME_DRIVER.navigate().refresh();
+                    SeleniumUtil.sleep(1);
+                }
+                // 全选前记下本页岗位，投递成功后记录
+                List<Job> selected = collectCards();
+                // 全选
+                try {
+                    WebElement allSelect = WAIT.until(ExpectedConditions.presenceOfElementLocated(
+                            By.xpath("//i[@class='betch__checkall__checkbox']")));
+                    allSelect.click();
+                } catch (Exception e) {
+                    log.info("没有全选按钮，程序退出...");
+                    continue;
+                }
+                // 投递
+                WebElement submit = WAIT.until(ExpectedConditions
+                        .presenceOfElementLocated(By.xpath("//button[@class='betch__button']")));
+                submit.click();
                 if (checkIsLimit()) {
                     break;
                 }
-            }
-            try {
-                // 投递相似职位
-                WebElement checkButton = CHROME_DRIVER.findElement(
-                        By.xpath("//div[contains(@class, 'applied-select-all')]//input"));
-                if (!checkButton.isSelected()) {
-                    checkButton.click();
+                // 接管投递后网站打开的结果标签页，出现即接管
+                String resultTab = TAB_POOL.awaitAdopt(RESULT_TAB_TIMEOUT_MILLIS);
+                // 关闭弹框
+                try {
+                    WebElement result = Selectors.require(Platform.ZHILIAN, "deliverDialog");
+                    if (result.getText().contains("申请成功")) {
+                        log.info("岗位申请成功！");
+                        recordDelivered(selected);
+                    }
+                } catch (Exception e) {
+                    log.error("关闭投递弹框失败...");
+                }
+                try {
+                    WebElement close = Selectors.require(Platform.ZHILIAN, "dialogClose");
+                    close.click();
+                } catch (Exception e) {
+                    if (checkIsLimit()) {
+                        TAB_POOL.discard(resultTab);
+                        break;
+                    }
+                }
+                try {
+                    // 投递相似职位
+                    WebElement checkButton = Selectors.require(Platform.ZHILIAN, "similarSelectAll");
+                    if (!checkButton.isSelected()) {
+                        checkButton.click();
+                    }
+                    List<WebElement> jobs = Selectors.findAll(Platform.ZHILIAN, "similarJobs");
+                    WebElement post = Selectors.require(Platform.ZHILIAN, "similarPost");
+                    post.click();
+                    printRecommendJobs(jobs);
+                    log.info("相似职位投递成功！");
+                } catch (NoSuchElementException e) {
+                    log.error("没有匹配到相似职位...");
+                } catch (Exception e) {
+                    log.error("相似职位投递异常！！！");
                 }
-                List<WebElement> jobs =
-                        CHROME_DRIVER.findElements(By.xpath("//div[@class='recommend-job']"));
-                WebElement post = CHROME_DRIVER.findElement(
-                        By.xpath("//div[contains(@class, 'applied-select-all')]//button"));
-                post.click();
-                printRecommendJobs(jobs);
-                log.info("相似职位投递成功！");
-            } catch (NoSuchElementException e) {
-                log.error("没有匹配到相似职位...");
-            } catch (Exception e) {
-                log.error("相似职位投递异常！！！");
+                // 投完了关闭结果标签页并切换回主标签页
+                if (resultTab != null) {
+                    TAB_POOL.discard(resultTab);
+                }
+                checkpoint.pageDone(Checkpoint.NO_CITY, keyword, i, null, resultList);
+            } finally {
+                pageSpan.close();
             }
-            // 投完了关闭当前窗口并切换至第一个窗口
-            CHROME_DRIVER.close();
-            CHROME_DRIVER.switchTo().window(tabs.get(0));
+        }
+        if (!isLimit) {
+            checkpoint.keywordDone(Checkpoint.NO_CITY, keyword, maxPage, resultList);
         }
     }
 
     private static boolean checkIsLimit() {
-        try {
-            SeleniumUtil.sleepByMilliSeconds(500);
-            WebElement result =
-                    CHROME_DRIVER.findElement(By.xpath("//div[@class='a-job-apply-workflow']"));
-            if (result.getText().contains("达到上限")) {
-                log.info("今日投递已达上限！");
-                isLimit = true;
-                return true;
-            }
-            return false;
-        } catch (Exception e) {
-            return false;
+        // 上限文案出现即返回，没有达到上限时最多等待原来固定等待的时长
+        Map<String, String> applyState = SeleniumUtil.awaitProbe(APPLY_STATE, APPLY_STATE_TIMEOUT_MILLIS);
+        if (applyState.containsKey("limit")) {
+            log.info("今日投递已达上限！");
+            isLimit = true;
+            return true;
         }
+        return false;
     }
 
     private static void setMaxPages() {
@@ -189,26 +257,46 @@ public class ZhiLian {
         }
     }
 
+    @SuppressWarnings("unchecked")
+    private static List<Job> collectCards() {
+        List<Job> jobs = new ArrayList<>();
+        Object result = CHROME_DRIVER.executeScript(COLLECT_SCRIPT);
+        if (!(result instanceof List<?> cards)) {
+            return jobs;
+        }
+        for (Object item : cards) {
+            Map<String, Object> card = (Map<String, Object>) item;
+            Job job = new Job();
+            job.setJobName(String.valueOf(card.get("title")));
+            job.setCompanyName(String.valueOf(card.get("company")));
+            job.setSalary((String) card.get("salary"));
+            job.setJobArea((String) card.get("area"));
+            job.setHref((String) card.get("href"));
+            jobs.add(job);
+        }
+        return jobs;
+    }
+
+    private static void recordDelivered(List<Job> jobs) {
+        for (Job job : jobs) {
+            log.info("投递【{}】公司【{}】岗位，薪资【{}】", job.getCompanyName(), job.getJobName(), job.getSalary());
+            resultList.add(job);
+            JobDeduplicator.record(job, Platform.ZHILIAN);
+            JobStore.recordDelivery(Platform.ZHILIAN, job);
+        }
+    }
+
     private static void printRecommendJobs(List<WebElement> jobs) {
         jobs.forEach(j -> {
-            String jobName =
-                    j.findElement(By.xpath(".//*[contains(@class, 'recommend-job__position')]"))
-                            .getText();
-            String salary =
-                    j.findElement(By.xpath(".//span[@class='recommend-job__demand__salary']"))
-                            .getText();
-            String years =
-                    j.findElement(By.xpath(".//span[@class='recommend-job__demand__experience']"))
-                            .getText().replaceAll("\n", " ");
-            String education =
-                    j.findElement(By.xpath(".//span[@class='recommend-job__demand__educational']"))
-                            .getText().replaceAll("\n", " ");
-            String companyName =
-                    j.findElement(By.xpath(".//*[contains(@class, 'recommend-job__cname')]"))
-                            .getText();
-            String companyTag = j
-                    .findElement(By.xpath(".//*[contains(@class, 'recommend-job__demand__cinfo')]"))
-                    .getText().replaceAll("\n", " ");
+            String jobName = Selectors.require(j, Platform.ZHILIAN, "similarName").getText();
+            String salary = Selectors.require(j, Platform.ZHILIAN, "similarSalary").getText();
+            String years = Selectors.require(j, Platform.ZHILIAN, "similarExperience").getText()
+                    .replaceAll("\n", " ");
+            String education = Selectors.require(j, Platform.ZHILIAN, "similarEducation").getText()
+                    .replaceAll("\n", " ");
+            String companyName = Selectors.require(j, Platform.ZHILIAN, "similarCompany").getText();
+            String companyTag = Selectors.require(j, Platform.ZHILIAN, "similarCompanyInfo").getText()
+                    .replaceAll("\n", " ");
             Job job = new Job();
             job.setJobName(jobName);
             job.setSalary(salary);
@@ -218,13 +306,15 @@ public class ZhiLian {
             log.info("投递【{}】公司【{}】岗位，薪资【{}】，要求【{}·{}】，规模【{}】", companyName, jobName, salary, years,
                     education, companyTag);
             resultList.add(job);
+            JobDeduplicator.record(job, Platform.ZHILIAN);
+            JobStore.recordDelivery(Platform.ZHILIAN, job);
         });
     }
 
     private static void login() {
         CHROME_DRIVER.get(loginUrl);
-        if (SeleniumUtil.isCookieValid("./src/main/java/zhilian/cookie.json")) {
-            SeleniumUtil.loadCookie("./src/main/java/zhilian/cookie.json");
+        if (SeleniumUtil.isCookieValid(Platform.ZHILIAN, cookiePath)) {
+            SeleniumUtil.loadCookie(cookiePath);
             CHROME_DRIVER.navigate().refresh();
             SeleniumUtil.sleep(1);
         }
@@ -242,7 +332,7 @@ public class ZhiLian {
             WAIT.until(ExpectedConditions
                     .presenceOfElementLocated(By.xpath("//div[@class='zp-main__personal']")));
             log.info("扫码登录成功！");
-            SeleniumUtil.saveCookie("./src/main/java/zhilian/cookie.json");
+            SeleniumUtil.saveCookie(cookiePath);
         } catch (Exception e) {
             log.error("扫码登录异常！");
             System.exit(-1);